@@ -6,9 +6,10 @@ echo ========================================
 echo.
 
 if not exist bin mkdir bin
+set CLASSPATH_PG=lib\postgres\postgresql-42.5.4.jar
 
 echo Compilando archivos Java...
-javac -encoding UTF-8 -d bin -sourcepath src src/implementacion/*.java src/flyweight/*.java
+javac -encoding UTF-8 -cp %CLASSPATH_PG% -d bin -sourcepath src src/implementacion/*.java src/flyweight/*.java
 
 if %ERRORLEVEL% EQU 0 (
     echo.
@@ -18,7 +19,7 @@ if %ERRORLEVEL% EQU 0 (
     echo.
     echo Ejecutando programa...
     echo.
-    java -cp bin flyweight.FlyweightMain
+    java -cp bin;%CLASSPATH_PG% flyweight.FlyweightMain
 ) else (
     echo.
     echo ========================================
@@ -0,0 +1,297 @@
+package flyweight;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ArnesBenchmark - arnés de microbenchmarks al estilo de JMH (JMH no está en el classpath
+ * del proyecto y no hay herramienta de build que lo traiga).
+ *
+ * - Cada caso corre en una JVM nueva por fork (-f, por defecto 1) para que el perfil del JIT
+ *   de un caso no afecte a los demás; con -f 0 corre en la misma JVM. Los forks heredan los
+ *   argumentos de la JVM padre (-Xmx, -D...).
+ * - Iteraciones de calentamiento (-wi) y de medición (-i) de duración fija (-ms). Una
+ *   iteración repite lotes de operaciones hasta cumplir el tiempo; el lote crece hasta que
+ *   cada llamada dura al menos LOTE_MINIMO_NS, así System.nanoTime() no pesa en la medición.
+ * - Caso.preparar() corre antes de cada iteración, fuera del tiempo medido.
+ * - Reporta throughput (ops/s), tiempo medio (ns/op) y bytes asignados por operación (B/op,
+ *   el equivalente de gc.alloc.rate.norm) con el contador por hilo de
+ *   com.sun.management.ThreadMXBean; si la JVM no lo soporta se muestra "-". El error es el
+ *   intervalo de confianza al 99.9% (t de Student) sobre las iteraciones medidas de todos
+ *   los forks.
+ *
+ * Opciones: [filtro...] [-wi n] [-i n] [-ms n] [-f n]. Un filtro elige los casos cuyo
+ * nombre lo contiene.
+ */
+public final class ArnesBenchmark {
+
+    public interface Caso {
+        default void preparar() throws Exception {
+        }
+
+        /**
+         * Ejecuta operaciones veces la operación medida y devuelve un valor que dependa de
+         * los resultados (se consume para que el JIT no elimine el trabajo)
+         */
+        long operar(int operaciones) throws Exception;
+    }
+
+    public interface FabricaCaso {
+        Caso crear() throws Exception;
+    }
+
+    private static final String HIJO = "--hijo";
+    private static final String MARCA = "@iteracion";
+    private static final long LOTE_MINIMO_NS = 100_000;
+    private static final int LOTE_MAXIMO = 1 << 24;
+    // t de Student para el 99.9% bilateral, por grados de libertad (1 a 30)
+    private static final double[] T_999 = {
+        636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    private static volatile long sumidero;
+
+    private final Class<?> principal;
+    private final Map<String, FabricaCaso> casos = new LinkedHashMap<>();
+    private int iteracionesCalentamiento = 5;
+    private int iteraciones = 5;
+    private int msPorIteracion = 1_000;
+    private int forks = 1;
+
+    /**
+     * @param principal clase con el main que registra los casos y llama a ejecutar(args);
+     *                  es la que se lanza en cada fork
+     */
+    public ArnesBenchmark(Class<?> principal) {
+        this.principal = principal;
+    }
+
+    public ArnesBenchmark agregar(String nombre, FabricaCaso fabrica) {
+        casos.put(nombre, fabrica);
+        return this;
+    }
+
+    /**
+     * Una iteración: operaciones hechas, nanosegundos y bytes asignados (-1 si no se sabe)
+     */
+    private static final class Iteracion {
+        final boolean calentamiento;
+        final long operaciones;
+        final long nanos;
+        final long bytes;
+
+        Iteracion(boolean calentamiento, long operaciones, long nanos, long bytes) {
+            this.calentamiento = calentamiento;
+            this.operaciones = operaciones;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        double opsPorSegundo() {
+            return operaciones * 1e9 / nanos;
+        }
+
+        double nanosPorOperacion() {
+            return (double) nanos / operaciones;
+        }
+
+        double bytesPorOperacion() {
+            return (double) bytes / operaciones;
+        }
+
+        String linea() {
+            return MARCA + " " + calentamiento + " " + operaciones + " " + nanos + " " + bytes;
+        }
+
+        static Iteracion de(String linea) {
+            String[] p = linea.split(" ");
+            return new Iteracion(Boolean.parseBoolean(p[1]), Long.parseLong(p[2]), Long.parseLong(p[3]), Long.parseLong(p[4]));
+        }
+    }
+
+    private interface Receptor {
+        void recibir(Iteracion iteracion);
+    }
+
+    public void ejecutar(String[] args) throws Exception {
+        List<String> filtros = new ArrayList<>();
+        String hijo = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-wi": iteracionesCalentamiento = Integer.parseInt(args[++i]); break;
+                case "-i": iteraciones = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "-ms": msPorIteracion = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "-f": forks = Math.max(0, Integer.parseInt(args[++i])); break;
+                case HIJO: hijo = args[++i]; break;
+                default: filtros.add(args[i]);
+            }
+        }
+        if (hijo != null) {
+            medir(hijo, it -> System.out.println(it.linea()));
+            return;
+        }
+
+        List<String> elegidos = new ArrayList<>();
+        for (String nombre : casos.keySet()) {
+            boolean coincide = filtros.isEmpty();
+            for (String f : filtros) coincide |= nombre.contains(f);
+            if (coincide) elegidos.add(nombre);
+        }
+        System.out.println("Calentamiento: " + iteracionesCalentamiento + " x " + msPorIteracion + " ms, medición: "
+                + iteraciones + " x " + msPorIteracion + " ms, forks: " + forks
+                + (forks == 0 ? " (misma JVM)" : "") + ", casos: " + elegidos.size());
+
+        Map<String, List<Iteracion>> resultados = new LinkedHashMap<>();
+        for (String nombre : elegidos) {
+            List<Iteracion> medidas = new ArrayList<>();
+            resultados.put(nombre, medidas);
+            Receptor receptor = it -> {
+                System.out.printf("  %s %,16.1f ops/s %12.2f ns/op %10s B/op%n",
+                        it.calentamiento ? "calentamiento:" : "iteración:    ", it.opsPorSegundo(),
+                        it.nanosPorOperacion(), it.bytes >= 0 ? String.format("%.1f", it.bytesPorOperacion()) : "-");
+                if (!it.calentamiento) medidas.add(it);
+            };
+            if (forks == 0) {
+                System.out.println("\n# " + nombre);
+                medir(nombre, receptor);
+            } else {
+                for (int f = 1; f <= forks; f++) {
+                    System.out.println("\n# " + nombre + " (fork " + f + " de " + forks + ")");
+                    lanzarFork(nombre, receptor);
+                }
+            }
+        }
+        imprimirResumen(resultados);
+    }
+
+    /**
+     * Corre las iteraciones de un caso en esta JVM
+     */
+    private void medir(String nombre, Receptor receptor) throws Exception {
+        FabricaCaso fabrica = casos.get(nombre);
+        if (fabrica == null) throw new IllegalArgumentException("Caso desconocido: " + nombre);
+        Caso caso = fabrica.crear();
+        int[] lote = {1};
+        for (int i = 0; i < iteracionesCalentamiento + iteraciones; i++) {
+            caso.preparar();
+            receptor.recibir(iteracion(caso, i < iteracionesCalentamiento, lote));
+        }
+    }
+
+    private Iteracion iteracion(Caso caso, boolean calentamiento, int[] lote) throws Exception {
+        long acumulado = 0;
+        long operaciones = 0;
+        long bytesInicio = asignados();
+        long inicio = System.nanoTime();
+        long fin = inicio + msPorIteracion * 1_000_000L;
+        long ahora = inicio;
+        while (ahora < fin) {
+            int n = lote[0];
+            acumulado += caso.operar(n);
+            operaciones += n;
+            long antes = ahora;
+            ahora = System.nanoTime();
+            if (ahora - antes < LOTE_MINIMO_NS && n < LOTE_MAXIMO) lote[0] = n * 2;
+        }
+        long nanos = ahora - inicio;
+        long bytesFin = asignados();
+        sumidero += acumulado;
+        return new Iteracion(calentamiento, operaciones, nanos, bytesInicio >= 0 && bytesFin >= 0 ? bytesFin - bytesInicio : -1);
+    }
+
+    private void lanzarFork(String nombre, Receptor receptor) throws Exception {
+        List<String> comando = new ArrayList<>();
+        comando.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        comando.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add(principal.getName());
+        comando.add(HIJO);
+        comando.add(nombre);
+        comando.add("-wi");
+        comando.add(String.valueOf(iteracionesCalentamiento));
+        comando.add("-i");
+        comando.add(String.valueOf(iteraciones));
+        comando.add("-ms");
+        comando.add(String.valueOf(msPorIteracion));
+
+        Process proceso = new ProcessBuilder(comando).redirectErrorStream(true).start();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(proceso.getInputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (linea.startsWith(MARCA)) receptor.recibir(Iteracion.de(linea));
+                else System.out.println("  | " + linea);
+            }
+        }
+        int salida = proceso.waitFor();
+        if (salida != 0) throw new IllegalStateException("El fork de " + nombre + " terminó con código " + salida);
+    }
+
+    private static void imprimirResumen(Map<String, List<Iteracion>> resultados) {
+        int ancho = 4;
+        for (String nombre : resultados.keySet()) ancho = Math.max(ancho, nombre.length());
+        System.out.println("\nResumen (media ± error al 99.9%)");
+        String formato = "%-" + ancho + "s  %5s  %16s  %14s  %10s  %10s  %10s%n";
+        System.out.printf(formato, "caso", "n", "ops/s", "± ops/s", "ns/op", "± ns/op", "B/op");
+        for (Map.Entry<String, List<Iteracion>> e : resultados.entrySet()) {
+            List<Iteracion> medidas = e.getValue();
+            int n = medidas.size();
+            double[] ops = new double[n];
+            double[] ns = new double[n];
+            long operaciones = 0, bytes = 0;
+            boolean conBytes = true;
+            for (int i = 0; i < n; i++) {
+                Iteracion it = medidas.get(i);
+                ops[i] = it.opsPorSegundo();
+                ns[i] = it.nanosPorOperacion();
+                operaciones += it.operaciones;
+                bytes += it.bytes;
+                conBytes &= it.bytes >= 0;
+            }
+            System.out.printf(formato, e.getKey(), n, String.format("%,.1f", media(ops)), String.format("%,.1f", error(ops)),
+                    String.format("%.2f", media(ns)), String.format("%.2f", error(ns)),
+                    conBytes && operaciones > 0 ? String.format("%.1f", (double) bytes / operaciones) : "-");
+        }
+    }
+
+    private static double media(double[] valores) {
+        double suma = 0;
+        for (double v : valores) suma += v;
+        return valores.length > 0 ? suma / valores.length : Double.NaN;
+    }
+
+    /**
+     * Semiancho del intervalo de confianza al 99.9% de la media (NaN con una sola medida)
+     */
+    private static double error(double[] valores) {
+        int n = valores.length;
+        if (n < 2) return Double.NaN;
+        double m = media(valores);
+        double cuadrados = 0;
+        for (double v : valores) cuadrados += (v - m) * (v - m);
+        double desviacion = Math.sqrt(cuadrados / (n - 1));
+        double t = n - 1 <= T_999.length ? T_999[n - 2] : 3.291;
+        return t * desviacion / Math.sqrt(n);
+    }
+
+    private static long asignados() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (hilos instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) hilos;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,244 @@
+package flyweight;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import implementacion.AlmacenDiscoL2;
+import implementacion.CargadorPlaylist;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+
+/**
+ * Nivel en disco local (AlmacenDiscoL2) entre PlaylistCache y la BD.
+ *
+ * 1) Costos del registro: µs por guardar() (encolar) y por escritura en disco, por lectura
+ *    (leer + decodificar), tiempo de reapertura (rehacer el índice) y de compactación.
+ * 3) Registro lleno: µs por guardar() y compactaciones con el tope ya alcanzado.
+ * 2) PlaylistCache con read-through sobre una BD simulada (latenciaMs por consulta):
+ *    peticiones Zipf sin L2 y con L2; después la misma cache con L2 sigue atendiendo otra
+ *    tanda de peticiones con la BD caída.
+ *
+ * Uso: java flyweight.BenchmarkAlmacenL2 [playlists] [capacidadCache] [latenciaMs]
+ */
+public class BenchmarkAlmacenL2 {
+
+    private static final int PETICIONES = 20_000;
+    // Escrituras medidas con el registro lleno (con nivel 100% cada una copia el registro entero)
+    private static final int ESCRITURAS_TOPE = 1_000;
+    private static long sumidero;
+
+    public static void main(String[] args) throws Exception {
+        int playlists = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int capacidad = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long latenciaMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        Path directorio = Files.createTempDirectory("almacen-l2");
+        try {
+            medirRegistro(directorio, playlists);
+            medirCache(directorio, playlists, capacidad, latenciaMs);
+            medirTope(directorio, playlists);
+        } finally {
+            AlmacenDiscoL2.cerrar();
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static ListaReproduccion crear(int i, long usos) {
+        ListaReproduccion l = new ListaReproduccion("Playlist #" + i);
+        for (int j = 0; j < 10; j++) {
+            int n = (i * 7 + j * 13) % 5_000;
+            l.addCancionConArtista("Canción " + n, "Artista " + (n % 500), "Pop", "País");
+        }
+        l.setUsos(usos);
+        return l;
+    }
+
+    private static void medirRegistro(Path directorio, int playlists) throws Exception {
+        AlmacenDiscoL2.abrir(directorio.toString());
+        AlmacenDiscoL2.vaciar();
+        ListaReproduccion[] listas = new ListaReproduccion[playlists];
+        for (int i = 0; i < playlists; i++) listas[i] = crear(i, i);
+
+        System.out.println("Registro en disco: " + playlists + " playlists de 10 canciones\n");
+        long inicio = System.nanoTime();
+        for (ListaReproduccion l : listas) AlmacenDiscoL2.guardar(l);
+        double encolarUs = (System.nanoTime() - inicio) / 1000.0 / playlists;
+        AlmacenDiscoL2.esperar();
+        double escribirUs = (System.nanoTime() - inicio) / 1000.0 / playlists;
+        // Segunda versión de la mitad: deja bytes muertos para compactar
+        for (int i = 0; i < playlists / 2; i++) AlmacenDiscoL2.guardar(listas[i]);
+        AlmacenDiscoL2.esperar();
+
+        Random random = new Random(3);
+        int lecturas = Math.min(100_000, playlists * 5);
+        for (int i = 0; i < lecturas; i++) sumidero += AlmacenDiscoL2.cargar("Playlist #" + random.nextInt(playlists)).getUsos();
+        inicio = System.nanoTime();
+        for (int i = 0; i < lecturas; i++) sumidero += AlmacenDiscoL2.cargar("Playlist #" + random.nextInt(playlists)).getUsos();
+        double leerUs = (System.nanoTime() - inicio) / 1000.0 / lecturas;
+
+        long tamano = AlmacenDiscoL2.getTamanoBytes();
+        AlmacenDiscoL2.cerrar();
+        inicio = System.nanoTime();
+        AlmacenDiscoL2.abrir(directorio.toString());
+        long reabrirMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        inicio = System.nanoTime();
+        AlmacenDiscoL2.compactar();
+        long compactarMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        System.out.printf("  guardar():   %8.1f µs por playlist (lo que espera quien desaloja)%n", encolarUs);
+        System.out.printf("  escritura:   %8.1f µs por playlist (hasta llegar al disco)%n", escribirUs);
+        System.out.printf("  lectura:     %8.1f µs por playlist (leer + decodificar)%n", leerUs);
+        System.out.printf("  reapertura:  %8d ms (%d KB de registro)%n", reabrirMs, tamano >> 10);
+        System.out.printf("  compactación:%8d ms (%d KB -> %d KB)%n%n", compactarMs, tamano >> 10,
+                AlmacenDiscoL2.getTamanoBytes() >> 10);
+        AlmacenDiscoL2.vaciar();
+    }
+
+    /**
+     * Con el tope ya alcanzado: compactar solo hasta el tope (1.0) hace que casi toda escritura
+     * vuelva a superarlo; el nivel bajo reparte la compactación entre muchas escrituras.
+     */
+    private static void medirTope(Path directorio, int playlists) throws Exception {
+        if (playlists < 8) return;
+        ListaReproduccion[] listas = new ListaReproduccion[playlists];
+        for (int i = 0; i < playlists; i++) listas[i] = crear(i, i);
+        long maximoAnterior = AlmacenDiscoL2.MaximoBytes;
+        double fraccionAnterior = AlmacenDiscoL2.FraccionTrasCompactar;
+        double[] fracciones = {1.0, 0.75, 0.5};
+        // Playlists distintas en cada medición: todas agregan bytes vivos
+        int escrituras = Math.min(ESCRITURAS_TOPE, (playlists - playlists / 2) / fracciones.length);
+        System.out.println("\nRegistro lleno: tope de la mitad de las playlists, " + escrituras + " playlists nuevas\n");
+        System.out.printf("%-22s  %14s  %14s%n", "nivel tras compactar", "µs por escritura", "compactaciones");
+        try {
+            AlmacenDiscoL2.abrir(directorio.toString());
+            AlmacenDiscoL2.vaciar();
+            for (int i = 0; i < playlists / 2; i++) AlmacenDiscoL2.guardar(listas[i]);
+            AlmacenDiscoL2.esperar();
+            AlmacenDiscoL2.MaximoBytes = AlmacenDiscoL2.getBytesVivos();
+            int siguiente = playlists / 2;
+            for (double fraccion : fracciones) {
+                AlmacenDiscoL2.FraccionTrasCompactar = fraccion;
+                long compactaciones = AlmacenDiscoL2.getCompactaciones();
+                long inicio = System.nanoTime();
+                for (int i = 0; i < escrituras; i++) AlmacenDiscoL2.guardar(listas[siguiente++]);
+                AlmacenDiscoL2.esperar();
+                double us = (System.nanoTime() - inicio) / 1000.0 / escrituras;
+                System.out.printf("%-22s  %14.1f  %14d%n", String.format("%.0f%% del tope", fraccion * 100), us,
+                        AlmacenDiscoL2.getCompactaciones() - compactaciones);
+            }
+        } finally {
+            AlmacenDiscoL2.MaximoBytes = maximoAnterior;
+            AlmacenDiscoL2.FraccionTrasCompactar = fraccionAnterior;
+        }
+    }
+
+    private static void medirCache(Path directorio, int playlists, int capacidad, long latenciaMs) throws Exception {
+        BDSimulada bd = new BDSimulada(playlists, latenciaMs);
+        String[] peticiones = zipf(playlists);
+        System.out.println("PlaylistCache (capacidad " + capacidad + ") con BD simulada de " + latenciaMs
+                + " ms por consulta, " + PETICIONES + " peticiones Zipf\n");
+        System.out.printf("%-22s  %10s  %10s  %12s  %10s%n", "configuración", "aciertos", "desde L2", "consultas BD", "ms");
+
+        AlmacenDiscoL2.cerrar();
+        ejecutar("sin L2", bd, peticiones, nuevaCache(bd, capacidad));
+        AlmacenDiscoL2.abrir(directorio.toString());
+        AlmacenDiscoL2.vaciar();
+        PlaylistCache cache = nuevaCache(bd, capacidad);
+        ejecutar("con L2", bd, peticiones, cache);
+        // La BD se cae: la misma cache sigue respondiendo con memoria + disco local
+        bd.caida = true;
+        ejecutar("con L2, luego BD caída", bd, peticiones, cache);
+    }
+
+    private static PlaylistCache nuevaCache(BDSimulada bd, int capacidad) {
+        PlaylistCache cache = new PlaylistCache(capacidad, 0);
+        cache.setCargador(nombre -> {
+            ListaReproduccion local = AlmacenDiscoL2.cargar(nombre);
+            return local != null ? local : bd.cargar(nombre);
+        });
+        return cache;
+    }
+
+    private static void ejecutar(String nombre, BDSimulada bd, String[] peticiones, PlaylistCache cache) {
+        long aciertos = cache.getAciertos();
+        long desdeL2 = AlmacenDiscoL2.getAciertos();
+        long consultas = bd.consultas.sum();
+        long inicio = System.nanoTime();
+        int encontradas = 0;
+        for (String p : peticiones) {
+            if (cache.get(p) != null) encontradas++;
+        }
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        System.out.printf("%-22s  %9.1f%%  %10d  %12d  %10d   (%d sin respuesta)%n", nombre,
+                100.0 * (cache.getAciertos() - aciertos) / peticiones.length, AlmacenDiscoL2.getAciertos() - desdeL2,
+                bd.consultas.sum() - consultas, ms, peticiones.length - encontradas);
+    }
+
+    private static String[] zipf(int playlists) {
+        double[] acumulada = new double[playlists];
+        double total = 0;
+        for (int i = 0; i < playlists; i++) {
+            total += 1.0 / (i + 1);
+            acumulada[i] = total;
+        }
+        Random random = new Random(11);
+        String[] peticiones = new String[PETICIONES];
+        for (int i = 0; i < PETICIONES; i++) {
+            double x = random.nextDouble() * total;
+            int lo = 0, hi = playlists - 1;
+            while (lo < hi) {
+                int medio = (lo + hi) >>> 1;
+                if (acumulada[medio] < x) lo = medio + 1;
+                else hi = medio;
+            }
+            peticiones[i] = "Playlist #" + lo;
+        }
+        return peticiones;
+    }
+
+    /**
+     * Tabla playlists en memoria con latencia por consulta; caida = no responde
+     */
+    private static final class BDSimulada implements CargadorPlaylist {
+        private final Map<String, byte[]> filas = new HashMap<>();
+        private final long latenciaNs;
+        final LongAdder consultas = new LongAdder();
+        volatile boolean caida;
+
+        BDSimulada(int playlists, long latenciaMs) throws Exception {
+            this.latenciaNs = TimeUnit.MILLISECONDS.toNanos(latenciaMs);
+            for (int i = 0; i < playlists; i++) {
+                ListaReproduccion l = crear(i, 1_000_000L / (i + 1));
+                filas.put(l.getNombreLista(), l.toBytes());
+            }
+        }
+
+        @Override
+        public ListaReproduccion cargar(String nombre) {
+            if (caida) return null;
+            consultas.increment();
+            long fin = System.nanoTime() + latenciaNs;
+            while (System.nanoTime() < fin) LockSupport.parkNanos(fin - System.nanoTime());
+            byte[] datos = filas.get(nombre);
+            try {
+                return datos == null ? null : ListaReproduccion.fromBytes(datos);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package flyweight;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import implementacion.AlmacenAudio;
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+
+/**
+ * Compara un catálogo de audio en heap contra uno en archivo mapeado:
+ * - tiempo de carga del catálogo
+ * - heap ocupado tras un GC completo
+ * - pausas de GC durante una carga de trabajo que genera basura (como crear listas)
+ * - duración de un GC completo explícito (crece con el heap vivo)
+ * - lecturas aleatorias por segundo
+ *
+ * Cada canción recibe contenido distinto para que la deduplicación no oculte el tamaño real.
+ *
+ * Uso: java -Xmx2g flyweight.BenchmarkAudioMapeado [canciones] [bytesPorCancion] [heap|mapeado|ambos]
+ * (100000 canciones x 4096 bytes por defecto = ~400 MB de audio)
+ */
+public class BenchmarkAudioMapeado {
+
+    private static long sumidero;
+
+    public static void main(String[] args) throws IOException {
+        int canciones = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int bytesPorCancion = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        String modo = args.length > 2 ? args[2] : "ambos";
+
+        System.out.println("Benchmark de audio: heap vs archivo mapeado");
+        System.out.println("Canciones: " + canciones + ", bytes por canción: " + bytesPorCancion
+                + ", heap máximo: " + (Runtime.getRuntime().maxMemory() >> 20) + " MB\n");
+
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        if (!modo.equals("mapeado")) {
+            AlmacenAudio.usarHeap();
+            ejecutar("HEAP", canciones, bytesPorCancion);
+            AlmacenAudio.usarHeap();
+        }
+        if (!modo.equals("heap")) {
+            Path directorio = Files.createTempDirectory("audio-mapeado");
+            try {
+                AlmacenAudio.usarArchivoMapeado(directorio.toString());
+                ejecutar("MAPEADO", canciones, bytesPorCancion);
+                AlmacenAudio.cerrar();
+            } finally {
+                borrar(directorio);
+            }
+        }
+    }
+
+    private static void ejecutar(String nombre, int canciones, int bytesPorCancion) {
+        FabricaCanciones.clearPool();
+        FabricaArtistas.clearPool();
+        gcCompleto();
+
+        List<Cancion> catalogo = new ArrayList<>(canciones);
+        Random random = new Random(42);
+        byte[] contenido = new byte[bytesPorCancion];
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < canciones; i++) {
+            Cancion c = FabricaCanciones.crearCancion("Canción " + i, "Artista " + (i % 1000), "Pop", "País");
+            random.nextBytes(contenido);
+            c.setDatosCancion(contenido.clone());
+            catalogo.add(c);
+        }
+        long cargaMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        long heapVivo = gcCompleto();
+
+        // Carga de trabajo con basura de vida corta: objetos y arreglos temporales
+        long[] gcAntes = tiemposGc();
+        inicio = System.nanoTime();
+        for (int i = 0; i < 2_000_000; i++) {
+            byte[] temporal = new byte[256];
+            temporal[i & 255] = (byte) i;
+            sumidero += temporal[0] + new StringBuilder("Playlist #").append(i).length();
+        }
+        long trabajoMs = (System.nanoTime() - inicio) / 1_000_000;
+        long[] gcDespues = tiemposGc();
+
+        // Duración de un GC completo con el catálogo vivo
+        inicio = System.nanoTime();
+        System.gc();
+        long gcCompletoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Lecturas aleatorias del audio
+        int lecturas = Math.min(1_000_000, canciones * 10);
+        inicio = System.nanoTime();
+        for (int i = 0; i < lecturas; i++) {
+            ByteBuffer audio = catalogo.get(random.nextInt(canciones)).getDatosCancion();
+            sumidero += audio.get(audio.limit() - 1);
+        }
+        double lecturasPorSeg = lecturas / ((System.nanoTime() - inicio) / 1_000_000_000.0);
+
+        System.out.println("=== " + nombre + " ===");
+        System.out.println("  Carga del catálogo: " + cargaMs + " ms");
+        System.out.println("  Heap vivo tras GC: " + (heapVivo >> 20) + " MB");
+        System.out.println("  Audio en heap: " + (AlmacenAudio.getBytesRetenidos() >> 20) + " MB, fuera del heap: "
+                + (AlmacenAudio.getBytesFueraDeHeap() >> 20) + " MB");
+        System.out.println("  Carga de trabajo: " + trabajoMs + " ms, GCs: " + (gcDespues[0] - gcAntes[0])
+                + ", tiempo en GC: " + (gcDespues[1] - gcAntes[1]) + " ms");
+        System.out.println("  GC completo explícito: " + gcCompletoMs + " ms");
+        System.out.printf("  Lecturas aleatorias: %.0f/s%n%n", lecturasPorSeg);
+
+        catalogo.clear();
+        FabricaCanciones.clearPool();
+    }
+
+    private static long[] tiemposGc() {
+        long cuenta = 0, tiempo = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            cuenta += Math.max(0, gc.getCollectionCount());
+            tiempo += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { cuenta, tiempo };
+    }
+
+    private static long gcCompleto() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void borrar(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
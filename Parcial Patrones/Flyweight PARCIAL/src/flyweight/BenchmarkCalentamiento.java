@@ -0,0 +1,169 @@
+package flyweight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import implementacion.CalentadorCache;
+import implementacion.CargadorPlaylist;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+
+/**
+ * Arranque en frío contra arranque precargado (CalentadorCache): tiempo hasta quedar listo
+ * y tasa de aciertos de las primeras 10k peticiones.
+ *
+ * La BD se simula en memoria: cada consulta espera latenciaMs (ida y vuelta) y deserializa
+ * los blobs guardados con toBytes(). Las peticiones siguen una Zipf (s = 1) sobre el
+ * ranking de usos, y los fallos cargan de la misma BD simulada (read-through).
+ *
+ * Uso: java flyweight.BenchmarkCalentamiento [playlists] [capacidad] [latenciaMs]
+ */
+public class BenchmarkCalentamiento {
+
+    private static final int PETICIONES = 10_000;
+    private static final int[] HILOS = {1, 2, 4, 8};
+
+    public static void main(String[] args) {
+        int playlists = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int capacidad = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        long latenciaMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        BDSimulada bd = new BDSimulada(playlists, latenciaMs);
+        String[] peticiones = generarPeticiones(playlists);
+
+        System.out.println("Precarga de PlaylistCache: " + playlists + " playlists, capacidad " + capacidad
+                + ", latencia simulada " + latenciaMs + " ms por consulta\n");
+        System.out.printf("%-26s  %10s  %9s  %13s  %14s%n",
+                "arranque", "listo ms", "cargadas", "aciertos 10k", "ms 10k pedidos");
+
+        ejecutar("frío", bd, peticiones, capacidad, 0, 0);
+        for (int hilos : HILOS) ejecutar("precargado, " + hilos + " hilo(s)", bd, peticiones, capacidad, hilos, 60_000);
+        ejecutar("precargado, presupuesto 20ms", bd, peticiones, capacidad, 4, 20);
+    }
+
+    private static void ejecutar(String nombre, BDSimulada bd, String[] peticiones, int capacidad,
+                                 int hilos, long presupuestoMs) {
+        PlaylistCache cache = new PlaylistCache(capacidad, 0);
+        cache.setCargador(bd);
+        long listoMs = 0;
+        long cargadas = 0;
+        if (hilos > 0) {
+            int hilosOriginal = CalentadorCache.Hilos;
+            CalentadorCache.Hilos = hilos;
+            try {
+                CalentadorCache calentador = new CalentadorCache(cache, bd);
+                calentador.calentar(capacidad, presupuestoMs);
+                listoMs = calentador.getDuracionMs();
+                cargadas = calentador.getCargadas();
+            } finally {
+                CalentadorCache.Hilos = hilosOriginal;
+            }
+        }
+        long aciertosAntes = cache.getAciertos();
+        long inicio = System.nanoTime();
+        for (String p : peticiones) cache.get(p);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        double tasa = 100.0 * (cache.getAciertos() - aciertosAntes) / peticiones.length;
+        System.out.printf("%-26s  %10d  %9d  %12.1f%%  %14d%n", nombre, listoMs, cargadas, tasa, ms);
+    }
+
+    private static String[] generarPeticiones(int playlists) {
+        double[] acumulada = new double[playlists];
+        double total = 0;
+        for (int i = 0; i < playlists; i++) {
+            total += 1.0 / (i + 1);
+            acumulada[i] = total;
+        }
+        Random random = new Random(7);
+        String[] peticiones = new String[PETICIONES];
+        for (int i = 0; i < PETICIONES; i++) {
+            double x = random.nextDouble() * total;
+            int lo = 0, hi = playlists - 1;
+            while (lo < hi) {
+                int medio = (lo + hi) >>> 1;
+                if (acumulada[medio] < x) lo = medio + 1;
+                else hi = medio;
+            }
+            peticiones[i] = nombre(lo);
+        }
+        return peticiones;
+    }
+
+    private static String nombre(int ranking) {
+        return "Playlist #" + ranking;
+    }
+
+    /**
+     * Tabla playlists en memoria con latencia por consulta
+     */
+    private static final class BDSimulada implements CalentadorCache.Fuente, CargadorPlaylist {
+        private final Map<String, byte[]> filas = new HashMap<>();
+        private final List<String> porUsos = new ArrayList<>();
+        private final long latenciaNs;
+
+        BDSimulada(int playlists, long latenciaMs) {
+            this.latenciaNs = TimeUnit.MILLISECONDS.toNanos(latenciaMs);
+            try {
+                for (int i = 0; i < playlists; i++) {
+                    ListaReproduccion l = new ListaReproduccion(nombre(i));
+                    for (int j = 0; j < 10; j++) {
+                        int n = (i * 7 + j * 13) % 5_000;
+                        l.addCancionConArtista("Canción " + n, "Artista " + (n % 500), "Pop", "País");
+                    }
+                    l.setUsos(1_000_000L / (i + 1));
+                    filas.put(l.getNombreLista(), l.toBytes());
+                    porUsos.add(l.getNombreLista());
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void esperar() {
+            long fin = System.nanoTime() + latenciaNs;
+            while (System.nanoTime() < fin) LockSupport.parkNanos(fin - System.nanoTime());
+        }
+
+        private ListaReproduccion leer(String nombre) {
+            byte[] datos = filas.get(nombre);
+            if (datos == null) return null;
+            try {
+                return ListaReproduccion.fromBytes(datos);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public List<String> masUsadas(int limite) {
+            esperar();
+            return new ArrayList<>(porUsos.subList(0, Math.min(limite, porUsos.size())));
+        }
+
+        @Override
+        public List<ListaReproduccion> cargar(List<String> nombres) {
+            esperar();
+            List<ListaReproduccion> resultado = new ArrayList<>(nombres.size());
+            for (String n : nombres) {
+                ListaReproduccion l = leer(n);
+                if (l != null) resultado.add(l);
+            }
+            return resultado;
+        }
+
+        @Override
+        public ListaReproduccion cargar(String nombre) {
+            esperar();
+            return leer(nombre);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package flyweight;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+
+/**
+ * Mide los bytes reservados por búsqueda en el pool de canciones:
+ * - ANTES: clave (nombreCancion + "-" + nombreArtista).toLowerCase() en un mapa de Strings
+ * - DESPUÉS: FabricaCanciones.crearCancion, que compara la clave compuesta en el lugar
+ *
+ * Cada lote hace numeroBusquedas aciertos sobre el catálogo (por defecto 20000, como
+ * 2000 listas de 10 canciones). Los bytes salen del contador por hilo de la JVM
+ * (com.sun.management.ThreadMXBean#getThreadAllocatedBytes).
+ *
+ * Uso: java flyweight.BenchmarkClaveCancion [numeroBusquedas] [lotes]
+ */
+public class BenchmarkClaveCancion {
+
+    private static final String[][] CATALOGO = {
+        {"Despacito", "Luis Fonsi", "Reggaeton", "Puerto Rico"},
+        {"Shape of You", "Ed Sheeran", "Pop", "Reino Unido"},
+        {"Blinding Lights", "The Weeknd", "Synthpop", "Canadá"},
+        {"Dance Monkey", "Tones and I", "Pop", "Australia"},
+        {"Someone You Loved", "Lewis Capaldi", "Pop", "Reino Unido"},
+        {"Señorita", "Shawn Mendes", "Pop", "Canadá"},
+        {"Bad Guy", "Billie Eilish", "Electropop", "Estados Unidos"},
+        {"Roses", "SAINt JHN", "Hip Hop", "Estados Unidos"},
+        {"Memories", "Maroon 5", "Pop Rock", "Estados Unidos"},
+        {"Before You Go", "Lewis Capaldi", "Pop", "Reino Unido"}
+    };
+
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Evita que el JIT elimine las búsquedas como código muerto
+    private static long sumidero;
+
+    public static void main(String[] args) {
+        int numeroBusquedas = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int lotes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+        FabricaCanciones.clearPool();
+        FabricaArtistas.clearPool();
+
+        // Cadenas distintas (otra instancia y otras mayúsculas) en cada posición, como las que
+        // llegarían de la interfaz o de la BD: la igualdad no puede resolverse por identidad
+        String[][] peticiones = new String[numeroBusquedas][];
+        Random random = new Random(12345);
+        for (int i = 0; i < numeroBusquedas; i++) {
+            String[] d = CATALOGO[random.nextInt(CATALOGO.length)];
+            boolean mayusculas = random.nextBoolean();
+            peticiones[i] = new String[] {
+                mayusculas ? d[0].toUpperCase() : new String(d[0]),
+                mayusculas ? d[1].toUpperCase() : new String(d[1]),
+                d[2], d[3]
+            };
+        }
+
+        // Pool "antes" equivalente al de la versión con clave String
+        Map<String, Cancion> poolAnterior = new HashMap<>();
+        for (String[] d : CATALOGO) {
+            Cancion c = FabricaCanciones.crearCancion(d[0], d[1], d[2], d[3]);
+            poolAnterior.put((d[0] + "-" + d[1]).toLowerCase(), c);
+        }
+
+        System.out.println("Benchmark de búsqueda en el pool de canciones");
+        System.out.println("Búsquedas por lote: " + numeroBusquedas + ", lotes medidos: " + lotes + "\n");
+
+        // Calentamiento: que ambos caminos estén compilados antes de medir
+        for (int i = 0; i < 5; i++) {
+            loteAnterior(poolAnterior, peticiones);
+            loteActual(peticiones);
+        }
+
+        long bytesAntes = 0, nanosAntes = 0, bytesDespues = 0, nanosDespues = 0;
+        for (int l = 0; l < lotes; l++) {
+            long[] antes = loteAnterior(poolAnterior, peticiones);
+            long[] despues = loteActual(peticiones);
+            bytesAntes += antes[0];
+            nanosAntes += antes[1];
+            bytesDespues += despues[0];
+            nanosDespues += despues[1];
+        }
+
+        double total = (double) numeroBusquedas * lotes;
+        System.out.printf("ANTES   (String.toLowerCase): %8.2f bytes/búsqueda  %8.2f ns/búsqueda%n",
+                bytesAntes / total, nanosAntes / total);
+        System.out.printf("DESPUÉS (clave en el lugar):  %8.2f bytes/búsqueda  %8.2f ns/búsqueda%n",
+                bytesDespues / total, nanosDespues / total);
+        System.out.println("\nPool canciones: " + FabricaCanciones.getEstadisticas());
+        System.out.println("(sumidero=" + sumidero + ")");
+    }
+
+    private static long[] loteAnterior(Map<String, Cancion> pool, String[][] peticiones) {
+        long hilo = Thread.currentThread().getId();
+        long bytesInicio = HILOS.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        long acumulado = 0;
+        for (String[] p : peticiones) {
+            Cancion c = pool.get((p[0] + "-" + p[1]).toLowerCase());
+            acumulado += c.getId();
+        }
+        long nanos = System.nanoTime() - inicio;
+        long bytes = HILOS.getThreadAllocatedBytes(hilo) - bytesInicio;
+        sumidero += acumulado;
+        return new long[] { bytes, nanos };
+    }
+
+    private static long[] loteActual(String[][] peticiones) {
+        long hilo = Thread.currentThread().getId();
+        long bytesInicio = HILOS.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        long acumulado = 0;
+        for (String[] p : peticiones) {
+            Cancion c = FabricaCanciones.crearCancion(p[0], p[1], p[2], p[3]);
+            acumulado += c.getId();
+        }
+        long nanos = System.nanoTime() - inicio;
+        long bytes = HILOS.getThreadAllocatedBytes(hilo) - bytesInicio;
+        sumidero += acumulado;
+        return new long[] { bytes, nanos };
+    }
+}
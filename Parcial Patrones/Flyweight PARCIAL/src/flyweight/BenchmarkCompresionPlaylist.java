@@ -0,0 +1,131 @@
+package flyweight;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import implementacion.CompresionPlaylist;
+import implementacion.DBManager;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.FormatoPlaylist;
+import implementacion.ListaReproduccion;
+
+/**
+ * Compresión de blobs de playlist (CompresionPlaylist): tasa de compresión y µs de CPU por
+ * playlist al comprimir y descomprimir, para los tres formatos que pueden llegar a la BD:
+ * - anterior: ObjectOutputStream (filas viejas)
+ * - compacto: FormatoPlaylist completo (con nombres de canciones y artistas)
+ * - ids: solo ids de canción (con el catálogo normalizado; ya son muy chicos)
+ *
+ * Si se pasa una URL (o hay SUPABASE_DATABASE_URL / supabase.properties) mide además
+ * playlists/s de savePlaylists sin compresión y con deflate. Las filas de prueba se llaman
+ * "bench-compresion-*" y se sobrescriben en cada corrida.
+ *
+ * Uso: java flyweight.BenchmarkCompresionPlaylist [repeticiones] [url]
+ */
+public class BenchmarkCompresionPlaylist {
+
+    private static final int[] CANCIONES = {10, 100, 1_000};
+    private static final String[] ALGORITMOS = {CompresionPlaylist.DEFLATE, CompresionPlaylist.GZIP};
+    private static long sumidero;
+
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+        CompresionPlaylist.TamanoMinimo = 0;
+
+        System.out.println("Compresión de blobs de playlist\n");
+        System.out.printf("%10s  %-9s  %-8s  %9s  %9s  %8s  %12s  %12s%n",
+                "canciones", "formato", "algor.", "bytes", "compr.", "tasa", "µs comprimir", "µs descompr.");
+
+        for (int canciones : CANCIONES) {
+            ListaReproduccion lista = crear("Playlist de " + canciones + " canciones", canciones, 0);
+            int reps = Math.max(200, repeticiones * 10 / canciones);
+            byte[][] formatos = {
+                    FormatoPlaylist.escribirLegado(lista), lista.toBytes(), FormatoPlaylist.escribirIds(lista) };
+            String[] nombres = {"anterior", "compacto", "ids"};
+            for (int f = 0; f < formatos.length; f++) {
+                for (String algoritmo : ALGORITMOS) {
+                    byte[] plano = formatos[f];
+                    byte[] comprimido = CompresionPlaylist.comprimir(plano, algoritmo);
+                    if (!Arrays.equals(plano, CompresionPlaylist.descomprimir(comprimido))) {
+                        throw new IOException("La descompresión no devuelve los bytes originales");
+                    }
+                    medir(plano, algoritmo, reps); // calentamiento
+                    double[] t = medir(plano, algoritmo, reps);
+                    System.out.printf("%10s  %-9s  %-8s  %9d  %9d  %7.2fx  %12.1f  %12.1f%n",
+                            f == 0 && algoritmo.equals(ALGORITMOS[0]) ? String.valueOf(canciones) : "",
+                            nombres[f], algoritmo, plano.length, comprimido.length,
+                            plano.length / (double) comprimido.length, t[0] / 1000, t[1] / 1000);
+                }
+            }
+        }
+        System.out.println("\n(tasa 1.00x = no compensa: se guarda sin comprimir)");
+
+        if (args.length > 1) DBManager.initWithUrl(args[1]);
+        else DBManager.initFromEnv();
+        if (!DBManager.isEnabled()) {
+            System.out.println("\nSin conexión a la BD: no se mide el guardado.");
+            return;
+        }
+        medirGuardado(2_000);
+        DBManager.close();
+    }
+
+    private static void medirGuardado(int cantidad) {
+        List<ListaReproduccion> listas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) listas.add(crear("bench-compresion-" + i, 100, i));
+
+        System.out.println("\nGuardado de " + cantidad + " playlists de 100 canciones\n");
+        System.out.printf("%-10s  %-9s  %12s  %10s%n", "catálogo", "algor.", "playlists/s", "ms");
+        boolean catalogoOriginal = DBManager.CatalogoNormalizado;
+        String algoritmoOriginal = CompresionPlaylist.Algoritmo;
+        CompresionPlaylist.TamanoMinimo = Integer.getInteger("flyweight.compresion.minimo", 256);
+        try {
+            for (boolean catalogo : new boolean[] {false, true}) {
+                DBManager.CatalogoNormalizado = catalogo;
+                DBManager.savePlaylists(listas); // calentamiento (y alta del catálogo)
+                for (String algoritmo : new String[] {CompresionPlaylist.NINGUNO, CompresionPlaylist.DEFLATE}) {
+                    CompresionPlaylist.Algoritmo = algoritmo;
+                    long inicio = System.nanoTime();
+                    DBManager.savePlaylists(listas);
+                    long ns = System.nanoTime() - inicio;
+                    System.out.printf("%-10s  %-9s  %12.0f  %10d%n", catalogo ? "ids" : "completo", algoritmo,
+                            cantidad / (ns / 1_000_000_000.0), ns / 1_000_000);
+                }
+            }
+        } finally {
+            DBManager.CatalogoNormalizado = catalogoOriginal;
+            CompresionPlaylist.Algoritmo = algoritmoOriginal;
+        }
+    }
+
+    private static ListaReproduccion crear(String nombre, int canciones, int desplazamiento) {
+        ListaReproduccion lista = new ListaReproduccion(nombre);
+        for (int i = 0; i < canciones; i++) {
+            int n = (desplazamiento + i) % 5_000;
+            lista.addCancionConArtista("Canción " + n, "Artista " + (n / 10), "Pop", "Colombia");
+        }
+        lista.setUsos(12);
+        return lista;
+    }
+
+    private static double[] medir(byte[] plano, String algoritmo, int reps) throws IOException {
+        byte[] comprimido = null;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            comprimido = CompresionPlaylist.comprimir(plano, algoritmo);
+            sumidero += comprimido.length;
+        }
+        double comprimir = (System.nanoTime() - inicio) / (double) reps;
+        inicio = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            sumidero += CompresionPlaylist.descomprimir(comprimido).length;
+        }
+        double descomprimir = (System.nanoTime() - inicio) / (double) reps;
+        return new double[] { comprimir, descomprimir };
+    }
+}
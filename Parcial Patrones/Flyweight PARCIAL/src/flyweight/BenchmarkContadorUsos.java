@@ -0,0 +1,152 @@
+package flyweight;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import implementacion.ContadorUsos;
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+import implementacion.PoliticaLFU;
+
+/**
+ * Contadores de usos de ListaReproduccion:
+ * 1) Incrementos por segundo con 1 a 64 hilos sobre la MISMA lista (contención máxima):
+ *    - long++: el incrementarUso() anterior (pierde incrementos)
+ *    - AtomicLong: un solo CAS compartido
+ *    - ContadorUsos: incrementarUso() actual (LongAdder + puntuación con decaimiento)
+ * 2) Decaimiento: con un reloj simulado, una lista muy usada hace 30 días pierde contra una
+ *    usada hoy, en la puntuación y en el desalojo LFU de PlaylistCache.
+ *
+ * Uso: java flyweight.BenchmarkContadorUsos [msPorMedicion]
+ */
+public class BenchmarkContadorUsos {
+
+    private static final int[] HILOS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long DIA_MS = 24L * 60 * 60 * 1000;
+
+    private interface Contador {
+        void incrementar();
+        long valor();
+    }
+
+    /**
+     * Réplica del contador anterior: usos++ sobre un long sin sincronizar
+     */
+    private static final class ContadorPlano implements Contador {
+        private long usos;
+
+        @Override
+        public void incrementar() {
+            usos++;
+        }
+
+        @Override
+        public long valor() {
+            return usos;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int ms = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        System.out.println("Incrementos sobre una misma lista (procesadores: "
+                + Runtime.getRuntime().availableProcessors() + ", " + ms + " ms por medición)\n");
+        System.out.printf("%6s  %16s  %16s  %16s  %14s%n", "hilos", "long++ Mops/s", "AtomicLong Mops/s",
+                "ContadorUsos Mops/s", "long++ perdidos");
+        for (int hilos : HILOS) {
+            ContadorPlano plano = new ContadorPlano();
+            long[] r1 = medir(hilos, ms, plano);
+            AtomicLong atomico = new AtomicLong();
+            long[] r2 = medir(hilos, ms, new Contador() {
+                @Override
+                public void incrementar() {
+                    atomico.incrementAndGet();
+                }
+
+                @Override
+                public long valor() {
+                    return atomico.get();
+                }
+            });
+            ListaReproduccion lista = new ListaReproduccion("Concurrida");
+            long[] r3 = medir(hilos, ms, new Contador() {
+                @Override
+                public void incrementar() {
+                    lista.incrementarUso();
+                }
+
+                @Override
+                public long valor() {
+                    return lista.getUsos();
+                }
+            });
+            if (r3[0] != r3[1]) throw new IllegalStateException("ContadorUsos perdió incrementos: " + r3[0] + " vs " + r3[1]);
+            System.out.printf("%6d  %16.1f  %16.1f  %16.1f  %14d%n", hilos, r1[0] / 1e3 / ms, r2[0] / 1e3 / ms,
+                    r3[0] / 1e3 / ms, r1[0] - r1[1]);
+        }
+        decaimiento();
+    }
+
+    /**
+     * @return {incrementos hechos, valor final del contador}
+     */
+    private static long[] medir(int hilos, int ms, Contador contador) throws InterruptedException {
+        LongAdder hechos = new LongAdder();
+        CountDownLatch inicio = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(hilos);
+        long limite = System.nanoTime() + ms * 1_000_000L;
+        for (int h = 0; h < hilos; h++) {
+            Thread t = new Thread(() -> {
+                try {
+                    inicio.await();
+                    long n = 0;
+                    while ((n & 0xFF) != 0 || System.nanoTime() < limite) {
+                        contador.incrementar();
+                        n++;
+                    }
+                    hechos.add(n);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    fin.countDown();
+                }
+            });
+            t.start();
+        }
+        inicio.countDown();
+        fin.await();
+        return new long[] {hechos.sum(), contador.valor()};
+    }
+
+    private static void decaimiento() {
+        long[] ahora = {System.currentTimeMillis()};
+        ContadorUsos.Reloj = () -> ahora[0];
+        try {
+            System.out.println("\nDecaimiento (vida media " + ContadorUsos.VidaMediaMs / 3_600_000.0 + " h, reloj simulado)");
+            PlaylistCache cache = new PlaylistCache(2, 0, new PoliticaLFU());
+            ListaReproduccion mesPasado = new ListaReproduccion("Éxito del mes pasado");
+            for (int i = 0; i < 1_000; i++) mesPasado.incrementarUso();
+            cache.add(mesPasado);
+
+            ahora[0] += 30 * DIA_MS;
+            ListaReproduccion hoy = new ListaReproduccion("Tendencia de hoy");
+            for (int i = 0; i < 50; i++) hoy.incrementarUso();
+            cache.add(hoy);
+            System.out.printf("  %-22s usos=%5d  puntuación=%9.4f%n", mesPasado.getNombreLista(), mesPasado.getUsos(),
+                    mesPasado.getPuntuacion());
+            System.out.printf("  %-22s usos=%5d  puntuación=%9.4f%n", hoy.getNombreLista(), hoy.getUsos(), hoy.getPuntuacion());
+
+            ListaReproduccion nueva = new ListaReproduccion("Nueva de hoy");
+            for (int i = 0; i < 10; i++) nueva.incrementarUso();
+            cache.add(nueva);
+            System.out.printf("  %-22s usos=%5d  puntuación=%9.4f%n", nueva.getNombreLista(), nueva.getUsos(), nueva.getPuntuacion());
+            String desalojada = "ninguna";
+            for (ListaReproduccion l : new ListaReproduccion[] {mesPasado, hoy, nueva}) {
+                if (cache.get(l.getNombreLista()) == null) desalojada = l.getNombreLista();
+            }
+            System.out.println("  Al agregar la tercera lista (capacidad 2) LFU desaloja: " + desalojada);
+        } finally {
+            ContadorUsos.Reloj = System::currentTimeMillis;
+        }
+    }
+}
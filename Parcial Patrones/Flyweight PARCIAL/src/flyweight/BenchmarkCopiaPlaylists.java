@@ -0,0 +1,126 @@
+package flyweight;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import implementacion.CopiaPlaylists;
+import implementacion.DBManager;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+
+/**
+ * Playlists por segundo al exportar e importar la tabla playlists:
+ * - fila a fila: loadPlaylist por nombre / savePlaylist por fila (el camino anterior)
+ * - COPY binario con CopiaPlaylists (export a archivos, import con upsert). COPY también
+ *   copia artistas y canciones: la tasa cuenta solo las playlists y las filas del catálogo
+ *   se muestran aparte.
+ *
+ * Requiere una URL JDBC explícita (PostgreSQL local recomendado); nunca usa la de
+ * SUPABASE_DATABASE_URL ni supabase.properties. Trabaja en el esquema ESQUEMA, que crea al
+ * empezar y borra al terminar, así que las tablas del esquema por defecto no se tocan.
+ *
+ * Uso: java -cp bin;lib/postgres/postgresql-42.5.4.jar flyweight.BenchmarkCopiaPlaylists jdbc:postgresql://... [playlists]
+ */
+public class BenchmarkCopiaPlaylists {
+    // Esquema de trabajo (se borra con todo su contenido al terminar)
+    private static final String ESQUEMA = "bench_copia_playlists";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !args[0].startsWith("jdbc:postgresql://")) {
+            System.out.println("Uso: BenchmarkCopiaPlaylists jdbc:postgresql://host:puerto/base?user=...&password=... [playlists]");
+            System.out.println("Se requiere una URL JDBC explícita: el benchmark no usa la BD configurada por defecto.");
+            return;
+        }
+        String url = args[0];
+        ejecutarEnEsquema(url, "CREATE SCHEMA IF NOT EXISTS " + ESQUEMA);
+        try {
+            medir(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + ESQUEMA,
+                    args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+        } finally {
+            DBManager.close();
+            ejecutarEnEsquema(url, "DROP SCHEMA IF EXISTS " + ESQUEMA + " CASCADE");
+        }
+    }
+
+    private static void ejecutarEnEsquema(String url, String sql) throws SQLException {
+        try (Connection c = DriverManager.getConnection(url); Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static void medir(String url, int cantidad) throws Exception {
+        DBManager.initWithUrl(url);
+        if (!DBManager.isEnabled()) {
+            System.out.println("Sin conexión a la BD: no se puede medir.");
+            return;
+        }
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        List<ListaReproduccion> listas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ListaReproduccion l = new ListaReproduccion("bench-copia-" + i);
+            for (int j = 0; j < 10; j++) {
+                int n = (i * 10 + j) % 5_000;
+                l.addCancionConArtista("Canción " + n, "Artista " + (n % 500), "Pop", "País");
+            }
+            l.setUsos(i % 20);
+            listas.add(l);
+        }
+        DBManager.clearPlaylistsTable();
+        DBManager.savePlaylists(listas);
+
+        System.out.println("Exportación / importación de " + cantidad + " playlists\n");
+        System.out.printf("%-28s  %12s  %10s  %14s%n", "modo", "playlists/s", "ms", "filas catálogo");
+
+        // Fila a fila imprime una línea por fila: se mide con menos filas para no medir la consola
+        int individuales = Math.min(cantidad, 2_000);
+        long inicio = System.nanoTime();
+        for (ListaReproduccion l : listas.subList(0, individuales)) DBManager.loadPlaylist(l.getNombreLista());
+        imprimir("export fila a fila (" + individuales + ")", individuales, System.nanoTime() - inicio);
+
+        Path directorio = Files.createTempDirectory("copia-playlists");
+        try {
+            inicio = System.nanoTime();
+            long exportadas = CopiaPlaylists.exportar(directorio);
+            imprimir("export COPY", cantidad, System.nanoTime() - inicio, exportadas - cantidad);
+
+            DBManager.clearPlaylistsTable();
+            inicio = System.nanoTime();
+            for (ListaReproduccion l : listas.subList(0, individuales)) {
+                DBManager.savePlaylist(l.getNombreLista(), l.toBytes(), l.getUsos());
+            }
+            imprimir("import fila a fila (" + individuales + ")", individuales, System.nanoTime() - inicio);
+
+            DBManager.clearPlaylistsTable();
+            inicio = System.nanoTime();
+            long importadas = CopiaPlaylists.importar(directorio);
+            imprimir("import COPY", cantidad, System.nanoTime() - inicio, importadas - cantidad);
+        } finally {
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void imprimir(String modo, long playlists, long ns) {
+        imprimir(modo, playlists, ns, 0);
+    }
+
+    /**
+     * @param filasCatalogo filas de artistas y canciones copiadas además de las playlists
+     */
+    private static void imprimir(String modo, long playlists, long ns, long filasCatalogo) {
+        System.out.printf("%-28s  %12.0f  %10d  %14d%n", modo, playlists / (ns / 1_000_000_000.0), ns / 1_000_000,
+                filasCatalogo);
+    }
+}
@@ -0,0 +1,231 @@
+package flyweight;
+
+import java.util.Random;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+import implementacion.PoliticaLFU;
+
+/**
+ * Microbenchmarks del subsistema Flyweight con ArnesBenchmark (forks, calentamiento,
+ * ops/s, ns/op y B/op). No usan la BD: PlaylistCache tiene umbral de persistencia 0 y
+ * DBManager no se inicializa.
+ *
+ * - fabricaCanciones.crearCancion.acierto: búsqueda de una canción que ya está en el pool
+ *   (cadenas de otra instancia y otras mayúsculas, como las que llegan de la interfaz)
+ * - fabricaCanciones.crearCancion.fallo: alta de una canción nueva de un artista existente;
+ *   el pool se vacía antes de cada iteración y al agotar NOMBRES_FALLO
+ * - fabricaArtistas.obtenerArtista: búsqueda de un artista que ya está en el pool
+ * - playlistCache.getAdd: get de una lista con reproducción y, si no está, add con
+ *   desalojo (LFU, capacidad CAPACIDAD_CACHE, universo del doble)
+ * - listaReproduccion.toBytes / fromBytes: una playlist de CANCIONES_PLAYLIST canciones
+ *
+ * Uso: java flyweight.BenchmarkFlyweight [filtro...] [-wi 5] [-i 5] [-ms 1000] [-f 1]
+ */
+public class BenchmarkFlyweight {
+
+    private static final int CANCIONES_CATALOGO = 10_000;
+    private static final int CANCIONES_POR_ARTISTA = 10;
+    private static final int PETICIONES = 1 << 14;
+    private static final int NOMBRES_FALLO = 1 << 18;
+    private static final int CAPACIDAD_CACHE = 1_000;
+    private static final int CANCIONES_PLAYLIST = 20;
+
+    public static void main(String[] args) throws Exception {
+        new ArnesBenchmark(BenchmarkFlyweight.class)
+                .agregar("fabricaCanciones.crearCancion.acierto", CrearCancionAcierto::new)
+                .agregar("fabricaCanciones.crearCancion.fallo", CrearCancionFallo::new)
+                .agregar("fabricaArtistas.obtenerArtista", ObtenerArtista::new)
+                .agregar("playlistCache.getAdd", CacheConDesalojo::new)
+                .agregar("listaReproduccion.toBytes", ToBytes::new)
+                .agregar("listaReproduccion.fromBytes", FromBytes::new)
+                .ejecutar(args);
+    }
+
+    private static String nombreCancion(int i) {
+        return "Canción " + i;
+    }
+
+    private static String nombreArtista(int i) {
+        return "Artista " + (i / CANCIONES_POR_ARTISTA);
+    }
+
+    /**
+     * Pools con flyweight y el catálogo de CANCIONES_CATALOGO canciones ya creado
+     */
+    private static void prepararCatalogo() {
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+        FabricaCanciones.clearPool();
+        FabricaArtistas.clearPool();
+        for (int i = 0; i < CANCIONES_CATALOGO; i++) {
+            FabricaCanciones.crearCancion(nombreCancion(i), nombreArtista(i), "Pop", "Colombia");
+        }
+    }
+
+    private static final class CrearCancionAcierto implements ArnesBenchmark.Caso {
+        private final String[][] peticiones = new String[PETICIONES][];
+        private int indice;
+
+        CrearCancionAcierto() {
+            prepararCatalogo();
+            Random random = new Random(12345);
+            for (int i = 0; i < PETICIONES; i++) {
+                int c = random.nextInt(CANCIONES_CATALOGO);
+                boolean mayusculas = random.nextBoolean();
+                peticiones[i] = new String[] {
+                    mayusculas ? nombreCancion(c).toUpperCase() : new String(nombreCancion(c)),
+                    mayusculas ? nombreArtista(c).toUpperCase() : new String(nombreArtista(c))
+                };
+            }
+        }
+
+        @Override
+        public long operar(int operaciones) {
+            long acumulado = 0;
+            int i = indice;
+            for (int n = 0; n < operaciones; n++) {
+                String[] p = peticiones[i];
+                i = (i + 1) & (PETICIONES - 1);
+                Cancion c = FabricaCanciones.crearCancion(p[0], p[1], "Pop", "Colombia");
+                acumulado += c.getId();
+            }
+            indice = i;
+            return acumulado;
+        }
+    }
+
+    private static final class CrearCancionFallo implements ArnesBenchmark.Caso {
+        private final String[] nombres = new String[NOMBRES_FALLO];
+        private final String[] artistas = new String[NOMBRES_FALLO];
+        private int indice;
+
+        CrearCancionFallo() {
+            prepararCatalogo();
+            for (int i = 0; i < NOMBRES_FALLO; i++) {
+                nombres[i] = "Nueva canción " + i;
+                artistas[i] = nombreArtista(i % CANCIONES_CATALOGO);
+            }
+        }
+
+        @Override
+        public void preparar() {
+            FabricaCanciones.clearPool();
+            indice = 0;
+        }
+
+        @Override
+        public long operar(int operaciones) {
+            long acumulado = 0;
+            for (int n = 0; n < operaciones; n++) {
+                if (indice == NOMBRES_FALLO) {
+                    // Poco frecuente: una vez cada NOMBRES_FALLO altas, dentro del tiempo medido
+                    FabricaCanciones.clearPool();
+                    indice = 0;
+                }
+                Cancion c = FabricaCanciones.crearCancion(nombres[indice], artistas[indice], "Pop", "Colombia");
+                indice++;
+                acumulado += c.getId();
+            }
+            return acumulado;
+        }
+    }
+
+    private static final class ObtenerArtista implements ArnesBenchmark.Caso {
+        private final String[] peticiones = new String[PETICIONES];
+        private int indice;
+
+        ObtenerArtista() {
+            prepararCatalogo();
+            Random random = new Random(12345);
+            for (int i = 0; i < PETICIONES; i++) {
+                peticiones[i] = new String(nombreArtista(random.nextInt(CANCIONES_CATALOGO)));
+            }
+        }
+
+        @Override
+        public long operar(int operaciones) {
+            long acumulado = 0;
+            int i = indice;
+            for (int n = 0; n < operaciones; n++) {
+                acumulado += FabricaArtistas.obtenerArtista(peticiones[i], "Pop", "Colombia").getId();
+                i = (i + 1) & (PETICIONES - 1);
+            }
+            indice = i;
+            return acumulado;
+        }
+    }
+
+    private static final class CacheConDesalojo implements ArnesBenchmark.Caso {
+        private final ListaReproduccion[] listas = new ListaReproduccion[2 * CAPACIDAD_CACHE];
+        private final int[] accesos = new int[PETICIONES];
+        private final PlaylistCache cache = new PlaylistCache(CAPACIDAD_CACHE, 0, new PoliticaLFU());
+        private int indice;
+
+        CacheConDesalojo() {
+            Random random = new Random(12345);
+            for (int i = 0; i < listas.length; i++) listas[i] = new ListaReproduccion("Playlist #" + i);
+            for (int i = 0; i < PETICIONES; i++) accesos[i] = random.nextInt(listas.length);
+            for (int i = 0; i < CAPACIDAD_CACHE; i++) cache.add(listas[i]);
+        }
+
+        @Override
+        public long operar(int operaciones) {
+            long acumulado = 0;
+            int i = indice;
+            for (int n = 0; n < operaciones; n++) {
+                ListaReproduccion pedida = listas[accesos[i]];
+                i = (i + 1) & (PETICIONES - 1);
+                ListaReproduccion lista = cache.get(pedida.getNombreLista());
+                if (lista == null) {
+                    cache.add(pedida);
+                    lista = pedida;
+                }
+                lista.incrementarUso();
+                acumulado += cache.getTamano();
+            }
+            indice = i;
+            return acumulado;
+        }
+    }
+
+    private static ListaReproduccion playlist() {
+        prepararCatalogo();
+        Random random = new Random(12345);
+        ListaReproduccion lista = new ListaReproduccion("Playlist de prueba");
+        for (int i = 0; i < CANCIONES_PLAYLIST; i++) {
+            int c = random.nextInt(CANCIONES_CATALOGO);
+            lista.addCancionConArtista(nombreCancion(c), nombreArtista(c), "Pop", "Colombia");
+        }
+        for (int i = 0; i < 7; i++) lista.incrementarUso();
+        return lista;
+    }
+
+    private static final class ToBytes implements ArnesBenchmark.Caso {
+        private final ListaReproduccion lista = playlist();
+
+        @Override
+        public long operar(int operaciones) throws Exception {
+            long acumulado = 0;
+            for (int n = 0; n < operaciones; n++) acumulado += lista.toBytes().length;
+            return acumulado;
+        }
+    }
+
+    private static final class FromBytes implements ArnesBenchmark.Caso {
+        private final byte[] datos = playlist().toBytes();
+
+        FromBytes() throws Exception {
+        }
+
+        @Override
+        public long operar(int operaciones) throws Exception {
+            long acumulado = 0;
+            for (int n = 0; n < operaciones; n++) acumulado += ListaReproduccion.fromBytes(datos).getCanciones().size();
+            return acumulado;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package flyweight;
+
+import java.io.IOException;
+
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.FormatoPlaylist;
+import implementacion.ListaReproduccion;
+
+/**
+ * Compara el formato compacto de FormatoPlaylist con el anterior (ObjectOutputStream):
+ * bytes por playlist y ns por serialización / deserialización.
+ *
+ * Las listas se arman como en el ejemplo: canciones de pocos artistas (10 por artista).
+ *
+ * Uso: java flyweight.BenchmarkFormatoPlaylist [repeticiones]
+ */
+public class BenchmarkFormatoPlaylist {
+
+    private static final int[] CANCIONES = {10, 100, 1_000};
+    private static long sumidero;
+
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        System.out.println("Formato de playlist: compacto vs anterior (ObjectOutputStream)\n");
+        System.out.printf("%10s  %-9s  %10s  %14s  %14s%n", "canciones", "formato", "bytes", "ns escribir", "ns leer");
+
+        for (int canciones : CANCIONES) {
+            ListaReproduccion lista = crear(canciones);
+            int reps = Math.max(200, repeticiones * 10 / canciones);
+            byte[] compacto = lista.toBytes();
+            byte[] legado = FormatoPlaylist.escribirLegado(lista);
+            verificar(lista, ListaReproduccion.fromBytes(compacto));
+            verificar(lista, ListaReproduccion.fromBytes(legado));
+
+            // Calentamiento
+            medir(lista, false, reps);
+            medir(lista, true, reps);
+
+            double[] c = medir(lista, false, reps);
+            double[] l = medir(lista, true, reps);
+            System.out.printf("%10d  %-9s  %10d  %14.0f  %14.0f%n", canciones, "anterior", legado.length, l[0], l[1]);
+            System.out.printf("%10s  %-9s  %10d  %14.0f  %14.0f%n", "", "compacto", compacto.length, c[0], c[1]);
+            System.out.printf("%10s  %-9s  %9.1f%%  %13.1fx  %13.1fx%n", "", "ahorro",
+                    100.0 * (legado.length - compacto.length) / legado.length, l[0] / c[0], l[1] / c[1]);
+        }
+    }
+
+    private static ListaReproduccion crear(int canciones) {
+        ListaReproduccion lista = new ListaReproduccion("Playlist de " + canciones + " canciones");
+        for (int i = 0; i < canciones; i++) {
+            lista.addCancionConArtista("Canción " + i, "Artista " + (i / 10), "Pop", "Colombia");
+        }
+        lista.setUsos(12);
+        return lista;
+    }
+
+    private static double[] medir(ListaReproduccion lista, boolean legado, int reps) throws Exception {
+        byte[] datos = null;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            datos = legado ? FormatoPlaylist.escribirLegado(lista) : lista.toBytes();
+            sumidero += datos.length;
+        }
+        double escribir = (System.nanoTime() - inicio) / (double) reps;
+        inicio = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            sumidero += ListaReproduccion.fromBytes(datos).getCanciones().size();
+        }
+        double leer = (System.nanoTime() - inicio) / (double) reps;
+        return new double[] { escribir, leer };
+    }
+
+    private static void verificar(ListaReproduccion original, ListaReproduccion leida) throws IOException {
+        boolean igual = original.getNombreLista().equals(leida.getNombreLista())
+                && original.getUsos() == leida.getUsos()
+                && original.getCanciones().size() == leida.getCanciones().size();
+        for (int i = 0; igual && i < original.getCanciones().size(); i++) {
+            igual = original.getCanciones().get(i).getId().equals(leida.getCanciones().get(i).getId())
+                    && original.getCanciones().get(i).getNombreCancion().equals(leida.getCanciones().get(i).getNombreCancion())
+                    && original.getCanciones().get(i).getArtista().getNombreArtista()
+                            .equals(leida.getCanciones().get(i).getArtista().getNombreArtista());
+        }
+        if (!igual) throw new IOException("La lista leída no coincide con la original");
+    }
+}
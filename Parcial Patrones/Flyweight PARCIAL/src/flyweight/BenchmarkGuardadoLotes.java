@@ -0,0 +1,74 @@
+package flyweight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import implementacion.DBManager;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+
+/**
+ * Filas por segundo al guardar playlists en PostgreSQL:
+ * - savePlaylist: una sentencia y un viaje por playlist (el camino anterior)
+ * - savePlaylists con lotes de 1, 100 y 1000 filas (una transacción por lote)
+ *
+ * Requiere una BD: la URL se pasa como argumento o se toma de SUPABASE_DATABASE_URL /
+ * supabase.properties. Las filas de prueba se llaman "bench-lote-*" y se sobrescriben
+ * en cada corrida (upsert).
+ *
+ * Uso: java -cp bin;lib/postgres/postgresql-42.5.4.jar flyweight.BenchmarkGuardadoLotes [url] [playlists]
+ * Ejemplo: ... BenchmarkGuardadoLotes jdbc:postgresql://localhost:5432/postgres?user=postgres 10000
+ */
+public class BenchmarkGuardadoLotes {
+
+    private static final int[] LOTES = {1, 100, 1000};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) DBManager.initWithUrl(args[0]);
+        else DBManager.initFromEnv();
+        if (!DBManager.isEnabled()) {
+            System.out.println("Sin conexión a la BD: no se puede medir.");
+            return;
+        }
+        int cantidad = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+        List<ListaReproduccion> listas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ListaReproduccion l = new ListaReproduccion("bench-lote-" + i);
+            for (int j = 0; j < 10; j++) {
+                int n = (i * 10 + j) % 500;
+                l.getCanciones().add(FabricaCanciones.crearCancion("Canción " + n, "Artista " + (n % 50), "Pop", "País"));
+            }
+            l.setUsos(i % 20);
+            listas.add(l);
+        }
+
+        System.out.println("Guardado de " + cantidad + " playlists\n");
+        System.out.printf("%-22s  %12s  %10s%n", "modo", "filas/s", "ms");
+
+        // savePlaylist imprime una línea por fila: se mide con menos filas para no medir la consola
+        int individuales = Math.min(cantidad, 1_000);
+        long inicio = System.nanoTime();
+        for (ListaReproduccion l : listas.subList(0, individuales)) {
+            DBManager.savePlaylist(l.getNombreLista(), l.toBytes(), l.getUsos());
+        }
+        imprimir("savePlaylist (" + individuales + ")", individuales, System.nanoTime() - inicio);
+
+        int loteOriginal = DBManager.TamanoLote;
+        for (int lote : LOTES) {
+            DBManager.TamanoLote = lote;
+            inicio = System.nanoTime();
+            int guardadas = DBManager.savePlaylists(listas);
+            imprimir("savePlaylists lote " + lote, guardadas, System.nanoTime() - inicio);
+        }
+        DBManager.TamanoLote = loteOriginal;
+        DBManager.close();
+    }
+
+    private static void imprimir(String modo, int filas, long nanos) {
+        System.out.printf("%-22s  %12.0f  %10d%n", modo, filas / (nanos / 1_000_000_000.0), nanos / 1_000_000);
+    }
+}
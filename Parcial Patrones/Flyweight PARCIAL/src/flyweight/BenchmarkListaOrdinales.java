@@ -0,0 +1,111 @@
+package flyweight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaOrdinales;
+import implementacion.ListaReproduccion;
+
+/**
+ * Memoria y recorrido de muchas playlists con canciones como ArrayList<Cancion> (por
+ * defecto) contra ListaOrdinales (int[] de ordinales del pool).
+ *
+ * Mide el heap retenido por playlist con canciones y sin ellas; la diferencia dividida por
+ * las canciones es el costo de cada referencia a canción. Las listas se recortan al
+ * terminar de armarlas (ListaReproduccion.recortar()). El catálogo es el mismo en ambos
+ * modos y no entra en la cuenta.
+ *
+ * Uso: java flyweight.BenchmarkListaOrdinales [playlists] [catalogo]
+ * Con -XX:-UseCompressedOops (lo que pasa con heaps de 32 GB o más) la referencia ocupa 8 bytes.
+ */
+public class BenchmarkListaOrdinales {
+
+    private static final int MINIMO_CANCIONES = 5;
+    private static final int MAXIMO_CANCIONES = 30;
+    private static long sumidero;
+
+    public static void main(String[] args) {
+        int playlists = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int catalogo = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+        String[] nombres = new String[catalogo];
+        String[] artistas = new String[catalogo];
+        for (int i = 0; i < catalogo; i++) {
+            nombres[i] = "Canción " + i;
+            artistas[i] = "Artista " + (i / 10);
+            FabricaCanciones.crearCancion(nombres[i], artistas[i], "Pop", "Colombia");
+        }
+
+        System.out.println(playlists + " playlists de " + MINIMO_CANCIONES + " a " + MAXIMO_CANCIONES
+                + " canciones sobre un catálogo de " + catalogo + "\n");
+        System.out.printf("%-14s  %14s  %16s  %14s  %12s%n", "representación", "B/playlist", "B/ref. canción",
+                "recorrido ms", "compactas");
+        for (boolean ordinales : new boolean[] {false, true}) {
+            ListaReproduccion.UsarOrdinales = ordinales;
+            long vacias = medir(playlists, 0, nombres, artistas, null);
+            long[] detalle = new long[3];
+            long llenas = medir(playlists, playlists, nombres, artistas, detalle);
+            double porPlaylist = (double) llenas / playlists;
+            double porReferencia = (double) (llenas - vacias) / detalle[0];
+            System.out.printf("%-14s  %14.1f  %16.2f  %14.1f  %12s%n", ordinales ? "ListaOrdinales" : "ArrayList",
+                    porPlaylist, porReferencia, detalle[1] / 1e6, ordinales ? String.valueOf(detalle[2]) : "-");
+        }
+        ListaReproduccion.UsarOrdinales = false;
+        System.out.println("\nCon 10M playlists del mismo tamaño medio, la diferencia escala x" + (10_000_000 / Math.max(1, playlists)) + ".");
+    }
+
+    /**
+     * Construye las playlists (con canciones solo las primeras conCanciones) y devuelve el
+     * heap retenido. detalle: referencias, ns del recorrido, listas compactas.
+     */
+    private static long medir(int playlists, int conCanciones, String[] nombres, String[] artistas, long[] detalle) {
+        long antes = usado();
+        Random random = new Random(42);
+        List<ListaReproduccion> listas = new ArrayList<>(playlists);
+        long referencias = 0;
+        for (int i = 0; i < playlists; i++) {
+            ListaReproduccion lista = new ListaReproduccion("Playlist " + i);
+            if (i < conCanciones) {
+                int n = MINIMO_CANCIONES + random.nextInt(MAXIMO_CANCIONES - MINIMO_CANCIONES + 1);
+                for (int j = 0; j < n; j++) {
+                    int c = random.nextInt(nombres.length);
+                    lista.addCancionConArtista(nombres[c], artistas[c], "Pop", "Colombia");
+                }
+                lista.recortar();
+                referencias += n;
+            }
+            listas.add(lista);
+        }
+        long retenido = usado() - antes;
+        if (detalle != null) {
+            detalle[0] = referencias;
+            long mejor = Long.MAX_VALUE;
+            for (int r = 0; r < 3; r++) {
+                long inicio = System.nanoTime();
+                for (ListaReproduccion l : listas) {
+                    for (Cancion c : l.getCanciones()) sumidero += c.getNombreCancion().length();
+                }
+                mejor = Math.min(mejor, System.nanoTime() - inicio);
+            }
+            detalle[1] = mejor;
+            long compactas = 0;
+            for (ListaReproduccion l : listas) {
+                if (l.getCanciones() instanceof ListaOrdinales && ((ListaOrdinales) l.getCanciones()).isCompacta()) compactas++;
+            }
+            detalle[2] = compactas;
+        }
+        listas.clear();
+        return retenido;
+    }
+
+    private static long usado() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
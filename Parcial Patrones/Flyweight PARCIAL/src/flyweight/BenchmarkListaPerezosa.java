@@ -0,0 +1,97 @@
+package flyweight;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.FormatoPlaylist;
+import implementacion.ListaReproduccion;
+
+/**
+ * Lectura completa (fromBytes materializando todo) contra lectura perezosa
+ * (ListaReproduccionPerezosa) de una playlist grande: tiempo y bytes asignados para
+ * leer la cabecera, la primera página, una página del medio y recorrerla entera.
+ *
+ * Los bytes asignados se miden por hilo (com.sun.management.ThreadMXBean); si la JVM no
+ * lo soporta se muestra "-".
+ *
+ * Uso: java flyweight.BenchmarkListaPerezosa [canciones] [tamañoPagina]
+ */
+public class BenchmarkListaPerezosa {
+
+    private static final int REPETICIONES = 20;
+    private static long sumidero;
+
+    private interface Operacion {
+        void ejecutar() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int canciones = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int pagina = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        ListaReproduccion lista = new ListaReproduccion("Playlist de " + canciones + " canciones");
+        for (int i = 0; i < canciones; i++) {
+            lista.addCancionConArtista("Canción " + i, "Artista " + (i / 10), "Pop", "Colombia");
+        }
+        byte[] completo = lista.toBytes();
+        byte[] ids = FormatoPlaylist.escribirIds(lista);
+
+        System.out.println("Lectura completa vs perezosa de una playlist de " + canciones + " canciones"
+                + " (página de " + pagina + ")\n");
+        System.out.printf("%-9s  %-28s  %12s  %14s%n", "blob", "operación", "µs", "KB asignados");
+        medirFormato("compacto", completo, canciones, pagina);
+        medirFormato("ids", ids, canciones, pagina);
+    }
+
+    private static void medirFormato(String nombre, byte[] blob, int canciones, int pagina) throws Exception {
+        System.out.printf("%-9s  %-28s  %12s  %14.1f%n", nombre, "(tamaño del blob)", "", blob.length / 1024.0);
+        int medio = canciones / 2;
+        medir(nombre, "completa: fromBytes", () -> sumidero += leerCompleta(blob).getCanciones().size());
+        medir("", "perezosa: cabecera", () -> sumidero += ListaReproduccion.fromBytesPerezosa(blob).getUsos());
+        medir("", "perezosa: primera página", () ->
+                sumidero += ListaReproduccion.fromBytesPerezosa(blob).getPagina(0, pagina).size());
+        medir("", "perezosa: página del medio", () ->
+                sumidero += ListaReproduccion.fromBytesPerezosa(blob).getPagina(medio, pagina).size());
+        medir("", "perezosa: recorrido completo", () -> {
+            for (Cancion c : ListaReproduccion.fromBytesPerezosa(blob).getCanciones()) sumidero += c.getId();
+        });
+    }
+
+    private static ListaReproduccion leerCompleta(byte[] blob) throws Exception {
+        int original = FormatoPlaylist.LecturaPerezosaDesde;
+        FormatoPlaylist.LecturaPerezosaDesde = Integer.MAX_VALUE;
+        try {
+            return ListaReproduccion.fromBytes(blob);
+        } finally {
+            FormatoPlaylist.LecturaPerezosaDesde = original;
+        }
+    }
+
+    private static void medir(String blob, String operacion, Operacion op) throws Exception {
+        for (int i = 0; i < REPETICIONES; i++) op.ejecutar(); // calentamiento
+        long asignadosAntes = asignados();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) op.ejecutar();
+        double us = (System.nanoTime() - inicio) / 1000.0 / REPETICIONES;
+        long asignadosDespues = asignados();
+        String kb = asignadosAntes < 0 ? "-"
+                : String.format("%.1f", (asignadosDespues - asignadosAntes) / 1024.0 / REPETICIONES);
+        System.out.printf("%-9s  %-28s  %12.1f  %14s%n", blob, operacion, us, kb);
+    }
+
+    private static long asignados() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (hilos instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) hilos;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
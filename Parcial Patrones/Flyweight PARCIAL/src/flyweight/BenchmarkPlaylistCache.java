@@ -0,0 +1,104 @@
+package flyweight;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+
+/**
+ * Costo de inserción en PlaylistCache con la cache llena (cada add desaloja una lista),
+ * para capacidades de 150 a 1M listas.
+ *
+ * - LFU O(1): PlaylistCache actual (cubetas de frecuencia)
+ * - Escaneo: el algoritmo anterior, que recorría todas las entradas buscando el menor usos
+ *   (solo hasta 10k listas; a partir de ahí tarda demasiado)
+ *
+ * Sin BD: el umbral de persistencia es 0, así que el desalojo no serializa ni guarda.
+ *
+ * Uso: java -Xmx2g flyweight.BenchmarkPlaylistCache [insercionesMedidas]
+ */
+public class BenchmarkPlaylistCache {
+
+    private static final int[] CAPACIDADES = {150, 1_000, 10_000, 100_000, 1_000_000};
+    private static final int MAX_CAPACIDAD_ESCANEO = 10_000;
+
+    public static void main(String[] args) {
+        int inserciones = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        System.out.println("Benchmark de inserción en PlaylistCache llena");
+        System.out.println("Inserciones medidas por capacidad: " + inserciones + "\n");
+        System.out.printf("%12s  %16s  %16s%n", "capacidad", "LFU O(1) ns/add", "escaneo ns/add");
+
+        // Calentamiento
+        medirLfu(1_000, inserciones);
+        medirEscaneo(1_000, inserciones / 10);
+
+        for (int capacidad : CAPACIDADES) {
+            double lfu = medirLfu(capacidad, inserciones);
+            String escaneo = capacidad <= MAX_CAPACIDAD_ESCANEO
+                    ? String.format("%.1f", medirEscaneo(capacidad, Math.max(1_000, inserciones / (capacidad / 150))))
+                    : "-";
+            System.out.printf("%12d  %16.1f  %16s%n", capacidad, lfu, escaneo);
+        }
+    }
+
+    private static ListaReproduccion[] generar(int cantidad, int desde, long semilla) {
+        Random random = new Random(semilla);
+        ListaReproduccion[] listas = new ListaReproduccion[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ListaReproduccion l = new ListaReproduccion("Playlist #" + (desde + i));
+            l.setUsos(random.nextInt(20));
+            listas[i] = l;
+        }
+        return listas;
+    }
+
+    private static double medirLfu(int capacidad, int inserciones) {
+        PlaylistCache cache = new PlaylistCache(capacidad, 0);
+        for (ListaReproduccion l : generar(capacidad, 0, 1)) cache.add(l);
+        ListaReproduccion[] nuevas = generar(inserciones, capacidad, 2);
+
+        long inicio = System.nanoTime();
+        for (ListaReproduccion l : nuevas) cache.add(l);
+        return (System.nanoTime() - inicio) / (double) inserciones;
+    }
+
+    private static double medirEscaneo(int capacidad, int inserciones) {
+        CacheEscaneo cache = new CacheEscaneo(capacidad);
+        for (ListaReproduccion l : generar(capacidad, 0, 1)) cache.add(l);
+        ListaReproduccion[] nuevas = generar(inserciones, capacidad, 2);
+
+        long inicio = System.nanoTime();
+        for (ListaReproduccion l : nuevas) cache.add(l);
+        return (System.nanoTime() - inicio) / (double) inserciones;
+    }
+
+    /**
+     * Réplica del desalojo anterior de PlaylistCache: recorre todo el mapa en cada inserción
+     */
+    private static final class CacheEscaneo {
+        private final int maxEntries;
+        private final Map<String, ListaReproduccion> cache = new HashMap<>();
+
+        CacheEscaneo(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized void add(ListaReproduccion lista) {
+            cache.put(lista.getNombreLista(), lista);
+            if (cache.size() <= maxEntries) return;
+            String minKey = null;
+            long minUsos = Long.MAX_VALUE;
+            for (Map.Entry<String, ListaReproduccion> e : cache.entrySet()) {
+                long u = e.getValue().getUsos();
+                if (u < minUsos) {
+                    minUsos = u;
+                    minKey = e.getKey();
+                }
+            }
+            cache.remove(minKey);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package flyweight;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+import implementacion.PoliticaLFU;
+
+/**
+ * Throughput de PlaylistCache con 1 a 32 hilos:
+ * - Segmentada: PlaylistCache actual (lecturas sin bloqueo, escrituras por segmento)
+ * - Sincronizada: réplica de la versión anterior, con todos los métodos en un único monitor
+ *
+ * Cargas:
+ * - lecturas: 100% get sobre listas que están en la cache
+ * - mixta: 90% get, 10% add de listas nuevas (cada add con la cache llena desaloja una)
+ *
+ * Sin BD: el umbral de persistencia es 0, así que el desalojo no serializa ni guarda.
+ *
+ * Uso: java flyweight.BenchmarkPlaylistCacheConcurrente [capacidad] [msPorMedicion]
+ */
+public class BenchmarkPlaylistCacheConcurrente {
+
+    private static final int[] HILOS = {1, 2, 4, 8, 16, 32};
+
+    private interface Cache {
+        ListaReproduccion get(String nombre);
+        void add(ListaReproduccion lista);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int capacidad = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int ms = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        System.out.println("Benchmark concurrente de PlaylistCache");
+        System.out.println("Capacidad: " + capacidad + ", procesadores: " + Runtime.getRuntime().availableProcessors()
+                + ", segmentos: " + new PlaylistCache(capacidad, 0).getSegmentos() + ", " + ms + " ms por medición\n");
+
+        String[] nombres = new String[capacidad];
+        for (int i = 0; i < capacidad; i++) nombres[i] = "Playlist #" + i;
+
+        for (String carga : new String[] {"lecturas", "mixta"}) {
+            int porcentajeAdd = carga.equals("mixta") ? 10 : 0;
+            // Calentamiento
+            for (int hilos : new int[] {1, 4, 1, 4}) {
+                medir(segmentada(capacidad, nombres), nombres, hilos, porcentajeAdd, ms);
+                medir(sincronizada(capacidad, nombres), nombres, hilos, porcentajeAdd, ms);
+            }
+
+            System.out.println("Carga: " + carga);
+            System.out.printf("%6s  %18s  %18s  %8s%n", "hilos", "segmentada ops/s", "sincronizada ops/s", "mejora");
+            for (int hilos : HILOS) {
+                double nueva = medir(segmentada(capacidad, nombres), nombres, hilos, porcentajeAdd, ms);
+                double anterior = medir(sincronizada(capacidad, nombres), nombres, hilos, porcentajeAdd, ms);
+                System.out.printf("%6d  %18.0f  %18.0f  %7.2fx%n", hilos, nueva, anterior, nueva / anterior);
+            }
+            System.out.println();
+        }
+    }
+
+    private static Cache segmentada(int capacidad, String[] nombres) {
+        PlaylistCache cache = new PlaylistCache(capacidad, 0);
+        for (String n : nombres) cache.add(new ListaReproduccion(n));
+        return new Cache() {
+            @Override
+            public ListaReproduccion get(String nombre) {
+                return cache.get(nombre);
+            }
+
+            @Override
+            public void add(ListaReproduccion lista) {
+                cache.add(lista);
+            }
+        };
+    }
+
+    private static Cache sincronizada(int capacidad, String[] nombres) {
+        CacheSincronizada cache = new CacheSincronizada(capacidad);
+        for (String n : nombres) cache.add(new ListaReproduccion(n));
+        return cache;
+    }
+
+    private static double medir(Cache cache, String[] nombres, int hilos, int porcentajeAdd, int ms)
+            throws InterruptedException {
+        LongAdder operaciones = new LongAdder();
+        CountDownLatch inicio = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(hilos);
+        long[] limite = new long[1];
+
+        for (int h = 0; h < hilos; h++) {
+            final int hilo = h;
+            Thread t = new Thread(() -> {
+                try {
+                    inicio.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long ops = 0, nuevas = 0;
+                while (System.nanoTime() < limite[0]) {
+                    for (int i = 0; i < 256; i++) {
+                        if (random.nextInt(100) < porcentajeAdd) {
+                            ListaReproduccion l = new ListaReproduccion("Nueva " + hilo + "-" + (nuevas++));
+                            l.setUsos(random.nextInt(20));
+                            cache.add(l);
+                        } else {
+                            ListaReproduccion l = cache.get(nombres[random.nextInt(nombres.length)]);
+                            if (l != null) l.incrementarUso();
+                        }
+                    }
+                    ops += 256;
+                }
+                operaciones.add(ops);
+                fin.countDown();
+            });
+            t.setDaemon(true);
+            t.start();
+        }
+
+        long t0 = System.nanoTime();
+        limite[0] = t0 + ms * 1_000_000L;
+        inicio.countDown();
+        fin.await();
+        return operaciones.sum() / ((System.nanoTime() - t0) / 1_000_000_000.0);
+    }
+
+    /**
+     * Réplica de PlaylistCache antes de segmentar: HashMap y política LFU bajo un único
+     * monitor, incluidos get() y el desalojo.
+     */
+    private static final class CacheSincronizada implements Cache {
+        private final int maxEntries;
+        private final Map<String, ListaReproduccion> cache = new HashMap<>();
+        private final PoliticaLFU politica = new PoliticaLFU();
+
+        CacheSincronizada(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        public synchronized void add(ListaReproduccion lista) {
+            cache.put(lista.getNombreLista(), lista);
+            politica.registrarInsercion(lista.getNombreLista(), lista);
+            while (cache.size() > maxEntries) {
+                String minKey = politica.elegirVictima(lista.getNombreLista(), cache::get);
+                if (minKey == null) return;
+                cache.remove(minKey);
+                politica.registrarEliminacion(minKey);
+            }
+        }
+
+        @Override
+        public synchronized ListaReproduccion get(String nombre) {
+            ListaReproduccion lista = cache.get(nombre);
+            if (lista != null) politica.registrarAcceso(nombre, lista);
+            return lista;
+        }
+    }
+}
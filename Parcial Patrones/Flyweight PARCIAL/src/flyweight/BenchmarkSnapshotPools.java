@@ -0,0 +1,100 @@
+package flyweight;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.SnapshotPools;
+
+/**
+ * Carga del catálogo al arrancar: reconstrucción en frío (crearCancion una por una) contra
+ * carga del snapshot de los pools (SnapshotPools), mapeado y leído a heap.
+ *
+ * Los nombres se generan antes de medir, así que la reconstrucción en frío solo cuenta el
+ * trabajo del pool; en un arranque real además habría que leerlos de algún lado.
+ *
+ * Uso: java flyweight.BenchmarkSnapshotPools [canciones] [cancionesPorArtista]
+ * (con 1M canciones conviene -Xmx1g o más)
+ */
+public class BenchmarkSnapshotPools {
+
+    private static final int RONDAS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int canciones = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int porArtista = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        String[] nombres = new String[canciones];
+        String[] artistas = new String[canciones];
+        for (int i = 0; i < canciones; i++) {
+            nombres[i] = "Canción " + i;
+            artistas[i] = "Artista " + (i / porArtista);
+        }
+        Path archivo = Files.createTempFile("pools", ".snapshot");
+
+        System.out.println("Carga del catálogo: " + canciones + " canciones, " + (canciones + porArtista - 1) / porArtista
+                + " artistas (" + RONDAS + " rondas, se muestra la mejor)\n");
+
+        long frio = Long.MAX_VALUE;
+        for (int r = 0; r < RONDAS; r++) {
+            limpiar();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < canciones; i++) {
+                FabricaCanciones.crearCancion(nombres[i], artistas[i], "Pop", "Colombia");
+            }
+            frio = Math.min(frio, System.nanoTime() - inicio);
+        }
+        // Un id de muestra para comprobar que el snapshot lo conserva
+        Cancion muestra = FabricaCanciones.crearCancion(nombres[canciones / 2], artistas[canciones / 2], "Pop", "Colombia");
+        long idMuestra = muestra.getId();
+
+        long inicioGuardado = System.nanoTime();
+        long bytes = SnapshotPools.guardar(archivo);
+        long guardado = System.nanoTime() - inicioGuardado;
+
+        long mapeado = cargar(archivo, true);
+        long heap = cargar(archivo, false);
+
+        Cancion cargada = FabricaCanciones.buscarPorId(idMuestra);
+        boolean coincide = cargada != null && cargada.getNombreCancion().equals(nombres[canciones / 2])
+                && FabricaCanciones.getTotalCancionesUnicas() == canciones
+                && FabricaCanciones.crearCancion(nombres[0], artistas[0], "Pop", "Colombia").getId() == 1L;
+
+        System.out.printf("%-36s %10s%n", "operación", "ms");
+        System.out.printf("%-36s %10.1f%n", "reconstrucción en frío (crearCancion)", frio / 1e6);
+        System.out.printf("%-36s %10.1f%n", "snapshot: carga mapeada", mapeado / 1e6);
+        System.out.printf("%-36s %10.1f%n", "snapshot: carga a heap", heap / 1e6);
+        System.out.printf("%-36s %10.1f%n", "snapshot: guardado", guardado / 1e6);
+        System.out.printf("%nTamaño del snapshot: %.1f MB (%.1f bytes por canción)%n", bytes / 1e6, (double) bytes / canciones);
+        System.out.printf("Aceleración de la carga mapeada: %.1fx%n", (double) frio / mapeado);
+        System.out.println("Pools restaurados con los mismos ids: " + (coincide ? "SÍ" : "NO"));
+        Files.deleteIfExists(archivo);
+    }
+
+    private static long cargar(Path archivo, boolean mapear) throws Exception {
+        boolean original = SnapshotPools.MapearArchivo;
+        SnapshotPools.MapearArchivo = mapear;
+        long mejor = Long.MAX_VALUE;
+        try {
+            for (int r = 0; r < RONDAS; r++) {
+                limpiar();
+                long inicio = System.nanoTime();
+                SnapshotPools.cargar(archivo);
+                mejor = Math.min(mejor, System.nanoTime() - inicio);
+            }
+        } finally {
+            SnapshotPools.MapearArchivo = original;
+        }
+        return mejor;
+    }
+
+    private static void limpiar() {
+        FabricaCanciones.clearPool();
+        FabricaArtistas.clearPool();
+        System.gc();
+    }
+}
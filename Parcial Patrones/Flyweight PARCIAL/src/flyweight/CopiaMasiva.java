@@ -0,0 +1,41 @@
+package flyweight;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import implementacion.CopiaPlaylists;
+import implementacion.DBManager;
+
+/**
+ * Herramienta de línea de comandos para CopiaPlaylists: exporta o importa playlists y
+ * catálogo con COPY binario. Si se corta, volver a ejecutar el mismo comando retoma desde
+ * el punto de control del directorio.
+ *
+ * La URL se pasa como tercer argumento o se toma de SUPABASE_DATABASE_URL / supabase.properties.
+ *
+ * Uso: java -cp bin;lib/postgres/postgresql-42.5.4.jar flyweight.CopiaMasiva exportar|importar directorio [url]
+ */
+public class CopiaMasiva {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("exportar") || args[0].equals("importar"))) {
+            System.out.println("Uso: CopiaMasiva exportar|importar directorio [url]");
+            return;
+        }
+        if (args.length > 2) DBManager.initWithUrl(args[2]);
+        else DBManager.initFromEnv();
+        if (!DBManager.isEnabled()) {
+            System.out.println("Sin conexión a la BD.");
+            return;
+        }
+        Path directorio = Paths.get(args[1]);
+        try {
+            long inicio = System.nanoTime();
+            long filas = args[0].equals("exportar") ? CopiaPlaylists.exportar(directorio) : CopiaPlaylists.importar(directorio);
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            System.out.printf("%s: %d filas en %.1f s (%.0f filas/s)%n", args[0], filas, segundos, filas / segundos);
+        } finally {
+            DBManager.close();
+        }
+    }
+}
@@ -4,13 +4,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import implementacion.AlmacenAudio;
 import implementacion.FabricaArtistas;
 import implementacion.FabricaCanciones;
 import implementacion.ListaReproduccion;
+import implementacion.MedidorMemoria;
 
 /**
  * Prueba comparativa: ejecuta la creación de listas con Flyweight ON y OFF
  * en la misma JVM (limpiando pools entre pruebas) y muestra memoria y conteos.
+ *
+ * La memoria se mide con MedidorMemoria: bytes asignados por el hilo durante el escenario
+ * y tamaño retenido de los pools y de las playlists (recorrido del grafo de objetos), que
+ * no dependen de cuándo corra el GC.
  */
 public class FlyweightComparison {
 
@@ -49,9 +55,7 @@ public class FlyweightComparison {
         FabricaCanciones.clearPool();
         FabricaArtistas.clearPool();
 
-        Runtime runtime = Runtime.getRuntime();
-
-        long beforeUsed = runtime.totalMemory() - runtime.freeMemory();
+        long asignadosAntes = MedidorMemoria.asignadosHilo();
 
         List<ListaReproduccion> listas = new ArrayList<>();
         Random random = new Random(12345);
@@ -70,15 +74,25 @@ public class FlyweightComparison {
             }
         }
 
-        long afterUsed = runtime.totalMemory() - runtime.freeMemory();
+        long asignadosDespues = MedidorMemoria.asignadosHilo();
+        MedidorMemoria.Informe informe = MedidorMemoria.medir(listas);
 
         System.out.println("\nRESULTADOS:");
         System.out.println("  Total listas: " + listas.size());
         System.out.println("  Total canciones agregadas: " + (listas.size() * 10));
         System.out.println("  Canciones únicas en pool: " + FabricaCanciones.getTotalCancionesUnicas());
         System.out.println("  Artistas únicos en pool: " + FabricaArtistas.getTotalArtistasUnicos());
-        System.out.println("  Memoria usada (bytes): " + (afterUsed - beforeUsed));
-        System.out.println("  Memoria usada (MB): " + ((afterUsed - beforeUsed) / 1_000_000.0));
+        System.out.println("  Pool canciones: " + FabricaCanciones.getEstadisticas());
+        System.out.println("  Pool artistas: " + FabricaArtistas.getEstadisticas());
+        System.out.println("  Audio materializado: " + AlmacenAudio.getCancionesConAudio() + " canciones, "
+                + AlmacenAudio.getBuferesUnicos() + " búferes únicos (" + AlmacenAudio.getBytesRetenidos() + " bytes)");
+        if (asignadosAntes >= 0 && asignadosDespues >= 0) {
+            long asignados = asignadosDespues - asignadosAntes;
+            System.out.println("  Bytes asignados por el hilo: " + asignados + " (" + (asignados / listas.size()) + " por playlist)");
+        } else {
+            System.out.println("  Bytes asignados por el hilo: no disponible en esta JVM");
+        }
+        informe.imprimir("  ");
 
         System.out.println("\n--- Muestra de 1 lista ---");
         listas.get(0).imprimirLista();
@@ -0,0 +1,129 @@
+package flyweight;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import implementacion.Cancion;
+import implementacion.FabricaArtistas;
+import implementacion.FabricaCanciones;
+import implementacion.ListaReproduccion;
+
+/**
+ * Variante multihilo de FlyweightComparison: construye el mismo número de listas
+ * repartido entre 1..N hilos que comparten los pools de canciones y artistas,
+ * y muestra el throughput (canciones agregadas por segundo) para cada cantidad de hilos.
+ *
+ * Además verifica las garantías del pool concurrente: una sola Canción por clave
+ * y ningún id repetido.
+ *
+ * Uso: java flyweight.FlyweightComparisonConcurrente [maxHilos] [numeroListas]
+ */
+public class FlyweightComparisonConcurrente {
+
+    private static final String[][] CATALOGO = {
+        {"Despacito", "Luis Fonsi", "Reggaeton", "Puerto Rico"},
+        {"Shape of You", "Ed Sheeran", "Pop", "Reino Unido"},
+        {"Blinding Lights", "The Weeknd", "Synthpop", "Canadá"},
+        {"Dance Monkey", "Tones and I", "Pop", "Australia"},
+        {"Someone You Loved", "Lewis Capaldi", "Pop", "Reino Unido"},
+        {"Señorita", "Shawn Mendes", "Pop", "Canadá"},
+        {"Bad Guy", "Billie Eilish", "Electropop", "Estados Unidos"},
+        {"Roses", "SAINt JHN", "Hip Hop", "Estados Unidos"},
+        {"Memories", "Maroon 5", "Pop Rock", "Estados Unidos"},
+        {"Before You Go", "Lewis Capaldi", "Pop", "Reino Unido"}
+    };
+
+    private static final int CANCIONES_POR_LISTA = 10;
+
+    public static void main(String[] args) throws Exception {
+        int maxHilos = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int numeroListas = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        System.out.println("Comparación Flyweight concurrente: 1.." + maxHilos + " hilos, "
+                + numeroListas + " listas por corrida\n");
+
+        FabricaCanciones.HabilitarFlyweight = true;
+        FabricaArtistas.HabilitarFlyweight = true;
+
+        // Calentamiento para que el JIT compile el camino caliente antes de medir
+        runScenario(1, numeroListas / 10, false);
+
+        for (int hilos = 1; hilos <= maxHilos; hilos *= 2) {
+            runScenario(hilos, numeroListas, true);
+        }
+        if (Integer.bitCount(maxHilos) != 1) {
+            runScenario(maxHilos, numeroListas, true);
+        }
+    }
+
+    private static void runScenario(int hilos, int numeroListas, boolean imprimir) throws Exception {
+        FabricaCanciones.clearPool();
+        FabricaArtistas.clearPool();
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<List<ListaReproduccion>>> resultados = new ArrayList<>();
+        int porHilo = numeroListas / hilos;
+
+        for (int h = 0; h < hilos; h++) {
+            final int semilla = 12345 + h;
+            final int inicio = h * porHilo;
+            final int cantidad = (h == hilos - 1) ? numeroListas - inicio : porHilo;
+            Callable<List<ListaReproduccion>> tarea = () -> {
+                Random random = new Random(semilla);
+                List<ListaReproduccion> listas = new ArrayList<>(cantidad);
+                salida.await();
+                for (int i = 0; i < cantidad; i++) {
+                    ListaReproduccion pl = new ListaReproduccion("Playlist #" + (inicio + i + 1));
+                    for (int j = 0; j < CANCIONES_POR_LISTA; j++) {
+                        String[] d = CATALOGO[random.nextInt(CATALOGO.length)];
+                        pl.addCancionConArtista(d[0], d[1], d[2], d[3]);
+                    }
+                    listas.add(pl);
+                }
+                return listas;
+            };
+            resultados.add(executor.submit(tarea));
+        }
+
+        long inicioNs = System.nanoTime();
+        salida.countDown();
+        List<ListaReproduccion> todas = new ArrayList<>(numeroListas);
+        for (Future<List<ListaReproduccion>> f : resultados) {
+            todas.addAll(f.get());
+        }
+        long duracionNs = System.nanoTime() - inicioNs;
+        executor.shutdown();
+
+        if (!imprimir) return;
+
+        // Verificar que todos los hilos comparten la misma instancia por canción y que no hay ids duplicados
+        Set<Cancion> instancias = new HashSet<>();
+        for (ListaReproduccion l : todas) instancias.addAll(l.getCanciones());
+        Set<Long> ids = new HashSet<>();
+        for (Cancion c : instancias) ids.add(c.getId());
+
+        long canciones = (long) todas.size() * CANCIONES_POR_LISTA;
+        double segundos = duracionNs / 1_000_000_000.0;
+
+        System.out.println("============================================");
+        System.out.println("Hilos: " + hilos);
+        System.out.println("============================================");
+        System.out.println("  Total listas: " + todas.size());
+        System.out.println("  Total canciones agregadas: " + canciones);
+        System.out.println("  Canciones únicas en pool: " + FabricaCanciones.getTotalCancionesUnicas()
+                + " (instancias distintas en listas: " + instancias.size() + ")");
+        System.out.println("  Ids distintos: " + ids.size() + (ids.size() == instancias.size() ? " (sin duplicados)" : " (¡DUPLICADOS!)"));
+        System.out.println("  Artistas únicos en pool: " + FabricaArtistas.getTotalArtistasUnicos());
+        System.out.println("  Tiempo: " + (duracionNs / 1_000_000) + " ms");
+        System.out.printf("  Throughput: %.0f canciones/s%n%n", canciones / segundos);
+    }
+}
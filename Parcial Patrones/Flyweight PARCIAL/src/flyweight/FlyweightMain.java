@@ -31,6 +31,10 @@ public class FlyweightMain {
     };
     
     private static final List<ListaReproduccion> listas = new ArrayList<>();
+
+    // Cache de consulta (opción 7): se precarga al conectar y carga de la BD lo que falte
+    private static final PlaylistCache cacheConsultas =
+            new PlaylistCache(Integer.getInteger("flyweight.cache.capacidad", 150));
         
     public static void main(String[] args) {
         System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -45,6 +49,10 @@ public class FlyweightMain {
 
     // Crear un único Scanner sobre System.in y usarlo durante toda la ejecución
     Scanner scanner = new Scanner(System.in);
+    // Catálogo del arranque anterior (-Dflyweight.snapshot.archivo), antes de leer playlists
+    SnapshotPools.cargarDesdePropiedades();
+    // Nivel de cache en disco local (-Dflyweight.l2.directorio), antes de precargar desde la BD
+    AlmacenDiscoL2.abrirDesdePropiedades();
     // Intentar conectar a la BD antes de mostrar el menú
     startupConnect(scanner);
 
@@ -55,6 +63,7 @@ public class FlyweightMain {
         System.out.println("3) Listar playlists desde Supabase (REST + API key)");
     System.out.println("5) Crear tabla 'playlists' en la BD (si falta)");
         System.out.println("6) Vaciar tabla 'playlists' (borrar todo)");
+        System.out.println("7) Buscar una playlist (cache precargada + BD)");
         System.out.println("4) Salir");
         System.out.print("Opción: ");
 
@@ -90,8 +99,20 @@ public class FlyweightMain {
                 if (key == null || key.isEmpty()) key = System.getenv("SUPABASE_API_KEY");
                 implementacion.SupabaseClient.listPlaylistsViaRest(proj, key);
                 break;
+            case "7":
+                System.out.print("Nombre de la playlist: ");
+                String nombre = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+                ListaReproduccion encontrada = cacheConsultas.get(nombre);
+                if (encontrada != null) encontrada.imprimirLista();
+                else System.out.println("No existe la playlist '" + nombre + "'.");
+                System.out.println("Cache: " + cacheConsultas.getTamano() + " listas, aciertos " + cacheConsultas.getAciertos()
+                        + ", fallos " + cacheConsultas.getFallos());
+                break;
             case "4":
                 System.out.println("Saliendo...");
+                implementacion.DBManager.close();
+                AlmacenDiscoL2.cerrar();
+                SnapshotPools.guardarDesdePropiedades();
                 scanner.close();
                 return;
             default:
@@ -143,8 +164,9 @@ public class FlyweightMain {
         System.out.println("   - Gracias al patrón Flyweight:");
         System.out.println("     • Solo " + FabricaCanciones.getTotalCancionesUnicas() + " objetos Canción en memoria");
         System.out.println("     • Solo " + FabricaArtistas.getTotalArtistasUnicos() + " objetos Artista en memoria");
-        System.out.println("   - Ahorro de memoria: ~" + calcularAhorroMemoria(9, 
-            FabricaCanciones.getTotalCancionesUnicas()) + "%\n");
+        double ahorroBasico = calcularAhorroMemoria(MedidorMemoria.medir(
+            java.util.Arrays.asList(playlistPop, playlistFavoritos, playlistGym)));
+        System.out.println("   - Ahorro de memoria: " + String.format("%.1f", ahorroBasico) + "%\n");
     }
 
     /**
@@ -160,6 +182,7 @@ public class FlyweightMain {
             System.out.println("[STARTUP] Conexión establecida automáticamente desde variables/archivo.");
             implementacion.DBManager.createPlaylistsTable();
             implementacion.DBManager.printStoredPlaylistsDetails();
+            calentarCacheConsultas();
             return;
         }
 
@@ -189,6 +212,7 @@ public class FlyweightMain {
                 System.out.println("[STARTUP] Conexión exitosa.");
                 implementacion.DBManager.createPlaylistsTable();
                 implementacion.DBManager.printStoredPlaylistsDetails();
+                calentarCacheConsultas();
                 // Guardar la URL en propiedades para siguientes ejecuciones
                 System.setProperty("SUPABASE_DATABASE_URL", input);
                 try {
@@ -210,6 +234,17 @@ public class FlyweightMain {
             System.out.println("[STARTUP] Persistencia en BD queda deshabilitada. Puede configurar variables/archivo supabase.properties y reiniciar la aplicación.");
         }
     }
+
+    /**
+     * Precarga la cache de consultas con las playlists más usadas antes de mostrar el menú
+     */
+    private static void calentarCacheConsultas() {
+        cacheConsultas.setCargador(CargadorPlaylist.desdeBD());
+        CalentadorCache calentador = new CalentadorCache(cacheConsultas);
+        boolean completo = calentador.calentar();
+        System.out.println("[STARTUP] Cache precargada con " + calentador.getCargadas() + " playlists en "
+                + calentador.getDuracionMs() + " ms" + (completo ? "." : " (se agotó el presupuesto de tiempo)."));
+    }
     
     /**
      * Prueba de rendimiento con gran cantidad de listas
@@ -230,11 +265,13 @@ public class FlyweightMain {
         System.out.println("   (Este proceso puede tardar unos segundos)\n");
         
         long tiempoInicio = System.currentTimeMillis();
+        long asignadosAntes = MedidorMemoria.asignadosHilo();
         crearListasDinamicas(1000);
+        long asignadosDespues = MedidorMemoria.asignadosHilo();
         long tiempoFin = System.currentTimeMillis();
         
-        // Calcular memoria usada
-        long memoryUsed = runtime.totalMemory() - runtime.freeMemory();
+        // Memoria medida: bytes asignados por este hilo y tamaño retenido de pools y listas
+        MedidorMemoria.Informe informe = MedidorMemoria.medir(listas);
         
         System.out.println("\n✅ PROCESO COMPLETADO\n");
         System.out.println("📊 RESULTADOS:");
@@ -242,7 +279,8 @@ public class FlyweightMain {
         System.out.println("   • Total de canciones agregadas: " + (listas.size() * 10));
         System.out.println("   • Canciones únicas en memoria: " + FabricaCanciones.getTotalCancionesUnicas());
         System.out.println("   • Artistas únicos en memoria: " + FabricaArtistas.getTotalArtistasUnicos());
-        System.out.println("   • Memoria utilizada: " + (memoryUsed / 1_000_000) + " MB");
+        imprimirAsignados(asignadosAntes, asignadosDespues);
+        informe.imprimir("   • ");
         System.out.println("   • Tiempo de ejecución: " + (tiempoFin - tiempoInicio) + " ms");
         
         // Ahora transferimos las listas a una cache con capacidad limitada y persistimos las menos usadas
@@ -259,17 +297,17 @@ public class FlyweightMain {
         System.out.println("\n🔎 Estado final de la cache:");
         System.out.println("   • Listas en cache (memoria): " + cache.getAll().size());
         if (DBManager.isEnabled()) {
+            EscritorDiferido.vaciar(); // esperar las escrituras en segundo plano antes de contar
             System.out.println("   • Listas persistidas en BD: " + DBManager.listStoredPlaylists().size());
         } else {
             System.out.println("   • BD deshabilitada: no se guardaron playlists en la nube");
         }
 
         // Mostrar ahorro
-        int totalCanciones = listas.size() * 10;
-        double ahorro = calcularAhorroMemoria(totalCanciones, FabricaCanciones.getTotalCancionesUnicas());
+        double ahorro = calcularAhorroMemoria(informe);
         System.out.println("\n🎯 BENEFICIO DEL PATRÓN FLYWEIGHT:");
-        System.out.println("   • Ahorro de memoria: ~" + ahorro + "%");
-        System.out.println("   • Objetos evitados: " + (totalCanciones - FabricaCanciones.getTotalCancionesUnicas()));
+        System.out.println("   • Ahorro de memoria: " + String.format("%.1f", ahorro) + "%");
+        System.out.println("   • Objetos evitados: " + (informe.referencias - informe.cancionesDistintas));
         
         // Mostrar una muestra de listas
         System.out.println("\n📋 MUESTRA DE LISTAS CREADAS (primeras 3):");
@@ -357,21 +395,20 @@ public class FlyweightMain {
         FabricaCanciones.clearPool();
         FabricaArtistas.clearPool();
 
-        Runtime runtime = Runtime.getRuntime();
-        long beforeUsed = runtime.totalMemory() - runtime.freeMemory();
-
+        long asignadosAntes = MedidorMemoria.asignadosHilo();
         long tiempoInicio = System.currentTimeMillis();
         List<ListaReproduccion> listasLocal = crearListasDinamicasReturn(numeroListas);
         long tiempoFin = System.currentTimeMillis();
-
-        long afterUsed = runtime.totalMemory() - runtime.freeMemory();
+        long asignadosDespues = MedidorMemoria.asignadosHilo();
+        MedidorMemoria.Informe informe = MedidorMemoria.medir(listasLocal);
 
         System.out.println("\nRESULTADOS:");
         System.out.println("   • Total de listas creadas: " + listasLocal.size());
         System.out.println("   • Total de canciones agregadas: " + (listasLocal.size() * 10));
         System.out.println("   • Canciones únicas en pool: " + FabricaCanciones.getTotalCancionesUnicas());
         System.out.println("   • Artistas únicos en pool: " + FabricaArtistas.getTotalArtistasUnicos());
-        System.out.println("   • Memoria usada (MB): " + ((afterUsed - beforeUsed) / 1_000_000.0));
+        imprimirAsignados(asignadosAntes, asignadosDespues);
+        informe.imprimir("   • ");
         System.out.println("   • Tiempo de ejecución: " + (tiempoFin - tiempoInicio) + " ms");
 
         // Ahora movemos las listas a la cache con capacidad limitada y persistimos las menos usadas
@@ -392,6 +429,7 @@ public class FlyweightMain {
         System.out.println("\n🔎 Estado final de la cache:");
         System.out.println("   • Listas en cache (memoria): " + cache.getAll().size());
         if (implementacion.DBManager.isEnabled()) {
+            implementacion.EscritorDiferido.vaciar(); // esperar las escrituras en segundo plano antes de contar
             System.out.println("   • Listas persistidas en BD: " + implementacion.DBManager.listStoredPlaylists().size());
         } else {
             System.out.println("   • BD deshabilitada: no se guardaron playlists en la nube");
@@ -410,11 +448,22 @@ public class FlyweightMain {
     }
     
     /**
-     * Calcula el porcentaje de ahorro de memoria
+     * Porcentaje de heap ahorrado: tamaño retenido medido frente a una copia de la canción por
+     * referencia. Si la JVM no permite recorrer los objetos, se estima por objetos evitados.
      */
-    private static double calcularAhorroMemoria(int objetosTotales, int objetosUnicos) {
-        if (objetosTotales == 0) return 0;
-        return ((objetosTotales - objetosUnicos) * 100.0) / objetosTotales;
+    private static double calcularAhorroMemoria(MedidorMemoria.Informe informe) {
+        if (informe.bytesPools >= 0) return informe.getAhorroPorcentaje();
+        if (informe.referencias == 0) return 0;
+        return ((informe.referencias - informe.cancionesDistintas) * 100.0) / informe.referencias;
+    }
+
+    private static void imprimirAsignados(long antes, long despues) {
+        if (antes < 0 || despues < 0) {
+            System.out.println("   • Bytes asignados: no disponible en esta JVM");
+            return;
+        }
+        System.out.println("   • Bytes asignados por el hilo: " + (despues - antes) + " ("
+                + String.format("%.1f", (despues - antes) / 1_000_000.0) + " MB)");
     }
 
     private static String mask(String s) {
@@ -0,0 +1,137 @@
+package flyweight;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import implementacion.FabricaPoliticasDesalojo;
+import implementacion.ListaReproduccion;
+import implementacion.PlaylistCache;
+
+/**
+ * Simulador de PlaylistCache guiado por una traza de accesos, para comparar políticas de
+ * desalojo con datos antes de elegir una por despliegue (-Dflyweight.cache.politica).
+ *
+ * Por cada acceso se hace lo mismo que la aplicación: get; si falla, se crea la lista y se
+ * agrega; en ambos casos se incrementa su uso. Se informa por política:
+ * - tasa de aciertos y desalojos
+ * - ns por get y ns por inserción tras un fallo (incluye el costo de desalojar)
+ *
+ * Trazas:
+ * - archivo <ruta>: una clave (nombre de playlist) por línea, p. ej. extraída de logs
+ * - zipf [s] [universo] [accesos]: popularidad Zipf estable
+ * - fases [s] [universo] [accesos]: Zipf cuyo conjunto popular cambia 4 veces; muestra el
+ *   problema de LFU con listas que fueron populares y ya no lo son
+ *
+ * Sin BD: el umbral de persistencia es 0, así que los desalojos no se guardan.
+ *
+ * Uso: java flyweight.SimuladorCache [capacidad] [zipf|fases|archivo] [parámetros...]
+ */
+public class SimuladorCache {
+
+    public static void main(String[] args) throws IOException {
+        int capacidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        String tipo = args.length > 1 ? args[1] : "zipf";
+
+        String[] traza;
+        if (tipo.equals("archivo")) {
+            if (args.length < 3) {
+                System.out.println("Falta la ruta del archivo de traza");
+                return;
+            }
+            traza = leerTraza(args[2]);
+        } else {
+            double s = args.length > 2 ? Double.parseDouble(args[2]) : 0.9;
+            int universo = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+            int accesos = args.length > 4 ? Integer.parseInt(args[4]) : 2_000_000;
+            int fases = tipo.equals("fases") ? 4 : 1;
+            traza = generarZipf(s, universo, accesos, fases, 42);
+        }
+
+        System.out.println("Simulación de PlaylistCache");
+        System.out.println("Traza: " + tipo + " (" + traza.length + " accesos), capacidad: " + capacidad + "\n");
+        System.out.printf("%-8s  %10s  %10s  %10s  %14s%n", "política", "aciertos", "desalojos", "ns/get", "ns/inserción");
+
+        for (String politica : FabricaPoliticasDesalojo.obtenerTiposDisponibles()) {
+            simular(politica, capacidad, traza); // calentamiento del JIT
+            Resultado r = simular(politica, capacidad, traza);
+            System.out.printf("%-8s  %9.2f%%  %10d  %10.1f  %14.1f%n", r.nombre, r.tasaAciertos * 100,
+                    r.desalojos, r.nsPorGet, r.nsPorInsercion);
+        }
+    }
+
+    private static final class Resultado {
+        String nombre;
+        double tasaAciertos;
+        long desalojos;
+        double nsPorGet;
+        double nsPorInsercion;
+    }
+
+    private static Resultado simular(String politica, int capacidad, String[] traza) {
+        PlaylistCache cache = new PlaylistCache(capacidad, 0, FabricaPoliticasDesalojo.crear(politica, capacidad));
+        long nsGet = 0, nsInsercion = 0, inserciones = 0;
+
+        for (String clave : traza) {
+            long t0 = System.nanoTime();
+            ListaReproduccion lista = cache.get(clave);
+            long t1 = System.nanoTime();
+            nsGet += t1 - t0;
+            if (lista == null) {
+                lista = new ListaReproduccion(clave);
+                lista.incrementarUso();
+                long t2 = System.nanoTime();
+                cache.add(lista);
+                nsInsercion += System.nanoTime() - t2;
+                inserciones++;
+            } else {
+                lista.incrementarUso();
+            }
+        }
+
+        Resultado r = new Resultado();
+        r.nombre = cache.getPolitica().getNombre();
+        r.tasaAciertos = cache.getAciertos() / (double) traza.length;
+        r.desalojos = cache.getDesalojos();
+        r.nsPorGet = nsGet / (double) traza.length;
+        r.nsPorInsercion = inserciones == 0 ? 0 : nsInsercion / (double) inserciones;
+        return r;
+    }
+
+    private static String[] leerTraza(String ruta) throws IOException {
+        List<String> claves = new ArrayList<>();
+        for (String linea : Files.readAllLines(Paths.get(ruta), StandardCharsets.UTF_8)) {
+            String clave = linea.trim();
+            if (!clave.isEmpty()) claves.add(clave);
+        }
+        return claves.toArray(new String[0]);
+    }
+
+    /**
+     * Traza Zipf: la clave de rango k aparece con probabilidad proporcional a 1/k^s.
+     * Con varias fases, cada fase desplaza los rangos para que otras claves sean las populares.
+     */
+    private static String[] generarZipf(double s, int universo, int accesos, int fases, long semilla) {
+        double[] acumulada = new double[universo];
+        double total = 0;
+        for (int k = 0; k < universo; k++) {
+            total += 1.0 / Math.pow(k + 1, s);
+            acumulada[k] = total;
+        }
+        Random random = new Random(semilla);
+        String[] traza = new String[accesos];
+        int porFase = (accesos + fases - 1) / fases;
+        for (int i = 0; i < accesos; i++) {
+            int rango = Arrays.binarySearch(acumulada, random.nextDouble() * total);
+            if (rango < 0) rango = -rango - 1;
+            int desplazamiento = (i / porFase) * (universo / fases);
+            traza[i] = "Playlist #" + ((rango + desplazamiento) % universo);
+        }
+        return traza;
+    }
+}
@@ -0,0 +1,168 @@
+package implementacion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+/**
+ * AlmacenAudio - guarda el contenido de audio de las canciones fuera de Cancion.
+ *
+ * - Indexado por id de canción y materializado de forma perezosa: listar, persistir o
+ *   desalojar listas nunca toca estos bytes; solo se leen al pedir getDatosCancion().
+ * - Deduplicado por contenido: canciones con bytes idénticos comparten un único búfer.
+ * - El contenido se pide a una Fuente (archivo, BD, red...) la primera vez que se accede.
+ *   Sin fuente, o si la fuente no tiene la canción, se devuelve el búfer de silencio
+ *   compartido de Cancion.SAMPLE_DATA_SIZE bytes (el audio simulado del ejemplo).
+ *
+ * Dos backends:
+ * - heap (por defecto): arreglos de bytes en el heap de Java.
+ * - archivo mapeado (usarArchivoMapeado): segmentos en un archivo append-only mapeado en
+ *   memoria, fuera del heap, para catálogos mayores que el heap sin pausas de GC crecientes.
+ *
+ * Los búferes devueltos son de solo lectura.
+ */
+public class AlmacenAudio {
+    private static volatile BackendAudio backend = new BackendAudioHeap();
+    private static volatile ByteBuffer silencio = ByteBuffer.allocate(0);
+    private static volatile Fuente fuente = null;
+
+    /**
+     * Origen del audio real de una canción
+     */
+    public interface Fuente {
+        /**
+         * @return los bytes de la canción, o null si no hay audio para ese id
+         */
+        byte[] cargar(Long idCancion);
+    }
+
+    /**
+     * Devuelve el audio de la canción, cargándolo de la fuente en el primer acceso.
+     * Si dos hilos la piden a la vez ambos pueden consultar la fuente, pero solo se
+     * almacena una copia.
+     */
+    public static ByteBuffer obtener(Long idCancion) {
+        if (idCancion == null) return silencio();
+        BackendAudio b = backend;
+        ByteBuffer datos = b.leer(idCancion);
+        if (datos != null) return datos;
+        Fuente f = fuente;
+        if (f == null) return silencio();
+        byte[] cargados = f.cargar(idCancion);
+        if (cargados == null || cargados.length == 0) return silencio();
+        return b.escribirSiAusente(idCancion, cargados);
+    }
+
+    /**
+     * Define de dónde se cargan los bytes en el primer acceso (null = solo silencio)
+     */
+    public static void setFuente(Fuente nuevaFuente) {
+        fuente = nuevaFuente;
+    }
+
+    /**
+     * Registra el audio de una canción. Si otra canción ya tiene exactamente el mismo
+     * contenido, se guarda una referencia a ese búfer en lugar de una copia.
+     * Los bytes se copian: el llamador puede reutilizar o modificar datos después.
+     */
+    public static void registrar(Long idCancion, byte[] datos) {
+        if (idCancion == null || datos == null) return;
+        backend.escribir(idCancion, datos);
+    }
+
+    /**
+     * Olvida el audio asociado a una canción. El búfer deduplicado se conserva hasta
+     * clear() porque otras canciones pueden seguir apuntando a él.
+     */
+    public static void liberar(Long idCancion) {
+        if (idCancion != null) backend.liberar(idCancion);
+    }
+
+    /**
+     * Pasa a guardar el audio en directorio/audio.dat (mapeado) con índice en audio.idx.
+     * Si el directorio ya contiene un catálogo, se reabre. El backend anterior se cierra.
+     */
+    public static void usarArchivoMapeado(String directorio) throws IOException {
+        usarArchivoMapeado(directorio, BackendAudioMapeado.TAMANO_REGION_POR_DEFECTO);
+    }
+
+    public static synchronized void usarArchivoMapeado(String directorio, long tamanoRegion) throws IOException {
+        BackendAudio anterior = backend;
+        backend = new BackendAudioMapeado(Paths.get(directorio), tamanoRegion);
+        anterior.cerrar();
+    }
+
+    /**
+     * Vuelve al backend en heap (vacío). El backend anterior se cierra.
+     */
+    public static synchronized void usarHeap() {
+        BackendAudio anterior = backend;
+        backend = new BackendAudioHeap();
+        anterior.cerrar();
+    }
+
+    public static boolean isMapeado() {
+        return backend instanceof BackendAudioMapeado;
+    }
+
+    private static ByteBuffer silencio() {
+        ByteBuffer s = silencio;
+        // SAMPLE_DATA_SIZE es configurable: se rehace el búfer si cambió el tamaño
+        if (s.capacity() != Cancion.SAMPLE_DATA_SIZE) {
+            s = ByteBuffer.allocate(Cancion.SAMPLE_DATA_SIZE).asReadOnlyBuffer();
+            silencio = s;
+        }
+        return s.duplicate();
+    }
+
+    /**
+     * Número de canciones cuyo audio ya se materializó o registró
+     */
+    public static int getCancionesConAudio() {
+        return backend.getCanciones();
+    }
+
+    /**
+     * Número de búferes/segmentos distintos retenidos tras deduplicar
+     */
+    public static int getBuferesUnicos() {
+        return backend.getSegmentosUnicos();
+    }
+
+    /**
+     * Bytes de audio retenidos en el heap (sin contar el búfer de silencio)
+     */
+    public static long getBytesRetenidos() {
+        return backend.getBytesEnHeap();
+    }
+
+    /**
+     * Bytes de audio guardados fuera del heap (0 con el backend en heap)
+     */
+    public static long getBytesFueraDeHeap() {
+        return backend.getBytesFueraDeHeap();
+    }
+
+    /**
+     * Olvida el audio cargado en esta sesión. Con el archivo mapeado no toca audio.dat
+     * ni audio.idx: al reabrir el directorio el audio guardado vuelve a estar disponible.
+     */
+    public static void clear() {
+        backend.clear();
+    }
+
+    /**
+     * Borra todo el audio; con el archivo mapeado también vacía audio.idx y reutiliza
+     * el espacio de audio.dat.
+     */
+    public static void borrar() {
+        backend.borrar();
+    }
+
+    /**
+     * Sincroniza y cierra el backend actual; luego queda un backend en heap vacío.
+     */
+    public static void cerrar() {
+        usarHeap();
+    }
+}
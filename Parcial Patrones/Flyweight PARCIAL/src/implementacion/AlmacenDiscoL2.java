@@ -0,0 +1,277 @@
+package implementacion;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AlmacenDiscoL2 - segundo nivel de cache en disco local, entre PlaylistCache y la BD.
+ *
+ * - Toda lista desalojada de PlaylistCache se guarda aquí (además de ir a la BD según el
+ *   umbral), así que sigue disponible aunque la BD no esté configurada o no responda.
+ * - CargadorPlaylist.desdeBD() consulta este nivel antes que la BD: una lista caliente que
+ *   fue desalojada vuelve en microsegundos en lugar de un viaje por la red.
+ * - Se guarda en un RegistroPlaylists (directorio/playlists.log): append-only con índice en
+ *   memoria, lápidas para los borrados y compactación cuando más de la mitad del archivo
+ *   son versiones viejas o los datos vivos superan MaximoBytes. En ese caso se descartan los
+ *   más viejos hasta FraccionTrasCompactar del tope, así la siguiente compactación por tamaño
+ *   llega recién después de muchas escrituras.
+ * - guardar() y eliminar() solo registran la operación: escribir, compactar y sincronizar lo
+ *   hace un hilo propio, fuera del desalojo de PlaylistCache. Mientras tanto cargar() y
+ *   contiene() responden con la versión pendiente; esperar() aguarda a que llegue al disco.
+ * - El registro sobrevive a reinicios: abrir() rehace el índice desde el archivo.
+ *
+ * Desactivado hasta llamar a abrir(). Con -Dflyweight.l2.directorio=dir, FlyweightMain lo abre
+ * al arrancar. Es local al nodo: si otro proceso modifica la BD, aquí puede quedar una versión
+ * anterior hasta que la lista se vuelva a desalojar.
+ */
+public class AlmacenDiscoL2 {
+    public static final String PROPIEDAD_DIRECTORIO = "flyweight.l2.directorio";
+    public static long MaximoBytes = Long.getLong("flyweight.l2.maximoBytes", 256L << 20);
+    // No se compacta un registro más chico que esto aunque tenga mucho espacio muerto
+    public static long MinimoCompactacion = 4L << 20;
+    // true = force() tras cada escritura (sobrevive a un corte de luz, mucho más lento)
+    public static boolean SincronizarEscrituras = Boolean.getBoolean("flyweight.l2.sincronizar");
+    // Al superar MaximoBytes se compacta hasta esta fracción del tope (nivel bajo)
+    public static double FraccionTrasCompactar = 0.75;
+
+    private static volatile RegistroPlaylists registro;
+    // Nombre -> versión que espera ser escrita (BORRADA = lápida pendiente)
+    private static final Map<String, ListaReproduccion> PENDIENTES = new ConcurrentHashMap<>();
+    private static final ListaReproduccion BORRADA = new ListaReproduccion("");
+    private static final ExecutorService ESCRITOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "almacen-l2");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final LongAdder ACIERTOS = new LongAdder();
+    private static final LongAdder FALLOS = new LongAdder();
+    private static final LongAdder ESCRITAS = new LongAdder();
+    private static final LongAdder COMPACTACIONES = new LongAdder();
+
+    private AlmacenDiscoL2() {
+    }
+
+    /**
+     * Abre (o crea) el registro en el directorio; cierra el anterior si había uno.
+     */
+    public static synchronized void abrir(String directorio) throws IOException {
+        esperar();
+        RegistroPlaylists nuevo = new RegistroPlaylists(Paths.get(directorio), SincronizarEscrituras);
+        RegistroPlaylists anterior = registro;
+        registro = nuevo;
+        if (anterior != null) anterior.cerrar();
+    }
+
+    /**
+     * Abre el directorio de -Dflyweight.l2.directorio si está definido
+     * @return true si quedó abierto
+     */
+    public static boolean abrirDesdePropiedades() {
+        String directorio = System.getProperty(PROPIEDAD_DIRECTORIO);
+        if (directorio == null || directorio.trim().isEmpty()) return false;
+        try {
+            abrir(directorio.trim());
+            System.out.println("[AlmacenDiscoL2] Abierto en " + Paths.get(directorio.trim()).toAbsolutePath()
+                    + " con " + getListas() + " playlists");
+            return true;
+        } catch (IOException e) {
+            System.out.println("[AlmacenDiscoL2] No se pudo abrir " + directorio + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public static boolean isAbierto() {
+        return registro != null;
+    }
+
+    /**
+     * Encola la versión actual de la lista (reemplaza la anterior con el mismo nombre).
+     * Si ya había una versión pendiente se reemplaza y se escribe una sola vez.
+     */
+    public static void guardar(ListaReproduccion lista) {
+        if (registro == null || lista == null || lista.getNombreLista() == null) return;
+        pendiente(lista.getNombreLista(), lista);
+    }
+
+    private static void pendiente(String nombre, ListaReproduccion lista) {
+        if (PENDIENTES.put(nombre, lista) == null) ESCRITOR.execute(() -> escribirPendiente(nombre));
+    }
+
+    /**
+     * Escribe la última versión pendiente del nombre; se ejecuta en el hilo del almacén
+     */
+    private static void escribirPendiente(String nombre) {
+        ListaReproduccion lista;
+        while ((lista = PENDIENTES.get(nombre)) != null) {
+            // null = se cerró con la escritura en cola: no hay dónde guardarla
+            RegistroPlaylists r = registro;
+            try {
+                if (r != null && lista == BORRADA) {
+                    r.eliminar(nombre);
+                } else if (r != null) {
+                    r.escribir(nombre, CompresionPlaylist.comprimir(lista.toBytes()));
+                    ESCRITAS.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[AlmacenDiscoL2] Error guardando " + nombre + ": " + e.getMessage());
+            }
+            // Si llegó otra versión mientras se escribía, se escribe también esa
+            if (PENDIENTES.remove(nombre, lista)) break;
+        }
+        RegistroPlaylists r = registro;
+        if (r == null) return;
+        try {
+            compactarSiHaceFalta(r);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[AlmacenDiscoL2] Error compactando el registro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Espera a que se escriban las listas encoladas hasta ahora
+     */
+    public static void esperar() {
+        try {
+            ESCRITOR.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return la lista guardada con ese nombre, o null si no está (o el registro está dañado)
+     */
+    public static ListaReproduccion cargar(String nombre) {
+        RegistroPlaylists r = registro;
+        if (r == null || nombre == null) return null;
+        ListaReproduccion pendiente = PENDIENTES.get(nombre);
+        if (pendiente != null) {
+            if (pendiente == BORRADA) {
+                FALLOS.increment();
+                return null;
+            }
+            ACIERTOS.increment();
+            return pendiente;
+        }
+        try {
+            byte[] datos = r.leer(nombre);
+            if (datos == null) {
+                FALLOS.increment();
+                return null;
+            }
+            ListaReproduccion lista = FormatoPlaylist.leer(datos);
+            ACIERTOS.increment();
+            return lista;
+        } catch (Exception e) {
+            FALLOS.increment();
+            System.out.println("[AlmacenDiscoL2] Error leyendo " + nombre + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Borra la lista de este nivel (encola una lápida)
+     */
+    public static void eliminar(String nombre) {
+        RegistroPlaylists r = registro;
+        if (r == null || nombre == null) return;
+        if (PENDIENTES.containsKey(nombre) || r.contiene(nombre)) pendiente(nombre, BORRADA);
+    }
+
+    public static boolean contiene(String nombre) {
+        RegistroPlaylists r = registro;
+        if (r == null || nombre == null) return false;
+        ListaReproduccion pendiente = PENDIENTES.get(nombre);
+        return pendiente != null ? pendiente != BORRADA : r.contiene(nombre);
+    }
+
+    /**
+     * Escribe lo pendiente y compacta ahora, sin esperar al umbral
+     */
+    public static void compactar() throws IOException {
+        esperar();
+        RegistroPlaylists r = registro;
+        if (r == null) return;
+        r.compactar(limiteCompactacion(r));
+        COMPACTACIONES.increment();
+    }
+
+    private static void compactarSiHaceFalta(RegistroPlaylists r) throws IOException {
+        long tamano = r.getTamano();
+        long vivos = r.getBytesVivos();
+        if (vivos > MaximoBytes || (tamano >= MinimoCompactacion && vivos * 2 < tamano)) {
+            r.compactar(limiteCompactacion(r));
+            COMPACTACIONES.increment();
+        }
+    }
+
+    /**
+     * Bytes vivos a conservar: todo si entra en el tope; si no, el nivel bajo
+     */
+    private static long limiteCompactacion(RegistroPlaylists r) {
+        return r.getBytesVivos() > MaximoBytes ? (long) (MaximoBytes * FraccionTrasCompactar) : MaximoBytes;
+    }
+
+    /**
+     * Borra todo el contenido del registro (sigue abierto)
+     */
+    public static void vaciar() throws IOException {
+        esperar();
+        RegistroPlaylists r = registro;
+        if (r != null) r.vaciar();
+    }
+
+    public static synchronized void cerrar() {
+        esperar();
+        RegistroPlaylists r = registro;
+        registro = null;
+        if (r == null) return;
+        try {
+            r.cerrar();
+        } catch (IOException e) {
+            System.out.println("[AlmacenDiscoL2] Error cerrando el registro: " + e.getMessage());
+        }
+    }
+
+    public static int getListas() {
+        RegistroPlaylists r = registro;
+        return r != null ? r.getListas() : 0;
+    }
+
+    /**
+     * Tamaño del archivo de registro (vivos + versiones viejas y lápidas)
+     */
+    public static long getTamanoBytes() {
+        RegistroPlaylists r = registro;
+        return r != null ? r.getTamano() : 0;
+    }
+
+    public static long getBytesVivos() {
+        RegistroPlaylists r = registro;
+        return r != null ? r.getBytesVivos() : 0;
+    }
+
+    public static long getAciertos() {
+        return ACIERTOS.sum();
+    }
+
+    public static long getFallos() {
+        return FALLOS.sum();
+    }
+
+    public static long getEscritas() {
+        return ESCRITAS.sum();
+    }
+
+    public static long getCompactaciones() {
+        return COMPACTACIONES.sum();
+    }
+}
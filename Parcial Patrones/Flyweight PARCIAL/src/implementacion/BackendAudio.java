@@ -0,0 +1,53 @@
+package implementacion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Almacenamiento físico del audio detrás de AlmacenAudio (heap o archivo mapeado).
+ * Los búferes devueltos son de solo lectura.
+ */
+interface BackendAudio {
+
+    /**
+     * @return el audio de la canción, o null si no está almacenado
+     */
+    ByteBuffer leer(Long idCancion);
+
+    /**
+     * Guarda el audio (reemplazando el anterior, si lo había)
+     */
+    void escribir(Long idCancion, byte[] datos);
+
+    /**
+     * Guarda el audio solo si la canción aún no tiene; devuelve el que quedó almacenado
+     */
+    ByteBuffer escribirSiAusente(Long idCancion, byte[] datos);
+
+    void liberar(Long idCancion);
+
+    int getCanciones();
+
+    int getSegmentosUnicos();
+
+    /**
+     * Bytes de audio que este backend mantiene dentro del heap de Java
+     */
+    long getBytesEnHeap();
+
+    /**
+     * Bytes de audio fuera del heap (archivo mapeado)
+     */
+    long getBytesFueraDeHeap();
+
+    /**
+     * Olvida el audio de esta sesión en memoria; lo persistido (si lo hay) no se toca
+     */
+    void clear();
+
+    /**
+     * Borra todo el audio, también el persistido
+     */
+    void borrar();
+
+    void cerrar();
+}
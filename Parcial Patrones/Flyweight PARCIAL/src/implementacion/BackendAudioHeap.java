@@ -0,0 +1,116 @@
+package implementacion;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend por defecto: arreglos en el heap, deduplicados por contenido.
+ */
+class BackendAudioHeap implements BackendAudio {
+    // id de canción -> búfer (compartido entre canciones con el mismo contenido)
+    private final Map<Long, byte[]> porCancion = new ConcurrentHashMap<>();
+    // contenido -> búfer único
+    private final Map<Contenido, byte[]> porContenido = new ConcurrentHashMap<>();
+
+    /**
+     * Envoltorio que compara arreglos por contenido para usarlos como clave
+     */
+    private static final class Contenido {
+        private final byte[] datos;
+        private final int hash;
+
+        Contenido(byte[] datos) {
+            this(datos, Arrays.hashCode(datos));
+        }
+
+        Contenido(byte[] datos, int hash) {
+            this.datos = datos;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Contenido && hash == ((Contenido) o).hash
+                    && Arrays.equals(datos, ((Contenido) o).datos);
+        }
+    }
+
+    /**
+     * Búfer único con el contenido de datos. El arreglo del llamador nunca se retiene:
+     * si el contenido es nuevo se guarda una copia, así modificarlo después no altera
+     * el audio almacenado ni la clave de deduplicación.
+     */
+    private byte[] compartir(byte[] datos) {
+        Contenido clave = new Contenido(datos);
+        byte[] existente = porContenido.get(clave);
+        if (existente != null) return existente;
+        return porContenido.computeIfAbsent(new Contenido(datos.clone(), clave.hash), c -> c.datos);
+    }
+
+    @Override
+    public ByteBuffer leer(Long idCancion) {
+        byte[] datos = porCancion.get(idCancion);
+        return datos != null ? ByteBuffer.wrap(datos).asReadOnlyBuffer() : null;
+    }
+
+    @Override
+    public void escribir(Long idCancion, byte[] datos) {
+        porCancion.put(idCancion, compartir(datos));
+    }
+
+    @Override
+    public ByteBuffer escribirSiAusente(Long idCancion, byte[] datos) {
+        byte[] almacenado = porCancion.computeIfAbsent(idCancion, id -> compartir(datos));
+        return ByteBuffer.wrap(almacenado).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void liberar(Long idCancion) {
+        porCancion.remove(idCancion);
+    }
+
+    @Override
+    public int getCanciones() {
+        return porCancion.size();
+    }
+
+    @Override
+    public int getSegmentosUnicos() {
+        return porContenido.size();
+    }
+
+    @Override
+    public long getBytesEnHeap() {
+        long total = 0;
+        for (Contenido c : porContenido.keySet()) total += c.datos.length;
+        return total;
+    }
+
+    @Override
+    public long getBytesFueraDeHeap() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+        porCancion.clear();
+        porContenido.clear();
+    }
+
+    @Override
+    public void borrar() {
+        clear();
+    }
+
+    @Override
+    public void cerrar() {
+        clear();
+    }
+}
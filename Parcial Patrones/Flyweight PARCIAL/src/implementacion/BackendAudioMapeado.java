@@ -0,0 +1,249 @@
+package implementacion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend de audio fuera del heap: un archivo de datos append-only mapeado en memoria
+ * más un índice append-only (id, offset, longitud).
+ *
+ * - audio.dat se mapea por regiones de tamaño fijo; cada canción ocupa un segmento
+ *   contiguo que nunca cruza el borde de una región, así leer() es un slice sin copia.
+ * - audio.idx guarda un registro de 20 bytes por escritura (longitud -1 = borrado) y
+ *   se relee al abrir, de modo que el catálogo sobrevive a reinicios.
+ * - Los bytes viven en la caché de páginas del sistema operativo, no en el heap:
+ *   el GC no los recorre ni los copia y el catálogo puede superar el tamaño del heap.
+ *
+ * Las escrituras se serializan en el monitor de la instancia; las lecturas no bloquean.
+ * Los segmentos con el mismo contenido escritos en la sesión se comparten.
+ */
+class BackendAudioMapeado implements BackendAudio {
+    static final long TAMANO_REGION_POR_DEFECTO = 64L << 20; // 64 MB
+    private static final int TAMANO_REGISTRO_INDICE = 8 + 8 + 4;
+
+    private final long tamanoRegion;
+    private final FileChannel canalDatos;
+    private final FileChannel canalIndice;
+    private final Map<Long, Segmento> segmentos = new ConcurrentHashMap<>();
+    // Huella de contenido -> segmento, para compartir segmentos idénticos (solo esta sesión)
+    private final Map<Integer, Segmento> porHash = new ConcurrentHashMap<>();
+    private volatile MappedByteBuffer[] regiones = new MappedByteBuffer[0];
+    private final ByteBuffer registroIndice = ByteBuffer.allocate(TAMANO_REGISTRO_INDICE).order(ByteOrder.BIG_ENDIAN);
+    private long siguienteOffset = 0;
+    private int segmentosUnicos = 0;
+    private long bytesEscritos = 0;
+
+    private static final class Segmento {
+        private final long offset;
+        private final int longitud;
+
+        Segmento(long offset, int longitud) {
+            this.offset = offset;
+            this.longitud = longitud;
+        }
+    }
+
+    BackendAudioMapeado(Path directorio, long tamanoRegion) throws IOException {
+        if (tamanoRegion <= 0 || tamanoRegion > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamaño de región inválido: " + tamanoRegion);
+        }
+        this.tamanoRegion = tamanoRegion;
+        Files.createDirectories(directorio);
+        Path archivoIndice = directorio.resolve("audio.idx");
+        cargarIndice(archivoIndice);
+        this.canalDatos = FileChannel.open(directorio.resolve("audio.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.canalIndice = FileChannel.open(archivoIndice,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        long tamanoArchivo = canalDatos.size();
+        if (tamanoArchivo > 0) asegurarRegion((int) ((tamanoArchivo - 1) / tamanoRegion));
+    }
+
+    /**
+     * Reconstruye el índice en memoria leyendo audio.idx en bloques (memoria constante).
+     * Un registro incompleto al final (corte durante la escritura) se ignora.
+     */
+    private void cargarIndice(Path archivoIndice) throws IOException {
+        if (!Files.exists(archivoIndice)) return;
+        Set<Long> offsetsVivos = new HashSet<>();
+        try (FileChannel canal = FileChannel.open(archivoIndice, StandardOpenOption.READ)) {
+            ByteBuffer bloque = ByteBuffer.allocate(TAMANO_REGISTRO_INDICE * 4096);
+            while (canal.read(bloque) > 0 || bloque.position() >= TAMANO_REGISTRO_INDICE) {
+                bloque.flip();
+                while (bloque.remaining() >= TAMANO_REGISTRO_INDICE) {
+                    long id = bloque.getLong();
+                    long offset = bloque.getLong();
+                    int longitud = bloque.getInt();
+                    if (longitud < 0) {
+                        segmentos.remove(id);
+                    } else {
+                        segmentos.put(id, new Segmento(offset, longitud));
+                        siguienteOffset = Math.max(siguienteOffset, offset + longitud);
+                    }
+                }
+                bloque.compact();
+            }
+        }
+        for (Segmento s : segmentos.values()) {
+            if (offsetsVivos.add(s.offset)) {
+                segmentosUnicos++;
+                bytesEscritos += s.longitud;
+            }
+        }
+    }
+
+    private void asegurarRegion(int indice) throws IOException {
+        MappedByteBuffer[] actuales = regiones;
+        if (indice < actuales.length) return;
+        MappedByteBuffer[] nuevas = Arrays.copyOf(actuales, indice + 1);
+        for (int i = actuales.length; i <= indice; i++) {
+            // Mapear en READ_WRITE extiende el archivo hasta cubrir la región
+            nuevas[i] = canalDatos.map(FileChannel.MapMode.READ_WRITE, i * tamanoRegion, tamanoRegion);
+        }
+        regiones = nuevas;
+    }
+
+    private ByteBuffer vista(Segmento s) {
+        MappedByteBuffer region = regiones[(int) (s.offset / tamanoRegion)];
+        int posicion = (int) (s.offset % tamanoRegion);
+        ByteBuffer b = region.duplicate();
+        b.position(posicion);
+        b.limit(posicion + s.longitud);
+        return b.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public ByteBuffer leer(Long idCancion) {
+        Segmento s = segmentos.get(idCancion);
+        return s != null ? vista(s) : null;
+    }
+
+    @Override
+    public synchronized void escribir(Long idCancion, byte[] datos) {
+        if (datos.length > tamanoRegion) {
+            throw new IllegalArgumentException("El audio (" + datos.length + " bytes) supera el tamaño de región " + tamanoRegion);
+        }
+        try {
+            int hash = Arrays.hashCode(datos);
+            Segmento s = porHash.get(hash);
+            if (s == null || !vista(s).equals(ByteBuffer.wrap(datos))) {
+                s = anexar(datos);
+                porHash.putIfAbsent(hash, s);
+            }
+            escribirRegistroIndice(idCancion, s.offset, s.longitud);
+            segmentos.put(idCancion, s);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo escribir el audio de la canción " + idCancion, e);
+        }
+    }
+
+    @Override
+    public synchronized ByteBuffer escribirSiAusente(Long idCancion, byte[] datos) {
+        if (!segmentos.containsKey(idCancion)) escribir(idCancion, datos);
+        return leer(idCancion);
+    }
+
+    private Segmento anexar(byte[] datos) throws IOException {
+        long offset = siguienteOffset;
+        // Un segmento nunca cruza el borde de región: si no cabe, empieza en la siguiente
+        if ((offset % tamanoRegion) + datos.length > tamanoRegion) {
+            offset = (offset / tamanoRegion + 1) * tamanoRegion;
+        }
+        int indice = (int) (offset / tamanoRegion);
+        asegurarRegion(indice);
+        ByteBuffer destino = regiones[indice].duplicate();
+        destino.position((int) (offset % tamanoRegion));
+        destino.put(datos);
+        siguienteOffset = offset + datos.length;
+        segmentosUnicos++;
+        bytesEscritos += datos.length;
+        return new Segmento(offset, datos.length);
+    }
+
+    private void escribirRegistroIndice(long id, long offset, int longitud) throws IOException {
+        registroIndice.clear();
+        registroIndice.putLong(id).putLong(offset).putInt(longitud).flip();
+        while (registroIndice.hasRemaining()) canalIndice.write(registroIndice);
+    }
+
+    @Override
+    public synchronized void liberar(Long idCancion) {
+        if (segmentos.remove(idCancion) == null) return;
+        try {
+            escribirRegistroIndice(idCancion, 0, -1);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo registrar el borrado de la canción " + idCancion, e);
+        }
+    }
+
+    @Override
+    public int getCanciones() {
+        return segmentos.size();
+    }
+
+    @Override
+    public synchronized int getSegmentosUnicos() {
+        return segmentosUnicos;
+    }
+
+    @Override
+    public long getBytesEnHeap() {
+        return 0;
+    }
+
+    @Override
+    public synchronized long getBytesFueraDeHeap() {
+        return bytesEscritos;
+    }
+
+    /**
+     * Olvida el índice en memoria sin tocar los archivos: las escrituras siguientes se
+     * anexan detrás de lo existente y al reabrir se vuelve a leer audio.idx completo.
+     */
+    @Override
+    public synchronized void clear() {
+        segmentos.clear();
+        porHash.clear();
+        segmentosUnicos = 0;
+        bytesEscritos = 0;
+    }
+
+    /**
+     * Vacía audio.idx y vuelve a escribir audio.dat desde el principio. El archivo de
+     * datos no se trunca (las regiones siguen mapeadas); los búferes obtenidos antes de
+     * borrar() pueden ver el audio que se escriba después.
+     */
+    @Override
+    public synchronized void borrar() {
+        clear();
+        siguienteOffset = 0;
+        try {
+            canalIndice.truncate(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo vaciar el índice de audio", e);
+        }
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        try {
+            for (MappedByteBuffer r : regiones) r.force();
+            canalIndice.force(false);
+            canalIndice.close();
+            canalDatos.close();
+        } catch (IOException e) {
+            System.out.println("[AlmacenAudio] Error cerrando archivo mapeado: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package implementacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CalentadorCache - precarga en una PlaylistCache las playlists más usadas de la BD al
+ * arrancar, para que las primeras peticiones no sean todas fallos.
+ *
+ * - Pide a la fuente los nombres de las N más usadas (N acotado por la capacidad de la cache)
+ *   y los reparte en tandas de TamanoTanda que varios hilos cargan en paralelo (una consulta
+ *   por tanda). Las tandas salen en orden de puntuación: si el tiempo no alcanza, quedan cargadas
+ *   las más usadas.
+ * - El nodo queda listo (isListo) cuando terminan todas las tandas o se agota el
+ *   presupuesto de tiempo, lo que ocurra primero. Al agotarse el presupuesto no se empiezan
+ *   tandas nuevas; las que estaban en curso terminan y se agregan igual.
+ *
+ * Configuración: -Dflyweight.calentamiento.hilos (conexiones del pool por defecto) y
+ * -Dflyweight.calentamiento.presupuestoMs (10000 por defecto).
+ */
+public class CalentadorCache {
+    public static int Hilos = Integer.getInteger("flyweight.calentamiento.hilos", DBManager.MaximoConexiones);
+    public static long PresupuestoMs = Long.getLong("flyweight.calentamiento.presupuestoMs", 10_000L);
+    public static int TamanoTanda = 100;
+
+    /**
+     * De dónde salen las listas a precargar
+     */
+    public interface Fuente {
+        /**
+         * @return nombres de las playlists con más usos, de mayor a menor
+         */
+        List<String> masUsadas(int limite);
+
+        /**
+         * @return las listas con esos nombres que existan
+         */
+        List<ListaReproduccion> cargar(List<String> nombres);
+
+        static Fuente desdeBD() {
+            return new Fuente() {
+                @Override
+                public List<String> masUsadas(int limite) {
+                    return DBManager.listTopPlaylists(limite);
+                }
+
+                @Override
+                public List<ListaReproduccion> cargar(List<String> nombres) {
+                    return DBManager.loadPlaylists(nombres);
+                }
+            };
+        }
+    }
+
+    private final PlaylistCache cache;
+    private final Fuente fuente;
+    private final CountDownLatch listo = new CountDownLatch(1);
+    private final LongAdder cargadas = new LongAdder();
+    private volatile long duracionMs = -1;
+    private volatile boolean completo;
+
+    public CalentadorCache(PlaylistCache cache) {
+        this(cache, Fuente.desdeBD());
+    }
+
+    public CalentadorCache(PlaylistCache cache, Fuente fuente) {
+        this.cache = cache;
+        this.fuente = fuente;
+    }
+
+    /**
+     * Precarga hasta la capacidad de la cache con el presupuesto por defecto
+     */
+    public boolean calentar() {
+        return calentar(cache.getMaxEntries(), PresupuestoMs);
+    }
+
+    /**
+     * Precarga las limite playlists más usadas (como mucho la capacidad de la cache).
+     * Bloquea hasta terminar o agotar el presupuesto; en ambos casos el nodo queda listo.
+     * @return true si se cargaron todas, false si se agotó el presupuesto
+     */
+    public boolean calentar(int limite, long presupuestoMs) {
+        long inicio = System.nanoTime();
+        long limiteNs = inicio + TimeUnit.MILLISECONDS.toNanos(presupuestoMs);
+        ExecutorService hilos = null;
+        try {
+            List<String> nombres = fuente.masUsadas(Math.min(limite, cache.getMaxEntries()));
+            int porTanda = Math.max(1, TamanoTanda);
+            List<List<String>> tandas = new ArrayList<>();
+            for (int i = 0; i < nombres.size(); i += porTanda) {
+                tandas.add(nombres.subList(i, Math.min(nombres.size(), i + porTanda)));
+            }
+            if (tandas.isEmpty()) {
+                completo = true;
+                return true;
+            }
+
+            int cantidadHilos = Math.max(1, Math.min(Hilos, tandas.size()));
+            AtomicInteger siguiente = new AtomicInteger();
+            AtomicBoolean vencido = new AtomicBoolean();
+            CountDownLatch terminados = new CountDownLatch(cantidadHilos);
+            hilos = Executors.newFixedThreadPool(cantidadHilos, r -> {
+                Thread t = new Thread(r, "calentador-cache");
+                t.setDaemon(true);
+                return t;
+            });
+            for (int h = 0; h < cantidadHilos; h++) {
+                hilos.execute(() -> {
+                    try {
+                        int i;
+                        while (!vencido.get() && (i = siguiente.getAndIncrement()) < tandas.size()) {
+                            for (ListaReproduccion l : fuente.cargar(tandas.get(i))) {
+                                cache.add(l);
+                                cargadas.increment();
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        System.out.println("[CalentadorCache] Error cargando una tanda: " + e.getMessage());
+                    } finally {
+                        terminados.countDown();
+                    }
+                });
+            }
+            long restanteNs = limiteNs - System.nanoTime();
+            completo = terminados.await(Math.max(0, restanteNs), TimeUnit.NANOSECONDS);
+            vencido.set(true);
+            return completo;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (hilos != null) hilos.shutdown();
+            duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            listo.countDown();
+        }
+    }
+
+    /**
+     * Corre calentar() en un hilo aparte; isListo()/esperarListo() indican cuándo terminó
+     */
+    public void calentarEnSegundoPlano(int limite, long presupuestoMs) {
+        Thread t = new Thread(() -> calentar(limite, presupuestoMs), "calentador-cache-inicio");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public boolean isListo() {
+        return listo.getCount() == 0;
+    }
+
+    /**
+     * @return true si el nodo quedó listo antes de que pasaran esperaMs
+     */
+    public boolean esperarListo(long esperaMs) throws InterruptedException {
+        return listo.await(esperaMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * true si terminaron todas las tandas antes del presupuesto
+     */
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    public long getCargadas() {
+        return cargadas.sum();
+    }
+
+    /**
+     * Milisegundos hasta quedar listo (-1 si todavía no)
+     */
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+}
@@ -4,6 +4,8 @@
  */
 package implementacion;
 
+import java.nio.ByteBuffer;
+
 /**
  * Clase Canción - Representa el estado intrínseco (compartido)
  * Ahora incluye una referencia al Artista (también reutilizable)
@@ -12,10 +14,13 @@ public class Cancion {
     private Long id;
     private String nombreCancion;
     private Artista artista; // RETO: Asociación con Artista
+    // Posición en la TablaOrdinales del pool (-1 = fuera del pool); la asigna la tabla
+    int ordinal = -1;
     // Tamaño configurable del arreglo que simula los datos de la canción.
     // Se hace configurable para pruebas y evitar OOM en escenarios de prueba.
     public static int SAMPLE_DATA_SIZE = 10000; // por defecto 10KB (ajustable)
-    private byte[] datosCancion = new byte[SAMPLE_DATA_SIZE]; // Simula el archivo de audio
+    // El audio (antes un byte[] por instancia) vive en AlmacenAudio, indexado por id:
+    // se materializa al pedirlo y canciones con el mismo contenido comparten búfer
     
     public Cancion(Long id, String nombreCancion, Artista artista) {
         this.id = id;
@@ -42,6 +47,18 @@ public class Cancion {
         this.nombreCancion = nombreCancion;
     }
 
+    /**
+     * Audio de la canción, cargado de AlmacenAudio en el primer acceso.
+     * Es una vista de solo lectura (en heap o sobre el archivo mapeado).
+     */
+    public ByteBuffer getDatosCancion() {
+        return AlmacenAudio.obtener(id);
+    }
+
+    public void setDatosCancion(byte[] datosCancion) {
+        AlmacenAudio.registrar(id, datosCancion);
+    }
+
     public Artista getArtista() {
         return artista;
     }
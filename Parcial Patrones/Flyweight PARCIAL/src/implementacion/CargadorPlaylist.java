@@ -0,0 +1,27 @@
+package implementacion;
+
+/**
+ * Origen del que PlaylistCache carga una lista que no está en memoria (modo read-through).
+ */
+public interface CargadorPlaylist {
+
+    /**
+     * @return la lista guardada con ese nombre, o null si no existe
+     */
+    ListaReproduccion cargar(String nombre);
+
+    /**
+     * Carga desde la BD. Antes mira la cola de EscritorDiferido (una lista desalojada que
+     * todavía no se escribió es más nueva que la fila de la BD, o la fila aún no existe) y
+     * luego AlmacenDiscoL2, que responde sin ir a la red y aunque la BD no esté disponible.
+     */
+    static CargadorPlaylist desdeBD() {
+        return nombre -> {
+            ListaReproduccion pendiente = EscritorDiferido.getPendiente(nombre);
+            if (pendiente != null) return pendiente;
+            ListaReproduccion local = AlmacenDiscoL2.cargar(nombre);
+            if (local != null) return local;
+            return DBManager.isEnabled() ? DBManager.loadPlaylist(nombre) : null;
+        };
+    }
+}
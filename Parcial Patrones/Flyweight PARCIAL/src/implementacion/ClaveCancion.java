@@ -0,0 +1,81 @@
+package implementacion;
+
+/**
+ * Clave compuesta (nombre de canción, nombre de artista) del pool de canciones.
+ *
+ * El hash y la igualdad ignoran mayúsculas/minúsculas recorriendo los caracteres en el
+ * lugar, sin construir la cadena "cancion-artista".toLowerCase() de antes. Así una
+ * búsqueda que acierta en el pool no reserva memoria: FabricaCanciones reutiliza una
+ * instancia por hilo como sonda y solo crea una clave nueva al insertar.
+ *
+ * Las claves guardadas en el pool nunca se modifican; solo la sonda se reasigna.
+ */
+final class ClaveCancion {
+    private String nombreCancion;
+    private String nombreArtista;
+    private int hash;
+
+    ClaveCancion() {
+    }
+
+    ClaveCancion(String nombreCancion, String nombreArtista) {
+        asignar(nombreCancion, nombreArtista);
+    }
+
+    /**
+     * Reasigna los componentes (uso exclusivo de la sonda de búsqueda)
+     */
+    ClaveCancion asignar(String nombreCancion, String nombreArtista) {
+        this.nombreCancion = nombreCancion;
+        this.nombreArtista = nombreArtista;
+        this.hash = 31 * hashSinMayusculas(nombreCancion) + hashSinMayusculas(nombreArtista);
+        return this;
+    }
+
+    /**
+     * Suelta las referencias de la sonda para no retener cadenas del llamador
+     */
+    void liberar() {
+        this.nombreCancion = null;
+        this.nombreArtista = null;
+    }
+
+    /**
+     * Mismo plegado de caracteres que String.regionMatches(true, ...) para que
+     * hash e igualdad sean consistentes.
+     */
+    private static int hashSinMayusculas(String s) {
+        if (s == null) return 0;
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return h;
+    }
+
+    private static boolean igualesSinMayusculas(String a, String b) {
+        if (a == b) return true;
+        if (a == null || b == null || a.length() != b.length()) return false;
+        return a.regionMatches(true, 0, b, 0, a.length());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ClaveCancion)) return false;
+        ClaveCancion otra = (ClaveCancion) o;
+        return hash == otra.hash
+                && igualesSinMayusculas(nombreCancion, otra.nombreCancion)
+                && igualesSinMayusculas(nombreArtista, otra.nombreArtista);
+    }
+
+    @Override
+    public String toString() {
+        return nombreCancion + "-" + nombreArtista;
+    }
+}
@@ -0,0 +1,171 @@
+package implementacion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * CompresionPlaylist - compresión opcional de los blobs de playlist antes de guardarlos.
+ *
+ * Sobre comprimido: 'F' 'Z' | algoritmo (1 byte) | longitud original (4 bytes) | datos.
+ * FormatoPlaylist.leer() lo detecta por la cabecera, así que blobs comprimidos y sin
+ * comprimir conviven en la misma tabla y cambiar la configuración no rompe filas viejas.
+ *
+ * Configuración:
+ * - Algoritmo: ninguno (por defecto), deflate o gzip (-Dflyweight.compresion=...)
+ * - TamanoMinimo: blobs más chicos se guardan tal cual (-Dflyweight.compresion.minimo, 256)
+ * - Nivel: nivel de Deflater, 1 (rápido) a 9 (más chico)
+ * Si el resultado no es más chico que el original, se guarda sin comprimir.
+ */
+public final class CompresionPlaylist {
+    public static final String NINGUNO = "ninguno";
+    public static final String DEFLATE = "deflate";
+    public static final String GZIP = "gzip";
+
+    public static String Algoritmo = System.getProperty("flyweight.compresion", NINGUNO);
+    public static int TamanoMinimo = Integer.getInteger("flyweight.compresion.minimo", 256);
+    public static int Nivel = Deflater.DEFAULT_COMPRESSION;
+
+    private static final byte MAGIA_0 = 'F';
+    private static final byte MAGIA_1 = 'Z';
+    private static final int CODIGO_DEFLATE = 1;
+    private static final int CODIGO_GZIP = 2;
+    private static final int LONGITUD_CABECERA = 7;
+    // Límites para la longitud declarada en la cabecera (un blob corrupto no reserva de más):
+    // el tamaño máximo de un registro de playlist y la razón máxima de deflate (~1032:1)
+    private static final int MAXIMO_DESCOMPRIMIDO = 256 << 20;
+    private static final int RAZON_MAXIMA = 1032;
+    // Deflater/Inflater reservan memoria nativa: uno por hilo y se reinician entre usos
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<>();
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private CompresionPlaylist() {
+    }
+
+    /**
+     * Comprime según la configuración actual (o devuelve los mismos bytes)
+     */
+    public static byte[] comprimir(byte[] datos) throws IOException {
+        return comprimir(datos, Algoritmo);
+    }
+
+    public static byte[] comprimir(byte[] datos, String algoritmo) throws IOException {
+        if (datos == null || datos.length < TamanoMinimo || algoritmo == null) return datos;
+        byte[] comprimido;
+        int codigo;
+        switch (algoritmo.trim().toLowerCase()) {
+            case NINGUNO:
+                return datos;
+            case DEFLATE:
+                comprimido = deflate(datos);
+                codigo = CODIGO_DEFLATE;
+                break;
+            case GZIP:
+                comprimido = gzip(datos);
+                codigo = CODIGO_GZIP;
+                break;
+            default:
+                throw new IllegalArgumentException("Algoritmo de compresión desconocido: " + algoritmo);
+        }
+        if (comprimido.length + LONGITUD_CABECERA >= datos.length) return datos;
+        ByteBuffer sobre = ByteBuffer.allocate(LONGITUD_CABECERA + comprimido.length);
+        sobre.put(MAGIA_0).put(MAGIA_1).put((byte) codigo).putInt(datos.length).put(comprimido);
+        return sobre.array();
+    }
+
+    public static boolean esComprimido(byte[] datos) {
+        return datos != null && datos.length >= LONGITUD_CABECERA && datos[0] == MAGIA_0 && datos[1] == MAGIA_1;
+    }
+
+    /**
+     * Quita el sobre si lo hay; si no, devuelve los mismos bytes
+     */
+    public static byte[] descomprimir(byte[] datos) throws IOException {
+        if (!esComprimido(datos)) return datos;
+        ByteBuffer in = ByteBuffer.wrap(datos);
+        in.position(2);
+        int codigo = in.get();
+        int longitud = in.getInt();
+        long maximo = Math.min(MAXIMO_DESCOMPRIMIDO, (long) (datos.length - LONGITUD_CABECERA) * RAZON_MAXIMA);
+        if (longitud < 0 || longitud > maximo) {
+            throw new IOException("Longitud inválida en blob comprimido: " + longitud + " (máximo " + maximo + ")");
+        }
+        switch (codigo) {
+            case CODIGO_DEFLATE:
+                return inflate(datos, LONGITUD_CABECERA, longitud);
+            case CODIGO_GZIP:
+                return gunzip(datos, LONGITUD_CABECERA, longitud);
+            default:
+                throw new IOException("Algoritmo de compresión desconocido en blob: " + codigo);
+        }
+    }
+
+    private static byte[] deflate(byte[] datos) {
+        Deflater d = DEFLATERS.get();
+        if (d == null) {
+            d = new Deflater(Nivel);
+            DEFLATERS.set(d);
+        }
+        d.reset();
+        d.setLevel(Nivel);
+        d.setInput(datos);
+        d.finish();
+        byte[] salida = new byte[datos.length];
+        int total = 0;
+        while (!d.finished()) {
+            if (total == salida.length) salida = Arrays.copyOf(salida, salida.length * 2);
+            total += d.deflate(salida, total, salida.length - total);
+        }
+        return Arrays.copyOf(salida, total);
+    }
+
+    private static byte[] inflate(byte[] datos, int desde, int longitud) throws IOException {
+        Inflater inf = INFLATERS.get();
+        inf.reset();
+        inf.setInput(datos, desde, datos.length - desde);
+        byte[] salida = new byte[longitud];
+        try {
+            int total = 0;
+            // Se sigue hasta finished() para que se verifique la suma Adler-32 del final
+            while (!inf.finished()) {
+                int n = inf.inflate(salida, total, longitud - total);
+                if (n == 0 && (inf.needsInput() || inf.needsDictionary() || total == longitud)) break;
+                total += n;
+            }
+            if (total != longitud || !inf.finished()) throw new IOException("Blob comprimido truncado");
+        } catch (DataFormatException e) {
+            throw new IOException("Blob comprimido corrupto: " + e.getMessage(), e);
+        }
+        return salida;
+    }
+
+    private static byte[] gzip(byte[] datos) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(datos.length / 2 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(baos)) {
+            gz.write(datos);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] datos, int desde, int longitud) throws IOException {
+        byte[] salida = new byte[longitud];
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(datos, desde, datos.length - desde))) {
+            int total = 0;
+            while (total < longitud) {
+                int n = gz.read(salida, total, longitud - total);
+                if (n < 0) throw new IOException("Blob comprimido truncado");
+                total += n;
+            }
+            // Leer más allá del final valida el CRC-32 y la longitud del trailer gzip
+            if (gz.read() != -1) throw new IOException("Blob comprimido con datos de más");
+        }
+        return salida;
+    }
+}
@@ -0,0 +1,172 @@
+package implementacion;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * ContadorUsos - usos de una ListaReproduccion: total exacto y puntuación con decaimiento.
+ *
+ * - El total es un LongAdder: incrementos concurrentes sin pérdidas y, bajo contención,
+ *   repartidos en celdas en lugar de pelear todos por la misma variable.
+ * - La puntuación suma por cada uso un peso que se reduce a la mitad cada VidaMediaMs: una
+ *   lista muy usada el mes pasado y nada desde entonces termina por debajo de una usada hoy.
+ *   Los pesos se acumulan en un DoubleAdder relativos al origen de la época del contador
+ *   (2^(tiempo - origen), en vidas medias), así que incrementar es una suma sin CAS en bucle
+ *   y nunca hace falta recorrer los contadores para decaerlos.
+ * - Cada EPOCA vidas medias el peso crece 2^EPOCA: el primer incremento de la época nueva
+ *   reescala la suma al nuevo origen (una vez por contador). Un incremento que coincide con
+ *   ese cambio puede no contarse en la puntuación; el total no pierde ninguno.
+ * - getLogaritmo() = log2(puntuación) + tiempo / VidaMediaMs no cambia con el paso del tiempo
+ *   y ordena las listas igual que su puntuación actual: es lo que se guarda (blob y columna
+ *   puntuacion de la BD) y lo que usa LFU, cuantizado a PasosPorVidaMedia pasos por vida media.
+ *   Con el valor por defecto (1) cada cubeta LFU cubre un factor 2 de puntuación: las listas
+ *   se reparten en unas pocas decenas de cubetas y un uso solo cambia de cubeta cuando la
+ *   puntuación se duplica.
+ */
+public final class ContadorUsos {
+    public static long VidaMediaMs = Long.getLong("flyweight.usos.vidaMediaMs", 24L * 60 * 60 * 1000);
+    // Fuente de tiempo en ms (reemplazable para simular el paso de los días)
+    public static LongSupplier Reloj = System::currentTimeMillis;
+    public static int PasosPorVidaMedia = Integer.getInteger("flyweight.usos.pasosPorVidaMedia", 1);
+    // Vidas medias por época: los pesos de una época van de 1 a 2^EPOCA
+    private static final int EPOCA = 32;
+    private static final double LN2 = Math.log(2);
+
+    private static final class Epoca {
+        final long numero; // origen = numero * EPOCA vidas medias
+        final DoubleAdder suma = new DoubleAdder();
+
+        Epoca(long numero) {
+            this.numero = numero;
+        }
+    }
+
+    /**
+     * Peso de un uso en un milisegundo dado; se comparte entre contadores y se recalcula
+     * una vez por milisegundo
+     */
+    private static final class Instante {
+        final long ms;
+        final long vidaMediaMs;
+        final double vidas;
+        final long epoca;
+        final double peso;
+
+        Instante(long ms, long vidaMediaMs) {
+            this.ms = ms;
+            this.vidaMediaMs = vidaMediaMs;
+            this.vidas = (double) ms / vidaMediaMs;
+            this.epoca = (long) Math.floor(vidas / EPOCA);
+            this.peso = Math.pow(2, vidas - (double) epoca * EPOCA);
+        }
+    }
+
+    private static volatile Instante instante;
+
+    private final LongAdder total = new LongAdder();
+    // null hasta el primer uso
+    private volatile Epoca epoca;
+
+    private static Instante instante() {
+        long ms = Reloj.getAsLong();
+        long vidaMedia = Math.max(1, VidaMediaMs);
+        Instante i = instante;
+        if (i == null || i.ms != ms || i.vidaMediaMs != vidaMedia) {
+            i = new Instante(ms, vidaMedia);
+            instante = i;
+        }
+        return i;
+    }
+
+    public void incrementar() {
+        total.increment();
+        Instante i = instante();
+        Epoca e = epoca;
+        if (e == null || e.numero != i.epoca) e = cambiarEpoca(i);
+        e.suma.add(i.peso);
+    }
+
+    private synchronized Epoca cambiarEpoca(Instante i) {
+        Epoca e = epoca;
+        if (e != null && e.numero == i.epoca) return e;
+        Epoca nueva = new Epoca(i.epoca);
+        if (e != null) {
+            long diferencia = Math.max(-64, Math.min(64, e.numero - i.epoca));
+            nueva.suma.add(Math.scalb(e.suma.sum(), (int) diferencia * EPOCA));
+        }
+        epoca = nueva;
+        return nueva;
+    }
+
+    /**
+     * Usos totales desde que se creó (o se fijó con setTotal)
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Fija el total y deja la puntuación como si esos usos hubieran ocurrido ahora
+     * (listas leídas de un formato sin puntuación)
+     */
+    public void setTotal(long usos) {
+        total.reset();
+        total.add(usos);
+        setLogaritmo(usos > 0 ? logaritmoDe(usos) : Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Puntuación actual: usos ponderados por antigüedad (un uso de hace una vida media vale 0.5)
+     */
+    public double getPuntuacion() {
+        return puntuacionDe(getLogaritmo());
+    }
+
+    /**
+     * log2(puntuación) + tiempo en vidas medias; -infinito si nunca se usó
+     */
+    public double getLogaritmo() {
+        Epoca e = epoca;
+        double suma = e != null ? e.suma.sum() : 0;
+        if (suma <= 0) return Double.NEGATIVE_INFINITY;
+        return Math.log(suma) / LN2 + (double) e.numero * EPOCA;
+    }
+
+    /**
+     * Restaura una puntuación guardada con getLogaritmo() (sin tocar el total)
+     */
+    public synchronized void setLogaritmo(double logaritmo) {
+        Instante i = instante();
+        Epoca nueva = new Epoca(i.epoca);
+        if (logaritmo > Double.NEGATIVE_INFINITY && !Double.isNaN(logaritmo)) {
+            double exponente = Math.min(1000, logaritmo - (double) i.epoca * EPOCA);
+            nueva.suma.add(Math.pow(2, exponente));
+        }
+        epoca = nueva;
+    }
+
+    /**
+     * Logaritmo de una puntuación medida ahora
+     */
+    public static double logaritmoDe(double puntuacion) {
+        if (puntuacion <= 0) return Double.NEGATIVE_INFINITY;
+        return Math.log(puntuacion) / LN2 + instante().vidas;
+    }
+
+    /**
+     * Puntuación actual que corresponde a un logaritmo guardado
+     */
+    public static double puntuacionDe(double logaritmo) {
+        if (!(logaritmo > Double.NEGATIVE_INFINITY)) return 0;
+        return Math.pow(2, logaritmo - instante().vidas);
+    }
+
+    /**
+     * Logaritmo cuantizado para FrecuenciasLFU (Long.MIN_VALUE = nunca usada)
+     */
+    public static long cuantizar(double logaritmo) {
+        if (!(logaritmo > Double.NEGATIVE_INFINITY)) return Long.MIN_VALUE;
+        return (long) Math.floor(logaritmo * PasosPorVidaMedia);
+    }
+}
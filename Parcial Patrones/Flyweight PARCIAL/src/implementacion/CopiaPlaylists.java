@@ -0,0 +1,274 @@
+package implementacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * CopiaPlaylists - exportación e importación masiva de playlists y catálogo con
+ * COPY ... (FORMAT binary) del driver de PostgreSQL (lib/postgres).
+ *
+ * - Exportar escribe un directorio con archivos de FilasPorArchivo filas como mucho:
+ *   artistas-000001.copy, canciones-000001.copy, playlists-000001.copy... Cada archivo es
+ *   un rango de claves (id o name) y se vuelca directo del driver al disco, así que la
+ *   memoria no depende del tamaño de la tabla.
+ * - Importar carga los archivos en orden (artistas, canciones, playlists) con una
+ *   transacción por archivo: COPY a una tabla temporal y de ahí upsert a la tabla real
+ *   (las playlists se sobrescriben; el catálogo conserva las filas existentes).
+ * - Si la BD destino ya tiene un catálogo y un id del archivo pertenece ahí a otra canción
+ *   u otro artista (nombre o artista distinto), la importación de ese archivo se revierte
+ *   y falla con SQLException: las playlists importadas guardan ids y cargarían la canción
+ *   equivocada. El punto de control no avanza, así que tras resolver el choque se retoma.
+ * - punto-control.properties registra lo terminado: si el proceso se corta, la misma
+ *   llamada retoma desde el último archivo completo.
+ *
+ * La exportación no es una foto consistente: las filas escritas durante la exportación
+ * pueden quedar fuera (o dentro) según su clave.
+ */
+public class CopiaPlaylists {
+    public static int FilasPorArchivo = Integer.getInteger("flyweight.copia.filasPorArchivo", 100_000);
+    public static final String PUNTO_CONTROL = "punto-control.properties";
+    private static final int TAMANO_BUFER = 1 << 16;
+
+    /**
+     * Tablas en orden de importación (las referenciadas primero)
+     */
+    private enum Tabla {
+        // DO NOTHING solo deja pasar filas iguales a las existentes: las distintas se
+        // rechazan antes con la verificación
+        ARTISTAS("artistas", "id", "id, nombre, genero, pais", "DO NOTHING",
+                "lower(btrim(t.nombre)) <> lower(btrim(i.nombre))"),
+        CANCIONES("canciones", "id", "id, nombre, artista_id", "DO NOTHING",
+                "lower(btrim(t.nombre)) <> lower(btrim(i.nombre)) OR t.artista_id IS DISTINCT FROM i.artista_id"),
+        PLAYLISTS("playlists", "name", "name, data, usos, puntuacion, updated_at",
+                "DO UPDATE SET data = EXCLUDED.data, usos = EXCLUDED.usos, puntuacion = EXCLUDED.puntuacion, "
+                        + "updated_at = EXCLUDED.updated_at", null);
+
+        final String nombre;
+        final String clave;
+        final String columnas;
+        final String conflicto;
+        // Condición (t = fila existente, i = fila importada) de un choque de ids; null = sin verificar
+        final String distinta;
+
+        Tabla(String nombre, String clave, String columnas, String conflicto, String distinta) {
+            this.nombre = nombre;
+            this.clave = clave;
+            this.columnas = columnas;
+            this.conflicto = conflicto;
+            this.distinta = distinta;
+        }
+
+        boolean claveNumerica() {
+            return clave.equals("id");
+        }
+
+        String archivo(int numero) {
+            return String.format("%s-%06d.copy", nombre, numero);
+        }
+    }
+
+    private CopiaPlaylists() {
+    }
+
+    /**
+     * Exporta las tres tablas al directorio (lo crea si falta), retomando el punto de control.
+     * @return filas exportadas en esta llamada
+     */
+    public static long exportar(Path directorio) throws IOException, SQLException {
+        if (!DBManager.isEnabled()) throw new SQLException("Persistencia deshabilitada", "08003");
+        Files.createDirectories(directorio);
+        Properties control = leerControl(directorio);
+        long filas = 0;
+        for (Tabla t : Tabla.values()) {
+            String prefijo = "exportacion." + t.nombre + ".";
+            if (Boolean.parseBoolean(control.getProperty(prefijo + "terminada"))) continue;
+            String ultima = control.getProperty(prefijo + "ultimaClave");
+            int archivos = Integer.parseInt(control.getProperty(prefijo + "archivos", "0"));
+            while (true) {
+                String hasta = siguienteLimite(t, ultima);
+                if (hasta == null) break;
+                Path archivo = directorio.resolve(t.archivo(archivos + 1));
+                filas += copiarAArchivo(t, ultima, hasta, archivo);
+                archivos++;
+                ultima = hasta;
+                control.setProperty(prefijo + "ultimaClave", ultima);
+                control.setProperty(prefijo + "archivos", String.valueOf(archivos));
+                guardarControl(directorio, control);
+            }
+            control.setProperty(prefijo + "terminada", "true");
+            guardarControl(directorio, control);
+        }
+        return filas;
+    }
+
+    /**
+     * Importa los archivos del directorio que todavía no figuran como importados.
+     * @return filas importadas en esta llamada
+     */
+    public static long importar(Path directorio) throws IOException, SQLException {
+        if (!DBManager.isEnabled()) throw new SQLException("Persistencia deshabilitada", "08003");
+        DBManager.ensureTableExists();
+        Properties control = leerControl(directorio);
+        long filas = 0;
+        for (Tabla t : Tabla.values()) {
+            for (Path archivo : archivosDe(directorio, t)) {
+                String marca = "importacion." + archivo.getFileName();
+                if (Boolean.parseBoolean(control.getProperty(marca))) continue;
+                filas += copiarDesdeArchivo(t, archivo);
+                control.setProperty(marca, "true");
+                guardarControl(directorio, control);
+            }
+        }
+        // Los ids del catálogo importado no deben reutilizarse en esta sesión
+        DBManager.ensureTableExists();
+        return filas;
+    }
+
+    /**
+     * Última clave del próximo bloque de FilasPorArchivo filas después de desde (null = no hay más)
+     */
+    private static String siguienteLimite(Tabla t, String desde) throws SQLException {
+        String sql = "SELECT MAX(" + t.clave + ") FROM (SELECT " + t.clave + " FROM " + t.nombre
+                + (desde != null ? " WHERE " + t.clave + " > ?" : "")
+                + " ORDER BY " + t.clave + " LIMIT ?) bloque";
+        return DBManager.conConexion(c -> {
+            PreparedStatement ps = c.preparar(sql);
+            int i = 1;
+            if (desde != null) {
+                if (t.claveNumerica()) ps.setLong(i++, Long.parseLong(desde));
+                else ps.setString(i++, desde);
+            }
+            ps.setInt(i, Math.max(1, FilasPorArchivo));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        });
+    }
+
+    private static long copiarAArchivo(Tabla t, String desde, String hasta, Path archivo) throws IOException, SQLException {
+        // COPY no admite parámetros: las claves van como literales escapados
+        String sql = "COPY (SELECT " + t.columnas + " FROM " + t.nombre + " WHERE "
+                + (desde != null ? t.clave + " > " + literal(t, desde) + " AND " : "")
+                + t.clave + " <= " + literal(t, hasta) + ") TO STDOUT (FORMAT binary)";
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try {
+            long filas = DBManager.conConexion(c -> {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporal), TAMANO_BUFER)) {
+                    return copia(c.getConexion()).copyOut(sql, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return filas;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private static long copiarDesdeArchivo(Tabla t, Path archivo) throws IOException, SQLException {
+        String temporal = "importacion_" + t.nombre;
+        try {
+            return DBManager.conConexion(c -> {
+                Connection conn = c.getConexion();
+                conn.setAutoCommit(false);
+                try (Statement st = conn.createStatement();
+                     InputStream in = new BufferedInputStream(Files.newInputStream(archivo), TAMANO_BUFER)) {
+                    st.execute("CREATE TEMP TABLE IF NOT EXISTS " + temporal + " (LIKE " + t.nombre
+                            + " INCLUDING DEFAULTS) ON COMMIT DELETE ROWS");
+                    long filas = copia(conn).copyIn("COPY " + temporal + " (" + t.columnas + ") FROM STDIN (FORMAT binary)", in);
+                    verificarIds(st, t, temporal, archivo);
+                    st.executeUpdate("INSERT INTO " + t.nombre + " (" + t.columnas + ") SELECT " + t.columnas
+                            + " FROM " + temporal + " ON CONFLICT (" + t.clave + ") " + t.conflicto);
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                    return filas;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Falla si algún id importado ya pertenece en la BD a otra fila del catálogo (la
+     * transacción se revierte al devolver la conexión)
+     */
+    private static void verificarIds(Statement st, Tabla t, String temporal, Path archivo) throws SQLException {
+        if (t.distinta == null) return;
+        List<Long> choques = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery("SELECT i.id FROM " + temporal + " i JOIN " + t.nombre
+                + " t ON t.id = i.id WHERE " + t.distinta + " ORDER BY i.id LIMIT 10")) {
+            while (rs.next()) choques.add(rs.getLong(1));
+        }
+        if (!choques.isEmpty()) {
+            throw new SQLException("Importación de " + archivo.getFileName() + " cancelada: los ids " + choques
+                    + " de " + t.nombre + " ya pertenecen en la BD a otras filas", "23505");
+        }
+    }
+
+    private static CopyManager copia(Connection conn) throws SQLException {
+        return conn.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    private static String literal(Tabla t, String clave) {
+        if (t.claveNumerica()) return String.valueOf(Long.parseLong(clave));
+        return "'" + clave.replace("'", "''") + "'";
+    }
+
+    private static List<Path> archivosDe(Path directorio, Tabla t) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio, t.nombre + "-*.copy")) {
+            for (Path p : ds) archivos.add(p);
+        }
+        // Los números tienen ancho fijo: el orden alfabético es el de exportación
+        archivos.sort(null);
+        return archivos;
+    }
+
+    private static Properties leerControl(Path directorio) throws IOException {
+        Properties control = new Properties();
+        Path archivo = directorio.resolve(PUNTO_CONTROL);
+        if (Files.exists(archivo)) {
+            try (InputStream in = Files.newInputStream(archivo)) {
+                control.load(in);
+            }
+        }
+        return control;
+    }
+
+    /**
+     * Escribe el punto de control en un temporal y lo renombra: nunca queda a medio escribir
+     */
+    private static void guardarControl(Path directorio, Properties control) throws IOException {
+        Path temporal = directorio.resolve(PUNTO_CONTROL + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporal)) {
+            control.store(out, "Punto de control de CopiaPlaylists");
+        }
+        Files.move(temporal, directorio.resolve(PUNTO_CONTROL), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
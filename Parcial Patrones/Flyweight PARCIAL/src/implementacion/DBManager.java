@@ -6,16 +6,75 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DBManager - gestor robusto para conectar a Postgres (Supabase)
  *
  * Lee configuración de System properties (-D), env vars o archivo supabase.properties.
+ *
+ * Las operaciones toman una conexión de un pool acotado (PoolConexiones) y reutilizan sus
+ * sentencias preparadas, así que varios hilos pueden guardar y cargar en paralelo. Si una
+ * operación falla porque la conexión se cayó, se reintenta una vez con una conexión nueva.
+ *
+ * Catálogo normalizado: canciones y artistas se guardan una vez en sus tablas y cada
+ * playlist guarda solo los ids de sus canciones (FormatoPlaylist.escribirIds). Al cargar,
+ * los ids se resuelven contra FabricaCanciones (y, si faltan, contra el catálogo), así que
+ * las listas recargadas comparten las instancias del pool.
+ * Los ids del catálogo los reparte cada cliente a partir del MAX(id) que leyó al conectar, así
+ * que otro proceso puede haber guardado otra canción con el mismo id. Tras insertar, el
+ * catálogo se compara con la BD: las canciones cuyo id ya pertenece a otra fila quedan en
+ * conflicto y las playlists que las contienen se guardan completas, nunca como ids que
+ * cargarían la canción de otro.
  */
 public class DBManager {
-    private static Connection conn = null;
+    private static volatile PoolConexiones pool = null;
+    // Conexiones simultáneas como máximo, espera por una libre e inactividad antes de cerrarla
+    public static int MaximoConexiones = Integer.getInteger("flyweight.bd.conexiones", 4);
+    public static long EsperaConexionMs = 30_000;
+    public static long InactividadMaximaMs = 5 * 60_000;
+    // false = guardar cada playlist con sus canciones completas (sin tablas de catálogo)
+    public static boolean CatalogoNormalizado = !Boolean.getBoolean("flyweight.bd.sinCatalogo");
+    // Ids ya escritos en el catálogo desde que se abrió la conexión (para no repetir inserts)
+    private static final Set<Long> CANCIONES_EN_CATALOGO = ConcurrentHashMap.newKeySet();
+    private static final Set<Long> ARTISTAS_EN_CATALOGO = ConcurrentHashMap.newKeySet();
+    // Ids que en la BD pertenecen a otra canción/artista (guardados por otro proceso)
+    private static final Set<Long> CANCIONES_EN_CONFLICTO = ConcurrentHashMap.newKeySet();
+    private static final Set<Long> ARTISTAS_EN_CONFLICTO = ConcurrentHashMap.newKeySet();
+    // Filas por lote (y por transacción) en savePlaylists
+    public static int TamanoLote = Integer.getInteger("flyweight.bd.lote", 500);
+
+    // puntuacion = ContadorUsos.getLogaritmo(): ordenar por ella es ordenar por la puntuación actual
+    private static final String SQL_UPSERT = "INSERT INTO playlists(name, data, usos, puntuacion, updated_at) VALUES(?, ?, ?, ?, now()) " +
+            "ON CONFLICT (name) DO UPDATE SET data = EXCLUDED.data, usos = EXCLUDED.usos, " +
+            "puntuacion = EXCLUDED.puntuacion, updated_at = now()";
+    private static final String SQL_CARGAR = "SELECT data FROM playlists WHERE name = ?";
+    private static final String SQL_CARGAR_VARIAS = "SELECT data FROM playlists WHERE name = ANY(?)";
+    private static final String SQL_LISTAR = "SELECT name FROM playlists ORDER BY updated_at DESC";
+    private static final String SQL_MAS_USADAS = "SELECT name FROM playlists " +
+            "ORDER BY puntuacion DESC NULLS LAST, usos DESC, updated_at DESC LIMIT ?";
+    private static final String SQL_DETALLES = "SELECT name, usos, puntuacion, updated_at FROM playlists ORDER BY updated_at DESC";
+    private static final String SQL_ARTISTA = "INSERT INTO artistas(id, nombre, genero, pais) VALUES(?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    private static final String SQL_CANCION = "INSERT INTO canciones(id, nombre, artista_id) VALUES(?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    private static final String SQL_VERIFICAR_ARTISTAS = "SELECT id, nombre FROM artistas WHERE id = ANY(?)";
+    private static final String SQL_VERIFICAR_CANCIONES = "SELECT id, nombre, artista_id FROM canciones WHERE id = ANY(?)";
+    private static final String SQL_CATALOGO = "SELECT c.id, c.nombre, a.id, a.nombre, a.genero, a.pais " +
+            "FROM canciones c LEFT JOIN artistas a ON a.id = c.artista_id WHERE c.id = ANY(?)";
+
+    /**
+     * Trabajo a hacer con una conexión del pool
+     */
+    interface Operacion<T> {
+        T ejecutar(PoolConexiones.Conexion c) throws SQLException;
+    }
 
     public static void initFromEnv() {
         String databaseUrl = System.getProperty("SUPABASE_DATABASE_URL");
@@ -59,7 +118,10 @@ public class DBManager {
             // Si ya es JDBC, conéctese directamente
             if (databaseUrl.startsWith("jdbc:postgresql://")) {
                 Class.forName("org.postgresql.Driver");
-                conn = DriverManager.getConnection(databaseUrl);
+                Properties props = new Properties();
+                // El driver reescribe los lotes de INSERT como INSERT multi-fila
+                props.setProperty("reWriteBatchedInserts", "true");
+                conectar(() -> DriverManager.getConnection(databaseUrl, props));
                 ensureTableExists();
                 System.out.println("[DBManager] Conectado (JDBC direct). URL: " + maskJdbc(databaseUrl));
                 return;
@@ -91,32 +153,77 @@ public class DBManager {
             Properties props = new Properties();
             if (user != null) props.setProperty("user", user);
             if (pass != null) props.setProperty("password", pass);
+            props.setProperty("reWriteBatchedInserts", "true");
 
             // Forzar sslmode=require si no está presente (Supabase lo necesita)
             if (!jdbc.contains("sslmode")) jdbc += "?sslmode=require";
 
             Class.forName("org.postgresql.Driver");
-            conn = DriverManager.getConnection(jdbc, props);
+            String url = jdbc;
+            conectar(() -> DriverManager.getConnection(url, props));
             ensureTableExists();
             System.out.println("[DBManager] Conectado (Supabase/Postgres). JDBC: " + maskJdbc(jdbc));
 
         } catch (URISyntaxException use) {
             System.out.println("[DBManager] URI inválida: " + use.getMessage());
             use.printStackTrace(System.out);
-            conn = null;
+            pool = null;
         } catch (ClassNotFoundException cnf) {
             System.out.println("[DBManager] Driver PostgreSQL no encontrado en classpath: " + cnf.getMessage());
             cnf.printStackTrace(System.out);
-            conn = null;
+            pool = null;
         } catch (SQLException sqle) {
             System.out.println("[DBManager] SQLException al conectar: " + sqle.getMessage());
             sqle.printStackTrace(System.out);
-            conn = null;
+            pool = null;
         } catch (Exception e) {
             System.out.println("[DBManager] Error inicializando conexión: " + e.getMessage());
             if (jdbc != null) System.out.println("[DBManager] JDBC (masked) = " + maskJdbc(jdbc));
             e.printStackTrace(System.out);
-            conn = null;
+            pool = null;
+        }
+    }
+
+    /**
+     * Reemplaza el pool actual por uno nuevo y abre una conexión para verificar los datos.
+     */
+    private static void conectar(PoolConexiones.Fabrica fabrica) throws SQLException {
+        PoolConexiones anterior = pool;
+        pool = null;
+        if (anterior != null) anterior.cerrar();
+        PoolConexiones nuevo = new PoolConexiones(fabrica, MaximoConexiones, InactividadMaximaMs);
+        try {
+            nuevo.devolver(nuevo.tomar(EsperaConexionMs), false);
+        } catch (SQLException e) {
+            nuevo.cerrar();
+            throw e;
+        }
+        pool = nuevo;
+        CANCIONES_EN_CATALOGO.clear();
+        ARTISTAS_EN_CATALOGO.clear();
+        CANCIONES_EN_CONFLICTO.clear();
+        ARTISTAS_EN_CONFLICTO.clear();
+    }
+
+    /**
+     * Ejecuta la operación con una conexión del pool. Si falla por un error de conexión, la
+     * conexión se descarta y se reintenta una vez con otra (reconexión).
+     */
+    static <T> T conConexion(Operacion<T> operacion) throws SQLException {
+        for (int intento = 0; ; intento++) {
+            PoolConexiones p = pool;
+            if (p == null) throw new SQLException("Persistencia deshabilitada", "08003");
+            PoolConexiones.Conexion c = p.tomar(EsperaConexionMs);
+            boolean rota = false;
+            try {
+                return operacion.ejecutar(c);
+            } catch (SQLException e) {
+                rota = PoolConexiones.esErrorDeConexion(e, c);
+                if (!rota || intento > 0) throw e;
+                System.out.println("[DBManager] Conexión perdida, reintentando con una nueva: " + e.getMessage());
+            } finally {
+                p.devolver(c, rota);
+            }
         }
     }
 
@@ -129,19 +236,47 @@ public class DBManager {
         }
     }
 
-    private static void ensureTableExists() {
-        if (conn == null) return;
+    static void ensureTableExists() {
+        if (pool == null) return;
         String ddl = "CREATE TABLE IF NOT EXISTS playlists (" +
-                     "name TEXT PRIMARY KEY, data BYTEA NOT NULL, usos BIGINT DEFAULT 0, updated_at TIMESTAMP DEFAULT NOW()" +
-                     ")";
-        try (Statement st = conn.createStatement()) {
-            st.execute(ddl);
+                     "name TEXT PRIMARY KEY, data BYTEA NOT NULL, usos BIGINT DEFAULT 0, puntuacion DOUBLE PRECISION, " +
+                     "updated_at TIMESTAMP DEFAULT NOW())";
+        // Tablas creadas antes de la puntuación con decaimiento
+        String ddlPuntuacion = "ALTER TABLE playlists ADD COLUMN IF NOT EXISTS puntuacion DOUBLE PRECISION";
+        String ddlArtistas = "CREATE TABLE IF NOT EXISTS artistas (" +
+                     "id BIGINT PRIMARY KEY, nombre TEXT NOT NULL, genero TEXT, pais TEXT)";
+        String ddlCanciones = "CREATE TABLE IF NOT EXISTS canciones (" +
+                     "id BIGINT PRIMARY KEY, nombre TEXT NOT NULL, artista_id BIGINT REFERENCES artistas(id))";
+        try {
+            conConexion(c -> {
+                try (Statement st = c.getConexion().createStatement()) {
+                    st.execute(ddl);
+                    st.execute(ddlPuntuacion);
+                    st.execute(ddlArtistas);
+                    st.execute(ddlCanciones);
+                    reservarIdsGuardados(st);
+                    return null;
+                }
+            });
         } catch (SQLException e) {
-            System.out.println("[DBManager] Error creando/verificando tabla playlists: " + e.getMessage());
+            System.out.println("[DBManager] Error creando/verificando tablas playlists/catálogo: " + e.getMessage());
             e.printStackTrace(System.out);
         }
     }
 
+    /**
+     * Los ids nuevos de esta sesión no deben chocar con los ya guardados (también los de otros
+     * procesos que comparten la BD)
+     */
+    private static void reservarIdsGuardados(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM canciones")) {
+            if (rs.next()) FabricaCanciones.reservarIds(rs.getLong(1));
+        }
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM artistas")) {
+            if (rs.next()) FabricaArtistas.reservarIds(rs.getLong(1));
+        }
+    }
+
     private static boolean isNullOrEmpty(String s) {
         return s == null || s.trim().isEmpty();
     }
@@ -162,66 +297,463 @@ public class DBManager {
     }
 
     public static boolean isEnabled() {
-        try {
-            return conn != null && !conn.isClosed();
-        } catch (SQLException e) {
-            return false;
-        }
+        PoolConexiones p = pool;
+        return p != null && !p.isCerrado();
     }
 
+    /**
+     * Guarda una playlist con esos usos (la puntuación queda como si fueran usos de ahora)
+     */
     public static void savePlaylist(String name, byte[] data, long usos) {
+        savePlaylist(name, data, usos, ContadorUsos.logaritmoDe(usos));
+    }
+
+    /**
+     * @param puntuacionLog puntuación con decaimiento (ListaReproduccion.getPuntuacionLog())
+     */
+    public static void savePlaylist(String name, byte[] data, long usos, double puntuacionLog) {
         if (!isEnabled()) {
             System.out.println("[DBManager] Persistencia deshabilitada - no se guarda: " + name);
             return;
         }
-        String sql = "INSERT INTO playlists(name, data, usos, updated_at) VALUES(?, ?, ?, now()) " +
-                     "ON CONFLICT (name) DO UPDATE SET data = EXCLUDED.data, usos = EXCLUDED.usos, updated_at = now()";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            ps.setBytes(2, data);
-            ps.setLong(3, usos);
-            ps.executeUpdate();
+        try {
+            byte[] blob = CompresionPlaylist.comprimir(data);
+            conConexion(c -> {
+                PreparedStatement ps = c.preparar(SQL_UPSERT);
+                ps.setString(1, name);
+                ps.setBytes(2, blob);
+                ps.setLong(3, usos);
+                setPuntuacion(ps, 4, puntuacionLog);
+                return ps.executeUpdate();
+            });
             System.out.println("[DBManager] Playlist guardada: " + name + " (usos=" + usos + ")");
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             System.out.println("[DBManager] Error guardando playlist: " + e.getMessage());
             e.printStackTrace(System.out);
         }
     }
 
+    /**
+     * Una lista nunca usada (-infinito) queda en NULL, al final del orden de SQL_MAS_USADAS
+     */
+    private static void setPuntuacion(PreparedStatement ps, int indice, double puntuacionLog) throws SQLException {
+        if (puntuacionLog > Double.NEGATIVE_INFINITY && puntuacionLog < Double.POSITIVE_INFINITY) {
+            ps.setDouble(indice, puntuacionLog);
+        } else {
+            ps.setNull(indice, Types.DOUBLE);
+        }
+    }
+
+    /**
+     * Guarda varias playlists con lotes JDBC: un viaje a la BD y una transacción por cada
+     * TamanoLote filas, en lugar de uno por playlist. Si un lote falla se revierte solo ese
+     * lote y se sigue con el siguiente; un error en el catálogo solo afecta a las playlists
+     * que lo provocan, que se guardan completas.
+     * @return cantidad de playlists guardadas
+     */
+    public static int savePlaylists(Collection<ListaReproduccion> listas) {
+        return savePlaylists(listas, null);
+    }
+
+    /**
+     * Como savePlaylists(listas), e informa qué listas no se guardaron por un error de la BD
+     * (y que vale la pena reintentar); las que no se pudieron serializar no se agregan.
+     * @param fallidas recibe las listas no guardadas (null = no informar)
+     */
+    static int savePlaylists(Collection<ListaReproduccion> listas, Collection<ListaReproduccion> fallidas) {
+        if (listas == null || listas.isEmpty()) return 0;
+        if (!isEnabled()) {
+            System.out.println("[DBManager] Persistencia deshabilitada - no se guardan " + listas.size() + " playlists");
+            if (fallidas != null) fallidas.addAll(listas);
+            return 0;
+        }
+        // Serializar antes de tomar la conexión: así no se la retiene mientras tanto
+        List<ListaReproduccion> validas = new ArrayList<>(listas.size());
+        List<byte[]> datos = new ArrayList<>(listas.size());
+        List<Boolean> soloIds = new ArrayList<>(listas.size());
+        Map<Long, Cancion> catalogo = new LinkedHashMap<>();
+        for (ListaReproduccion l : listas) {
+            try {
+                byte[] d = CatalogoNormalizado && !tieneConflicto(l) ? FormatoPlaylist.escribirIds(l) : null;
+                boolean ids = d != null;
+                if (ids) {
+                    for (Cancion c : l.getCanciones()) {
+                        if (!CANCIONES_EN_CATALOGO.contains(c.getId())) catalogo.putIfAbsent(c.getId(), c);
+                    }
+                } else {
+                    d = l.toBytes();
+                }
+                datos.add(d);
+                soloIds.add(ids);
+                validas.add(l);
+            } catch (IOException ex) {
+                System.out.println("[DBManager] Error serializando playlist " + l.getNombreLista() + ": " + ex.getMessage());
+            }
+        }
+        int lote = Math.max(1, TamanoLote);
+        int[] guardadas = {0};
+        int[] desde = {0};
+        try {
+            // Primero el catálogo: una playlist guardada nunca referencia ids que no estén en él
+            if (!catalogo.isEmpty()) guardarCatalogoAislado(validas, datos, soloIds, catalogo.values(), lote);
+            // Las listas con canciones cuyo id resultó ser de otra fila (o cuyo catálogo no se
+            // pudo guardar) se guardan completas
+            for (int i = 0; i < validas.size(); i++) {
+                ListaReproduccion l = validas.get(i);
+                try {
+                    if (datos.get(i) == null || (soloIds.get(i) && tieneConflicto(l))) datos.set(i, l.toBytes());
+                    datos.set(i, CompresionPlaylist.comprimir(datos.get(i)));
+                } catch (IOException ex) {
+                    System.out.println("[DBManager] Error serializando playlist " + l.getNombreLista() + ": " + ex.getMessage());
+                    validas.remove(i);
+                    datos.remove(i);
+                    soloIds.remove(i);
+                    i--;
+                }
+            }
+            // Si la conexión se cae a mitad, el reintento sigue desde el primer lote sin confirmar
+            conConexion(c -> {
+                Connection conn = c.getConexion();
+                conn.setAutoCommit(false);
+                PreparedStatement ps = c.preparar(SQL_UPSERT);
+                while (desde[0] < validas.size()) {
+                    int hasta = Math.min(validas.size(), desde[0] + lote);
+                    for (int i = desde[0]; i < hasta; i++) {
+                        ListaReproduccion l = validas.get(i);
+                        ps.setString(1, l.getNombreLista());
+                        ps.setBytes(2, datos.get(i));
+                        ps.setLong(3, l.getUsos());
+                        setPuntuacion(ps, 4, l.getPuntuacionLog());
+                        ps.addBatch();
+                    }
+                    int enLote = ejecutarLote(c, ps, hasta - desde[0]);
+                    if (enLote == 0 && fallidas != null) fallidas.addAll(validas.subList(desde[0], hasta));
+                    guardadas[0] += enLote;
+                    desde[0] = hasta;
+                }
+                conn.setAutoCommit(true);
+                return null;
+            });
+        } catch (SQLException e) {
+            System.out.println("[DBManager] Error guardando lote de playlists: " + e.getMessage());
+            e.printStackTrace(System.out);
+            // Lo confirmado llega hasta desde[0]; el resto no se guardó
+            if (fallidas != null) fallidas.addAll(validas.subList(desde[0], validas.size()));
+        }
+        return guardadas[0];
+    }
+
+    /**
+     * Guarda el catálogo de todo el lote en una transacción. Si la BD la rechaza por los datos
+     * (no por la conexión), se reintenta playlist por playlist: las que siguen fallando pasan
+     * a guardarse completas (datos queda en null para reserializarlas) y el resto del lote
+     * no se ve afectado.
+     */
+    private static void guardarCatalogoAislado(List<ListaReproduccion> listas, List<byte[]> datos,
+                                               List<Boolean> soloIds, Collection<Cancion> catalogo, int lote)
+            throws SQLException {
+        try {
+            conConexion(c -> guardarCatalogo(c, catalogo, lote));
+            return;
+        } catch (SQLException e) {
+            if (esErrorDeConexion(e)) throw e;
+            System.out.println("[DBManager] Error guardando el catálogo del lote, se reintenta por playlist: "
+                    + e.getMessage());
+        }
+        int aisladas = 0;
+        for (int i = 0; i < listas.size(); i++) {
+            if (!soloIds.get(i)) continue;
+            Map<Long, Cancion> propias = new LinkedHashMap<>();
+            for (Cancion c : listas.get(i).getCanciones()) {
+                if (!CANCIONES_EN_CATALOGO.contains(c.getId())) propias.putIfAbsent(c.getId(), c);
+            }
+            if (propias.isEmpty()) continue;
+            try {
+                conConexion(c -> guardarCatalogo(c, propias.values(), lote));
+            } catch (SQLException e) {
+                if (esErrorDeConexion(e)) throw e;
+                System.out.println("[DBManager] Catálogo rechazado para la playlist " + listas.get(i).getNombreLista()
+                        + ", se guarda completa: " + e.getMessage());
+                soloIds.set(i, false);
+                datos.set(i, null);
+                aisladas++;
+            }
+        }
+        if (aisladas > 0) {
+            System.out.println("[DBManager] " + aisladas + " playlists guardadas completas por errores de catálogo");
+        }
+    }
+
+    /**
+     * true si el error es de conexión (SQLState 08xxx): reintentar por partes no serviría
+     */
+    private static boolean esErrorDeConexion(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && estado.startsWith("08");
+    }
+
+    /**
+     * Inserta (si faltan) los artistas y canciones dados, en lotes y en una transacción.
+     */
+    private static Void guardarCatalogo(PoolConexiones.Conexion c, Collection<Cancion> canciones, int lote)
+            throws SQLException {
+        Map<Long, Artista> artistas = new LinkedHashMap<>();
+        for (Cancion cancion : canciones) {
+            Artista a = cancion.getArtista();
+            if (a != null && a.getId() != null && !ARTISTAS_EN_CATALOGO.contains(a.getId())) {
+                artistas.putIfAbsent(a.getId(), a);
+            }
+        }
+        Connection conn = c.getConexion();
+        conn.setAutoCommit(false);
+        PreparedStatement psArtista = c.preparar(SQL_ARTISTA);
+        int enLote = 0;
+        for (Artista a : artistas.values()) {
+            psArtista.setLong(1, a.getId());
+            psArtista.setString(2, a.getNombreArtista());
+            psArtista.setString(3, a.getGeneroMusical());
+            psArtista.setString(4, a.getPais());
+            psArtista.addBatch();
+            if (++enLote % lote == 0) psArtista.executeBatch();
+        }
+        if (enLote % lote != 0) psArtista.executeBatch();
+
+        PreparedStatement psCancion = c.preparar(SQL_CANCION);
+        enLote = 0;
+        for (Cancion cancion : canciones) {
+            if (cancion.getNombreCancion() == null) continue; // sin datos que guardar
+            Artista a = cancion.getArtista();
+            psCancion.setLong(1, cancion.getId());
+            psCancion.setString(2, cancion.getNombreCancion());
+            if (a != null && a.getId() != null) psCancion.setLong(3, a.getId());
+            else psCancion.setNull(3, Types.BIGINT);
+            psCancion.addBatch();
+            if (++enLote % lote == 0) psCancion.executeBatch();
+        }
+        if (enLote % lote != 0) psCancion.executeBatch();
+
+        // ON CONFLICT DO NOTHING no distingue "ya estaba esta canción" de "otro proceso usó
+        // el mismo id para otra": se compara lo guardado con lo nuestro
+        Set<Long> artistasEnConflicto = new HashSet<>();
+        if (!artistas.isEmpty()) {
+            PreparedStatement ps = c.preparar(SQL_VERIFICAR_ARTISTAS);
+            ps.setArray(1, conn.createArrayOf("bigint", artistas.keySet().toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Artista a = artistas.get(rs.getLong(1));
+                    if (a != null && !mismoNombre(a.getNombreArtista(), rs.getString(2))) artistasEnConflicto.add(a.getId());
+                }
+            }
+        }
+        Map<Long, Cancion> porId = new LinkedHashMap<>();
+        for (Cancion cancion : canciones) porId.put(cancion.getId(), cancion);
+        Set<Long> cancionesEnConflicto = new HashSet<>();
+        PreparedStatement psVerificar = c.preparar(SQL_VERIFICAR_CANCIONES);
+        psVerificar.setArray(1, conn.createArrayOf("bigint", porId.keySet().toArray()));
+        try (ResultSet rs = psVerificar.executeQuery()) {
+            while (rs.next()) {
+                Cancion cancion = porId.get(rs.getLong(1));
+                if (cancion == null) continue;
+                long artistaGuardado = rs.getLong(3);
+                Long artistaGuardadoId = rs.wasNull() ? null : artistaGuardado;
+                Artista a = cancion.getArtista();
+                Long artistaId = a != null ? a.getId() : null;
+                boolean coincide = mismoNombre(cancion.getNombreCancion(), rs.getString(2))
+                        && Objects.equals(artistaId, artistaGuardadoId)
+                        && (artistaId == null || !(artistasEnConflicto.contains(artistaId) || ARTISTAS_EN_CONFLICTO.contains(artistaId)));
+                if (!coincide) cancionesEnConflicto.add(cancion.getId());
+            }
+        }
+        // Ids ajenos en la BD: los próximos de esta sesión deben empezar después de ellos
+        if (!cancionesEnConflicto.isEmpty() || !artistasEnConflicto.isEmpty()) {
+            try (Statement st = conn.createStatement()) {
+                reservarIdsGuardados(st);
+            }
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+
+        long maxArtista = 0, maxCancion = 0;
+        for (Artista a : artistas.values()) {
+            if (artistasEnConflicto.contains(a.getId())) ARTISTAS_EN_CONFLICTO.add(a.getId());
+            else ARTISTAS_EN_CATALOGO.add(a.getId());
+            maxArtista = Math.max(maxArtista, a.getId());
+        }
+        for (Cancion cancion : canciones) {
+            if (cancionesEnConflicto.contains(cancion.getId())) CANCIONES_EN_CONFLICTO.add(cancion.getId());
+            else CANCIONES_EN_CATALOGO.add(cancion.getId());
+            maxCancion = Math.max(maxCancion, cancion.getId());
+        }
+        if (!cancionesEnConflicto.isEmpty()) {
+            System.out.println("[DBManager] " + cancionesEnConflicto.size() + " canciones con ids que en la BD son de otra"
+                    + " canción (otro proceso); sus playlists se guardan completas");
+        }
+        // Ya están en la BD: clearPool() no debe volver a repartirlos
+        FabricaArtistas.reservarIds(maxArtista);
+        FabricaCanciones.reservarIds(maxCancion);
+        return null;
+    }
+
+    /**
+     * true si alguna canción de la lista tiene un id que en la BD pertenece a otra
+     */
+    private static boolean tieneConflicto(ListaReproduccion lista) {
+        if (CANCIONES_EN_CONFLICTO.isEmpty()) return false;
+        for (Cancion c : lista.getCanciones()) {
+            if (c != null && CANCIONES_EN_CONFLICTO.contains(c.getId())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Igualdad de nombres como la de los pools (sin distinguir mayúsculas)
+     */
+    private static boolean mismoNombre(String propio, String guardado) {
+        if (propio == null || guardado == null) return propio == guardado;
+        return propio.trim().equalsIgnoreCase(guardado.trim());
+    }
+
+    /**
+     * Busca en el catálogo las canciones con esos ids y las rehidrata en FabricaCanciones
+     * (quedan accesibles con FabricaCanciones.buscarPorId). Los ids inexistentes se ignoran.
+     */
+    public static void cargarCanciones(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty() || !isEnabled()) return;
+        try {
+            conConexion(c -> {
+                PreparedStatement ps = c.preparar(SQL_CATALOGO);
+                ps.setArray(1, c.getConexion().createArrayOf("bigint", ids.toArray()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long idArtista = rs.getLong(3);
+                        Artista artista = rs.wasNull() ? null
+                                : new Artista(idArtista, rs.getString(4), rs.getString(5), rs.getString(6));
+                        FabricaCanciones.rehidratar(rs.getLong(1), rs.getString(2), artista);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.out.println("[DBManager] Error cargando canciones del catálogo: " + e.getMessage());
+            e.printStackTrace(System.out);
+        }
+    }
+
+    private static int ejecutarLote(PoolConexiones.Conexion c, PreparedStatement ps, int filas) throws SQLException {
+        try {
+            ps.executeBatch();
+            c.getConexion().commit();
+            return filas;
+        } catch (SQLException e) {
+            // Sin conexión no se puede revertir ni seguir: conConexion decide si reintentar
+            if (PoolConexiones.esErrorDeConexion(e, c)) throw e;
+            ps.clearBatch();
+            c.getConexion().rollback();
+            System.out.println("[DBManager] Error en lote de " + filas + " playlists, se revierte: " + e.getMessage());
+            return 0;
+        }
+    }
+
     public static ListaReproduccion loadPlaylist(String name) {
         if (!isEnabled()) {
             System.out.println("[DBManager] Persistencia deshabilitada - no se puede cargar: " + name);
             return null;
         }
-        String sql = "SELECT data FROM playlists WHERE name = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    byte[] data = rs.getBytes(1);
-                    try {
-                        return ListaReproduccion.fromBytes(data);
-                    } catch (Exception ex) {
-                        System.out.println("[DBManager] Error deserializando playlist: " + ex.getMessage());
-                        return null;
+        byte[] data;
+        try {
+            data = conConexion(c -> {
+                PreparedStatement ps = c.preparar(SQL_CARGAR);
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getBytes(1) : null;
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("[DBManager] Error cargando playlist: " + e.getMessage());
+            e.printStackTrace(System.out);
+            return null;
+        }
+        if (data == null) return null;
+        try {
+            return ListaReproduccion.fromBytes(data);
+        } catch (Exception ex) {
+            System.out.println("[DBManager] Error deserializando playlist: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Carga varias playlists con una sola consulta (las que no existan se omiten).
+     */
+    public static List<ListaReproduccion> loadPlaylists(Collection<String> names) {
+        List<ListaReproduccion> result = new ArrayList<>();
+        if (names == null || names.isEmpty() || !isEnabled()) return result;
+        List<byte[]> blobs = new ArrayList<>(names.size());
+        try {
+            conConexion(c -> {
+                blobs.clear();
+                PreparedStatement ps = c.preparar(SQL_CARGAR_VARIAS);
+                ps.setArray(1, c.getConexion().createArrayOf("text", names.toArray()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        blobs.add(rs.getBytes(1));
                     }
                 }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.out.println("[DBManager] Error cargando playlists: " + e.getMessage());
+            e.printStackTrace(System.out);
+            return result;
+        }
+        for (byte[] data : blobs) {
+            try {
+                result.add(ListaReproduccion.fromBytes(data));
+            } catch (Exception ex) {
+                System.out.println("[DBManager] Error deserializando playlist: " + ex.getMessage());
             }
+        }
+        return result;
+    }
+
+    /**
+     * Nombres de las playlists con mayor puntuación (usos con decaimiento), de mayor a menor.
+     */
+    public static List<String> listTopPlaylists(int limit) {
+        List<String> result = new ArrayList<>();
+        if (!isEnabled() || limit <= 0) return result;
+        try {
+            conConexion(c -> {
+                result.clear();
+                PreparedStatement ps = c.preparar(SQL_MAS_USADAS);
+                ps.setInt(1, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getString(1));
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.out.println("[DBManager] Error cargando playlist: " + e.getMessage());
+            System.out.println("[DBManager] Error listando playlists más usadas: " + e.getMessage());
             e.printStackTrace(System.out);
         }
-        return null;
+        return result;
     }
 
     public static List<String> listStoredPlaylists() {
         List<String> result = new ArrayList<>();
         if (!isEnabled()) return result;
-        String sql = "SELECT name FROM playlists ORDER BY updated_at DESC";
-        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                result.add(rs.getString(1));
-            }
+        try {
+            conConexion(c -> {
+                result.clear();
+                try (ResultSet rs = c.preparar(SQL_LISTAR).executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getString(1));
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("[DBManager] Error listando playlists: " + e.getMessage());
             e.printStackTrace(System.out);
@@ -234,35 +766,51 @@ public class DBManager {
             System.out.println("[DBManager] BD deshabilitada - no hay datos para mostrar.");
             return;
         }
-        String sql = "SELECT name, usos, updated_at FROM playlists ORDER BY updated_at DESC";
-        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            System.out.println("\n╔══════════════════════════════════════════════╗");
-            System.out.println("║  Playlists almacenadas en la base de datos   ║");
-            System.out.println("╠══════════════════════════════════════════════╣");
-            int count = 0;
-            while (rs.next()) {
-                String name = rs.getString("name");
-                long usos = rs.getLong("usos");
-                Timestamp updated = rs.getTimestamp("updated_at");
-                System.out.printf("║  %3d. %-30s  usos=%4d  updated=%s%n", ++count, name, usos, updated);
-            }
-            if (count == 0) System.out.println("║  (No hay playlists almacenadas)");
-            System.out.println("╚══════════════════════════════════════════════╝\n");
+        try {
+            conConexion(c -> {
+                try (ResultSet rs = c.preparar(SQL_DETALLES).executeQuery()) {
+                    imprimirDetalles(rs);
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("[DBManager] Error obteniendo detalles de playlists: " + e.getMessage());
             e.printStackTrace(System.out);
         }
     }
 
+    private static void imprimirDetalles(ResultSet rs) throws SQLException {
+        System.out.println("\n╔══════════════════════════════════════════════╗");
+        System.out.println("║  Playlists almacenadas en la base de datos   ║");
+        System.out.println("╠══════════════════════════════════════════════╣");
+        int count = 0;
+        while (rs.next()) {
+            String name = rs.getString("name");
+            long usos = rs.getLong("usos");
+            double puntuacion = rs.getDouble("puntuacion");
+            if (rs.wasNull()) puntuacion = Double.NEGATIVE_INFINITY;
+            Timestamp updated = rs.getTimestamp("updated_at");
+            System.out.printf("║  %3d. %-30s  usos=%4d  puntuación=%7.1f  updated=%s%n", ++count, name, usos,
+                    ContadorUsos.puntuacionDe(puntuacion), updated);
+        }
+        if (count == 0) System.out.println("║  (No hay playlists almacenadas)");
+        System.out.println("╚══════════════════════════════════════════════╝\n");
+    }
+
+    /**
+     * Escribe lo que quede en la cola de EscritorDiferido y luego cierra la conexión.
+     */
     public static void close() {
-        try {
-            if (conn != null && !conn.isClosed()) {
-                conn.close();
-                conn = null;
-                System.out.println("[DBManager] Conexión cerrada.");
-            }
-        } catch (SQLException e) {
-            System.out.println("[DBManager] Error cerrando conexión: " + e.getMessage());
+        EscritorDiferido.detener();
+        if (EscritorDiferido.getPerdidas() > 0) {
+            System.out.println("[DBManager] Atención: " + EscritorDiferido.getPerdidas()
+                    + " playlists desalojadas no se pudieron guardar en la BD");
+        }
+        PoolConexiones p = pool;
+        pool = null;
+        if (p != null && !p.isCerrado()) {
+            p.cerrar();
+            System.out.println("[DBManager] Conexión cerrada.");
         }
     }
 
@@ -276,8 +824,12 @@ public class DBManager {
             return false;
         }
         String sql = "TRUNCATE TABLE playlists";
-        try (Statement st = conn.createStatement()) {
-            st.execute(sql);
+        try {
+            conConexion(c -> {
+                try (Statement st = c.getConexion().createStatement()) {
+                    return st.execute(sql);
+                }
+            });
             System.out.println("[DBManager] Tabla 'playlists' vaciada correctamente.");
             return true;
         } catch (SQLException e) {
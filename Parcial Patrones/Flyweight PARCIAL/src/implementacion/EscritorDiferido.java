@@ -0,0 +1,286 @@
+package implementacion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EscritorDiferido - persistencia write-behind de las listas desalojadas de PlaylistCache.
+ *
+ * - encolar() solo registra la lista: serializar y guardar en la BD lo hace un hilo de fondo,
+ *   fuera del camino de add().
+ * - Coalescencia: si una lista con el mismo nombre ya espera en la cola, se reemplaza por la
+ *   nueva versión y se escribe una sola vez.
+ * - Cola acotada (CapacidadCola nombres distintos): cuando se llena, encolar() bloquea al
+ *   llamador hasta que el escritor libere lugar (contrapresión en vez de memoria sin límite).
+ * - El hilo toma hasta TamanoLote listas por vuelta y las guarda con DBManager.savePlaylists().
+ * - Las listas que la BD no acepta se reintentan hasta MaximoReintentos veces, esperando
+ *   EsperaReintentoMs, 2x, 4x...; mientras tanto getPendiente() las sigue devolviendo. Si se
+ *   agotan los intentos se cuentan en getPerdidas() y se avisa por consola (la copia en
+ *   AlmacenDiscoL2, si está abierto, sigue disponible).
+ * - vaciar() espera a que no quede nada pendiente; DBManager.close() llama a detener(), que
+ *   vacía la cola antes de cerrar la conexión.
+ */
+public class EscritorDiferido {
+    // false = cada desalojo se guarda en el hilo que llama (comportamiento anterior)
+    public static boolean Habilitado = !Boolean.getBoolean("flyweight.escritura.sincronica");
+    public static int CapacidadCola = 10_000;
+    public static int TamanoLote = 500;
+    public static int MaximoReintentos = 3;
+    public static long EsperaReintentoMs = 500;
+
+    private static final Map<String, ListaReproduccion> PENDIENTES = new ConcurrentHashMap<>();
+    // Tomadas por el hilo y todavía no confirmadas en la BD (para getPendiente)
+    private static final Map<String, ListaReproduccion> EN_ESCRITURA = new ConcurrentHashMap<>();
+    private static final Object MONITOR = new Object();
+    private static final LongAdder ESCRITAS = new LongAdder();
+    private static final LongAdder COALESCIDAS = new LongAdder();
+    private static final LongAdder ESPERAS = new LongAdder();
+    private static final LongAdder PERDIDAS = new LongAdder();
+
+    // Protegidos por MONITOR
+    private static BlockingQueue<String> cola;
+    private static Semaphore cupos;
+    private static Thread hilo;
+    private static int enCurso = 0;
+
+    /**
+     * Agrega la lista a la cola de escritura. Bloquea si la cola está llena.
+     */
+    public static void encolar(ListaReproduccion lista) {
+        if (lista == null || lista.getNombreLista() == null) return;
+        if (!Habilitado) {
+            escribir(lista);
+            return;
+        }
+        String nombre = lista.getNombreLista();
+        Semaphore s;
+        BlockingQueue<String> c;
+        synchronized (MONITOR) {
+            iniciar();
+            s = cupos;
+            c = cola;
+            // Ya había una versión esperando: se reemplaza y ocupa el mismo lugar en la cola
+            if (PENDIENTES.put(nombre, lista) != null) {
+                COALESCIDAS.increment();
+                return;
+            }
+            enCurso++;
+        }
+        while (true) {
+            if (!s.tryAcquire()) {
+                ESPERAS.increment();
+                s.acquireUninterruptibly();
+            }
+            c.add(nombre);
+            synchronized (MONITOR) {
+                if (cola == c) return;
+                // detener() retiró esta cola entre la reserva y el add: si el hilo viejo ya no la
+                // tomó (pudo haber salido), se pasa a la cola del hilo actual
+                if (!c.remove(nombre)) return;
+                s.release();
+                iniciar();
+                s = cupos;
+                c = cola;
+            }
+        }
+    }
+
+    /**
+     * Espera a que se escriban (o se den por perdidas) todas las listas encoladas hasta ahora.
+     * @return false si alguna lista se perdió mientras se esperaba, o si se interrumpió la espera
+     */
+    public static boolean vaciar() {
+        long perdidas = PERDIDAS.sum();
+        synchronized (MONITOR) {
+            while (enCurso > 0) {
+                try {
+                    MONITOR.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return PERDIDAS.sum() == perdidas;
+    }
+
+    /**
+     * Vacía la cola y detiene el hilo escritor. Un encolar() posterior lo vuelve a iniciar.
+     * El hilo escribe todo lo que quede en su cola antes de salir; un encolar() que llegue a
+     * agregar después a la cola retirada lo detecta y la pasa a un hilo nuevo.
+     */
+    public static void detener() {
+        while (true) {
+            vaciar();
+            Thread h;
+            synchronized (MONITOR) {
+                h = hilo;
+                hilo = null;
+                cola = null;
+                cupos = null;
+            }
+            if (h != null) {
+                h.interrupt();
+                try {
+                    h.join(1_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // Un encolar() concurrente pudo iniciar otro hilo mientras se detenía este
+            synchronized (MONITOR) {
+                if ((enCurso == 0 && hilo == null) || Thread.currentThread().isInterrupted()) return;
+            }
+        }
+    }
+
+    /**
+     * Versión de la lista que espera ser escrita (o se está escribiendo), o null.
+     * Quien lee de la BD debe consultarla antes: es más nueva que la fila guardada.
+     */
+    public static ListaReproduccion getPendiente(String nombre) {
+        if (nombre == null) return null;
+        ListaReproduccion lista = PENDIENTES.get(nombre);
+        return lista != null ? lista : EN_ESCRITURA.get(nombre);
+    }
+
+    public static int getPendientes() {
+        synchronized (MONITOR) {
+            return enCurso;
+        }
+    }
+
+    public static long getEscritas() {
+        return ESCRITAS.sum();
+    }
+
+    /**
+     * Escrituras evitadas porque la misma lista ya estaba en la cola
+     */
+    public static long getCoalescidas() {
+        return COALESCIDAS.sum();
+    }
+
+    /**
+     * Listas que no se pudieron guardar después de todos los reintentos
+     */
+    public static long getPerdidas() {
+        return PERDIDAS.sum();
+    }
+
+    /**
+     * Veces que encolar() tuvo que esperar por la cola llena
+     */
+    public static long getEsperasPorCapacidad() {
+        return ESPERAS.sum();
+    }
+
+    private static void iniciar() {
+        if (hilo != null) return;
+        int capacidad = Math.max(1, CapacidadCola);
+        BlockingQueue<String> c = new ArrayBlockingQueue<>(capacidad);
+        Semaphore s = new Semaphore(capacidad);
+        cola = c;
+        cupos = s;
+        hilo = new Thread(() -> bucle(c, s), "escritor-diferido");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private static void bucle(BlockingQueue<String> c, Semaphore s) {
+        List<String> nombres = new ArrayList<>();
+        while (true) {
+            try {
+                String primero = c.poll(200, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    continue;
+                }
+                nombres.add(primero);
+            } catch (InterruptedException e) {
+                // detener() solo interrumpe con la cola vacía
+                if (c.isEmpty()) return;
+                Thread.currentThread().interrupt();
+            }
+            c.drainTo(nombres, Math.max(1, TamanoLote) - nombres.size());
+            List<ListaReproduccion> lote = new ArrayList<>(nombres.size());
+            for (String nombre : nombres) {
+                // Quitarla de PENDIENTES antes de escribir: un encolar() posterior vuelve a encolarla.
+                // Se publica en EN_ESCRITURA antes de quitarla para que getPendiente() no la pierda.
+                ListaReproduccion lista;
+                do {
+                    lista = PENDIENTES.get(nombre);
+                    if (lista == null) break;
+                    EN_ESCRITURA.put(nombre, lista);
+                } while (!PENDIENTES.remove(nombre, lista));
+                if (lista != null) lote.add(lista);
+            }
+            int tomados = nombres.size();
+            s.release(tomados);
+            nombres.clear();
+            try {
+                escribirLote(lote);
+            } finally {
+                // Pase lo que pase con el lote, vaciar() no debe quedar esperándolo
+                for (ListaReproduccion lista : lote) EN_ESCRITURA.remove(lista.getNombreLista(), lista);
+                synchronized (MONITOR) {
+                    enCurso -= tomados;
+                    MONITOR.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda el lote reintentando las listas que fallan; las que agotan los intentos se
+     * cuentan como perdidas
+     */
+    private static void escribirLote(List<ListaReproduccion> lote) {
+        List<ListaReproduccion> pendientes = lote;
+        for (int intento = 0; ; intento++) {
+            List<ListaReproduccion> fallidas = new ArrayList<>();
+            try {
+                // Un solo lote JDBC (y una transacción por DBManager.TamanoLote filas)
+                ESCRITAS.add(DBManager.savePlaylists(pendientes, fallidas));
+            } catch (Throwable e) {
+                // Guardar es un upsert: reintentar también las que quizás sí se guardaron
+                System.out.println("[EscritorDiferido] Error escribiendo lote de " + pendientes.size() + " playlists: " + e);
+                fallidas = new ArrayList<>(pendientes);
+            }
+            // Si ya se encoló una versión más nueva, esa reemplaza a la fallida
+            fallidas.removeIf(l -> PENDIENTES.containsKey(l.getNombreLista()));
+            if (fallidas.isEmpty()) return;
+            if (intento >= MaximoReintentos) {
+                perder(fallidas, "tras " + (intento + 1) + " intentos");
+                return;
+            }
+            try {
+                Thread.sleep(Math.max(0, EsperaReintentoMs) << Math.min(intento, 10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                perder(fallidas, "por interrupción del escritor");
+                return;
+            }
+            pendientes = fallidas;
+        }
+    }
+
+    private static void perder(List<ListaReproduccion> listas, String motivo) {
+        PERDIDAS.add(listas.size());
+        System.out.println("[EscritorDiferido] No se guardaron " + listas.size() + " playlists en la BD " + motivo
+                + " (p. ej. " + listas.get(0).getNombreLista() + ")");
+    }
+
+    private static void escribir(ListaReproduccion lista) {
+        // Mismo camino que el hilo: savePlaylists también guarda el catálogo de canciones
+        ESCRITAS.add(DBManager.savePlaylists(Collections.singletonList(lista)));
+    }
+}
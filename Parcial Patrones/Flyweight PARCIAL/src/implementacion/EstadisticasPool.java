@@ -0,0 +1,96 @@
+package implementacion;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de un pool Flyweight (aciertos, fallos, creaciones y recolectados).
+ *
+ * Usa LongAdder para que el registro en el camino caliente no serialice a los hilos:
+ * cada hilo incrementa su propia celda y la suma solo se calcula al pedir una instantánea.
+ */
+public class EstadisticasPool {
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder creaciones = new LongAdder();
+    private final LongAdder recolectados = new LongAdder();
+
+    public void registrarAcierto() {
+        aciertos.increment();
+    }
+
+    public void registrarFallo() {
+        fallos.increment();
+    }
+
+    public void registrarCreacion() {
+        creaciones.increment();
+    }
+
+    public void registrarRecolectado() {
+        recolectados.increment();
+    }
+
+    /**
+     * Copia inmutable de los contadores en este instante.
+     */
+    public Instantanea instantanea() {
+        return new Instantanea(aciertos.sum(), fallos.sum(), creaciones.sum(), recolectados.sum());
+    }
+
+    public void reiniciar() {
+        aciertos.reset();
+        fallos.reset();
+        creaciones.reset();
+        recolectados.reset();
+    }
+
+    /**
+     * Valores de los contadores en un momento dado
+     */
+    public static final class Instantanea {
+        private final long aciertos;
+        private final long fallos;
+        private final long creaciones;
+        private final long recolectados;
+
+        public Instantanea(long aciertos, long fallos, long creaciones, long recolectados) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.creaciones = creaciones;
+            this.recolectados = recolectados;
+        }
+
+        public long getAciertos() {
+            return aciertos;
+        }
+
+        public long getFallos() {
+            return fallos;
+        }
+
+        public long getCreaciones() {
+            return creaciones;
+        }
+
+        public long getRecolectados() {
+            return recolectados;
+        }
+
+        /**
+         * Porcentaje de búsquedas resueltas desde el pool (0 si no hubo búsquedas)
+         */
+        public double getTasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (aciertos * 100.0) / total;
+        }
+
+        @Override
+        public String toString() {
+            return "aciertos=" + aciertos +
+                   ", fallos=" + fallos +
+                   ", creaciones=" + creaciones +
+                   ", recolectados=" + recolectados +
+                   String.format(", tasaAciertos=%.2f%%", getTasaAciertos());
+        }
+    }
+}
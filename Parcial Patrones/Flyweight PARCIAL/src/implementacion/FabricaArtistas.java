@@ -4,18 +4,65 @@
  */
 package implementacion;
 
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Fábrica de Artistas - Gestiona el pool de objetos Artista reutilizables (Flyweight)
+ * Segura para hilos: pool concurrente y secuencia atómica de ids.
+ *
+ * Con InternadoDebil = true el pool guarda referencias débiles: los artistas que ninguna
+ * canción/lista sigue referenciando los recoge el GC y su entrada se purga, mientras que
+ * los vivos se siguen deduplicando. La secuencia de ids no se reinicia, así que los ids
+ * son estables sin necesidad de clearPool().
+ *
+ * Toda Cancion referencia a su Artista: para que el GC libere a los artistas de canciones
+ * del pool, FabricaCanciones también debe estar en modo débil (su InternadoDebil). Con el
+ * pool de canciones fuerte, un artista sigue vivo mientras alguna de sus canciones esté en
+ * él (hasta FabricaCanciones.clearPool()).
+ *
+ * Como en FabricaCanciones, las búsquedas solo actualizan contadores (getEstadisticas());
+ * la traza en consola se activa con TrazaDetallada.
+ *
+ * rehidratar() interna los artistas leídos de la BD por nombre, igual que obtenerArtista(),
+ * conservando su id guardado cuando está libre (en ambos modos).
  */
 public class FabricaArtistas {
     public static boolean HabilitarFlyweight = true;
+    // Elegir el modo antes de crear artistas: cada modo usa su propio mapa
+    public static boolean InternadoDebil = false;
+    public static boolean TrazaDetallada = Boolean.getBoolean("flyweight.traza");
+    private static final EstadisticasPool ESTADISTICAS = new EstadisticasPool();
+
+    private static final Map<String, Artista> POOL_ARTISTAS = new ConcurrentHashMap<>();
+    private static final Map<String, ReferenciaArtista> POOL_ARTISTAS_DEBIL = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Artista> COLA_RECOLECTADOS = new ReferenceQueue<>();
+    private static final AtomicLong secuenciaArtista = new AtomicLong();
+    // Ids en uso; en modo débil el índice también guarda referencias débiles
+    private static final Map<Long, Artista> POR_ID = new ConcurrentHashMap<>();
+    private static final Map<Long, ReferenciaArtista> POR_ID_DEBIL = new ConcurrentHashMap<>();
+    private static final AtomicLong pisoIds = new AtomicLong();
+
+    /**
+     * Referencia débil que recuerda su entrada (clave del pool, o id si clave es null) para
+     * poder retirarla cuando el GC la encola.
+     */
+    private static final class ReferenciaArtista extends WeakReference<Artista> {
+        private final String clave;
+        private final Long id;
+
+        ReferenciaArtista(String clave, Long id, Artista artista) {
+            super(artista, COLA_RECOLECTADOS);
+            this.clave = clave;
+            this.id = id;
+        }
+    }
 
-    private static final Map<String, Artista> POOL_ARTISTAS = new HashMap<>();
-    private static Long secuenciaArtista = 0L;
-    
     /**
      * Crea o retorna un artista existente del pool
      * @param nombreArtista Nombre del artista
@@ -29,52 +76,251 @@ public class FabricaArtistas {
         }
         // Usamos el nombre como clave única
         String clave = nombreArtista.trim().toLowerCase();
+        String nombre = nombreArtista;
+
+        if (!HabilitarFlyweight) {
+            ESTADISTICAS.registrarCreacion();
+            if (TrazaDetallada) {
+                System.out.println("✨ Creando nuevo artista (flyweight deshabilitado): " + nombre);
+            }
+            return new Artista(secuenciaArtista.incrementAndGet(), nombre, genero, pais);
+        }
+
+        if (InternadoDebil) {
+            return obtenerArtistaDebil(clave, null, nombre, genero, pais);
+        }
+
+        Artista existente = POOL_ARTISTAS.get(clave);
+        if (existente != null) {
+            ESTADISTICAS.registrarAcierto();
+            if (TrazaDetallada) {
+                System.out.println("♻️  Reutilizando artista: " + nombre);
+            }
+            return existente;
+        }
+        ESTADISTICAS.registrarFallo();
+
+        // Creación atómica: un único Artista por clave aunque varios hilos lo pidan a la vez
+        return POOL_ARTISTAS.computeIfAbsent(clave, k -> {
+            ESTADISTICAS.registrarCreacion();
+            if (TrazaDetallada) {
+                System.out.println("✨ Creando nuevo artista y almacenando en pool: " + nombre);
+            }
+            Artista nuevo = new Artista(secuenciaArtista.incrementAndGet(), nombre, genero, pais);
+            POR_ID.put(nuevo.getId(), nuevo);
+            return nuevo;
+        });
+    }
 
-        if (HabilitarFlyweight && POOL_ARTISTAS.containsKey(clave)) {
-            System.out.println("♻️  Reutilizando artista: " + nombreArtista);
-            return POOL_ARTISTAS.get(clave);
+    /**
+     * Devuelve la instancia del pool para un artista leído de la BD. Si no existía, se crea
+     * con el id guardado salvo que otro artista ya lo use en esta sesión.
+     */
+    public static Artista rehidratar(Long id, String nombreArtista, String genero, String pais) {
+        if (!HabilitarFlyweight || id == null || nombreArtista == null || nombreArtista.trim().isEmpty()) {
+            return obtenerArtista(nombreArtista, genero, pais);
+        }
+        String clave = nombreArtista.trim().toLowerCase();
+        if (InternadoDebil) {
+            return obtenerArtistaDebil(clave, id, nombreArtista, genero, pais);
+        }
+        Artista existente = POOL_ARTISTAS.get(clave);
+        if (existente != null) {
+            ESTADISTICAS.registrarAcierto();
+            return existente;
         }
+        ESTADISTICAS.registrarFallo();
+        return POOL_ARTISTAS.computeIfAbsent(clave, k -> {
+            ESTADISTICAS.registrarCreacion();
+            Artista nuevo = new Artista(id, nombreArtista, genero, pais);
+            if (POR_ID.putIfAbsent(id, nuevo) != null) {
+                nuevo.setId(secuenciaArtista.incrementAndGet());
+                POR_ID.put(nuevo.getId(), nuevo);
+            } else {
+                secuenciaArtista.accumulateAndGet(id, Math::max);
+            }
+            return nuevo;
+        });
+    }
+
+    /**
+     * Marca como usados los ids de artista hasta maximo (ver FabricaCanciones.reservarIds)
+     */
+    public static void reservarIds(long maximo) {
+        pisoIds.accumulateAndGet(maximo, Math::max);
+        secuenciaArtista.accumulateAndGet(maximo, Math::max);
+    }
+
+    /**
+     * Búsqueda en el pool débil. Si hay que crear el artista y idGuardado no es null, se
+     * conserva ese id salvo que otro artista vivo ya lo use (como en rehidratar()).
+     */
+    private static Artista obtenerArtistaDebil(String clave, Long idGuardado, String nombre,
+                                               String genero, String pais) {
+        purgarRecolectados();
 
-        // Crear nuevo artista (si flyweight está activo, lo almacenamos en el pool)
-        Artista nuevoArtista = new Artista(++secuenciaArtista, nombreArtista, genero, pais);
-        if (HabilitarFlyweight) {
-            POOL_ARTISTAS.put(clave, nuevoArtista);
-            System.out.println("✨ Creando nuevo artista y almacenando en pool: " + nombreArtista);
-        } else {
-            System.out.println("✨ Creando nuevo artista (flyweight deshabilitado): " + nombreArtista);
+        ReferenciaArtista ref = POOL_ARTISTAS_DEBIL.get(clave);
+        Artista existente = ref != null ? ref.get() : null;
+        if (existente != null) {
+            ESTADISTICAS.registrarAcierto();
+            if (TrazaDetallada) {
+                System.out.println("♻️  Reutilizando artista: " + nombre);
+            }
+            return existente;
         }
+        ESTADISTICAS.registrarFallo();
 
-        return nuevoArtista;
+        // compute reemplaza atómicamente una referencia ya recogida por una nueva.
+        // El arreglo mantiene una referencia fuerte hasta devolver el artista al llamador.
+        Artista[] resultado = new Artista[1];
+        POOL_ARTISTAS_DEBIL.compute(clave, (k, actual) -> {
+            Artista vivo = actual != null ? actual.get() : null;
+            if (vivo != null) {
+                resultado[0] = vivo;
+                return actual;
+            }
+            ESTADISTICAS.registrarCreacion();
+            if (TrazaDetallada) {
+                System.out.println("✨ Creando nuevo artista y almacenando en pool (débil): " + nombre);
+            }
+            Artista nuevo = new Artista(idGuardado, nombre, genero, pais);
+            if (idGuardado == null || !registrarIdDebil(idGuardado, nuevo)) {
+                nuevo.setId(secuenciaArtista.incrementAndGet());
+                registrarIdDebil(nuevo.getId(), nuevo);
+            } else {
+                secuenciaArtista.accumulateAndGet(idGuardado, Math::max);
+            }
+            resultado[0] = nuevo;
+            return new ReferenciaArtista(k, null, nuevo);
+        });
+        return resultado[0];
     }
-    
+
+    /**
+     * Ocupa el id para el artista en el índice débil.
+     * @return false si el id ya lo usa otro artista que sigue vivo
+     */
+    private static boolean registrarIdDebil(Long id, Artista artista) {
+        ReferenciaArtista nueva = new ReferenciaArtista(null, id, artista);
+        return POR_ID_DEBIL.compute(id, (k, actual) -> actual != null && actual.get() != null ? actual : nueva) == nueva;
+    }
+
+    /**
+     * Retira del pool débil y de su índice por id las entradas cuyos artistas ya recogió el GC.
+     * Solo cuenta como recolectada la entrada si seguía siendo la vigente para su clave.
+     */
+    private static void purgarRecolectados() {
+        Object ref;
+        while ((ref = COLA_RECOLECTADOS.poll()) != null) {
+            ReferenciaArtista r = (ReferenciaArtista) ref;
+            if (r.clave == null) {
+                POR_ID_DEBIL.remove(r.id, r);
+            } else if (POOL_ARTISTAS_DEBIL.remove(r.clave, r)) {
+                ESTADISTICAS.registrarRecolectado();
+            }
+        }
+    }
+
     /**
      * Obtiene el número total de artistas únicos en el pool
      */
     public static int getTotalArtistasUnicos() {
+        if (InternadoDebil) {
+            purgarRecolectados();
+            return POOL_ARTISTAS_DEBIL.size();
+        }
         return POOL_ARTISTAS.size();
     }
-    
+
+    /**
+     * Número de artistas que el GC recogió del pool débil desde el último clearPool()
+     */
+    public static long getArtistasRecolectados() {
+        return getEstadisticas().getRecolectados();
+    }
+
+    /**
+     * Instantánea de aciertos, fallos, creaciones y recolectados desde el último clearPool()
+     */
+    public static EstadisticasPool.Instantanea getEstadisticas() {
+        purgarRecolectados();
+        return ESTADISTICAS.instantanea();
+    }
+
+    /**
+     * Artistas vivos del pool (en modo débil, solo los que el GC no recogió)
+     */
+    static List<Artista> artistasEnMemoria() {
+        if (!InternadoDebil) return new ArrayList<>(POOL_ARTISTAS.values());
+        List<Artista> vivos = new ArrayList<>();
+        for (ReferenciaArtista r : POOL_ARTISTAS_DEBIL.values()) {
+            Artista a = r.get();
+            if (a != null) vivos.add(a);
+        }
+        return vivos;
+    }
+
     /**
      * Muestra estadísticas del pool de artistas
      */
     public static void mostrarEstadisticas() {
+        List<Artista> artistas = artistasEnMemoria();
+        EstadisticasPool.Instantanea e = getEstadisticas();
         System.out.println("\n═══════════════════════════════════════════");
         System.out.println("📊 ESTADÍSTICAS DEL POOL DE ARTISTAS");
         System.out.println("═══════════════════════════════════════════");
-        System.out.println("Total de artistas únicos: " + POOL_ARTISTAS.size());
+        System.out.println("Total de artistas únicos: " + artistas.size());
+        System.out.println("Aciertos: " + e.getAciertos() + " | Fallos: " + e.getFallos() +
+                           " | Creaciones: " + e.getCreaciones());
+        if (InternadoDebil) {
+            System.out.println("Artistas recolectados por el GC: " + e.getRecolectados());
+        }
         System.out.println("Artistas en memoria:");
-        POOL_ARTISTAS.values().forEach(artista -> 
-            System.out.println("  - " + artista.getNombreArtista() + 
+        artistas.forEach(artista ->
+            System.out.println("  - " + artista.getNombreArtista() +
                                " (" + artista.getGeneroMusical() + ")")
         );
         System.out.println("═══════════════════════════════════════════\n");
     }
 
+    static long getSecuencia() {
+        return secuenciaArtista.get();
+    }
+
+    static long getPisoIds() {
+        return pisoIds.get();
+    }
+
+    /**
+     * Reemplaza el pool por artistas ya construidos (carga de SnapshotPools), cada uno con su
+     * id. La secuencia y el piso quedan en el mayor entre lo guardado y lo ya reservado.
+     */
+    static void restaurar(Artista[] artistas, long secuencia, long piso) {
+        clearPool();
+        for (Artista a : artistas) {
+            if (a.getNombreArtista() == null) continue;
+            String clave = a.getNombreArtista().trim().toLowerCase();
+            if (InternadoDebil) {
+                if (POOL_ARTISTAS_DEBIL.putIfAbsent(clave, new ReferenciaArtista(clave, null, a)) == null) {
+                    registrarIdDebil(a.getId(), a);
+                }
+            } else if (POOL_ARTISTAS.putIfAbsent(clave, a) == null) {
+                POR_ID.putIfAbsent(a.getId(), a);
+            }
+        }
+        reservarIds(piso);
+        secuenciaArtista.accumulateAndGet(secuencia, Math::max);
+    }
+
     /**
      * Limpia el pool de artistas (útil para pruebas comparativas en la misma JVM)
      */
     public static void clearPool() {
         POOL_ARTISTAS.clear();
-        secuenciaArtista = 0L;
+        POOL_ARTISTAS_DEBIL.clear();
+        POR_ID.clear();
+        POR_ID_DEBIL.clear();
+        secuenciaArtista.set(pisoIds.get());
+        ESTADISTICAS.reiniciar();
     }
-}
\ No newline at end of file
+}
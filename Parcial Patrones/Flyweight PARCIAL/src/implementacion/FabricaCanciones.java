@@ -4,18 +4,73 @@
  */
 package implementacion;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * Fábrica de Canciones - Gestiona el pool de objetos Canción
  * Mejorada para trabajar con Artistas reutilizables
+ *
+ * Es segura para hilos: el pool es un ConcurrentHashMap (bloqueo por cubeta, de modo
+ * que dos hilos solo compiten si piden la misma clave) y los ids salen de un AtomicLong.
+ *
+ * Las búsquedas no escriben en consola: los aciertos, fallos y creaciones se registran en
+ * contadores (getEstadisticas()). La traza por canción es opcional (TrazaDetallada).
+ *
+ * Las canciones leídas de la BD entran por rehidratar(), que también interna por
+ * (canción, artista): una lista recargada comparte las mismas instancias que las listas
+ * en memoria. Un índice por id resuelve los ids guardados en las playlists normalizadas.
+ *
+ * Con InternadoDebil = true el pool y el índice por id guardan referencias débiles, como
+ * FabricaArtistas: las canciones que ninguna lista sigue referenciando las recoge el GC (y,
+ * con FabricaArtistas.InternadoDebil, también sus artistas). En ese modo no se usa la tabla
+ * de ordinales, que retendría a todas las canciones: ListaOrdinales guarda objetos.
  */
 public class FabricaCanciones {
     
     public static boolean HabilitarFlyweight = true;
-    private static final Map<String, Cancion> POOL_CANCIONES = new HashMap<>();
-    private static Long Secuencia = 0L;
+    // Elegir el modo antes de crear canciones: cada modo usa sus propios mapas
+    public static boolean InternadoDebil = false;
+    // Traza por búsqueda en consola; desactivada por defecto porque serializa a todos los hilos
+    public static boolean TrazaDetallada = Boolean.getBoolean("flyweight.traza");
+    private static final EstadisticasPool ESTADISTICAS = new EstadisticasPool();
+    private static final Map<ClaveCancion, Cancion> POOL_CANCIONES = new ConcurrentHashMap<>();
+    // Sonda reutilizable por hilo: una búsqueda que acierta no crea ninguna clave
+    private static final ThreadLocal<ClaveCancion> SONDA = ThreadLocal.withInitial(ClaveCancion::new);
+    private static final AtomicLong Secuencia = new AtomicLong();
+    // Id -> canción (incluye ids con que la misma canción se guardó en sesiones anteriores)
+    private static final Map<Long, Cancion> POR_ID = new ConcurrentHashMap<>();
+    // Ids ya usados en la BD: la secuencia nunca baja de aquí, ni siquiera tras clearPool()
+    private static final AtomicLong PisoIds = new AtomicLong();
+    // Ordinal -> canción del pool (ListaOrdinales); clearPool() empieza una tabla nueva
+    private static volatile TablaOrdinales ORDINALES = new TablaOrdinales();
+    // Pool e índice por id del modo débil
+    private static final Map<ClaveCancion, ReferenciaCancion> POOL_CANCIONES_DEBIL = new ConcurrentHashMap<>();
+    private static final Map<Long, ReferenciaCancion> POR_ID_DEBIL = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Cancion> COLA_RECOLECTADAS = new ReferenceQueue<>();
+
+    /**
+     * Referencia débil que recuerda su entrada (clave del pool, o id si clave es null) para
+     * poder retirarla cuando el GC la encola.
+     */
+    private static final class ReferenciaCancion extends WeakReference<Cancion> {
+        private final ClaveCancion clave;
+        private final Long id;
+
+        ReferenciaCancion(ClaveCancion clave, Long id, Cancion cancion) {
+            super(cancion, COLA_RECOLECTADAS);
+            this.clave = clave;
+            this.id = id;
+        }
+    }
     
     /**
      * Crea o retorna una canción existente del pool
@@ -23,31 +78,231 @@ public class FabricaCanciones {
      */
     public static Cancion crearCancion(String nombreCancion, String nombreArtista, 
                                        String genero, String pais) {
-        // Clave única: nombre de la canción + artista
-        String clave = (nombreCancion + "-" + nombreArtista).toLowerCase();
-        
-        if (HabilitarFlyweight && POOL_CANCIONES.containsKey(clave)) {
-            System.out.println("♻️  Reutilizando canción: " + nombreCancion + " - " + nombreArtista);
-            return POOL_CANCIONES.get(clave);
+        if (!HabilitarFlyweight) {
+            Artista artista = FabricaArtistas.obtenerArtista(nombreArtista, genero, pais);
+            Cancion nuevaCancion = new Cancion(Secuencia.incrementAndGet(), nombreCancion, artista);
+            ESTADISTICAS.registrarCreacion();
+            if (TrazaDetallada) {
+                System.out.println("✨ Creando nueva canción (flyweight deshabilitado): " + nombreCancion + " - " + nombreArtista);
+            }
+            return nuevaCancion;
         }
 
-        // Obtener o crear el artista (también puede usar Flyweight según FabricaArtistas)
-        Artista artista = FabricaArtistas.obtenerArtista(nombreArtista, genero, pais);
+        // Camino rápido: un acierto en el pool es una lectura sin bloqueo ni reserva de memoria.
+        // Clave única: nombre de la canción + artista, comparados sin distinguir mayúsculas
+        ClaveCancion sonda = SONDA.get().asignar(nombreCancion, nombreArtista);
+        Cancion existente = buscarEnPool(sonda);
+        sonda.liberar();
+        if (existente != null) {
+            ESTADISTICAS.registrarAcierto();
+            if (TrazaDetallada) {
+                System.out.println("♻️  Reutilizando canción: " + nombreCancion + " - " + nombreArtista);
+            }
+            return existente;
+        }
+        ESTADISTICAS.registrarFallo();
 
-        // Crear nueva canción
-        Cancion nuevaCancion = new Cancion(++Secuencia, nombreCancion, artista);
+        // computeIfAbsent es atómico por clave: aunque varios hilos fallen a la vez,
+        // solo uno construye la Canción y consume un id de la secuencia
+        return internar(new ClaveCancion(nombreCancion, nombreArtista), k -> {
+            Artista artista = FabricaArtistas.obtenerArtista(nombreArtista, genero, pais);
+            ESTADISTICAS.registrarCreacion();
+            if (TrazaDetallada) {
+                System.out.println("✨ Creando nueva canción y almacenando en pool: " + nombreCancion + " - " + nombreArtista);
+            }
+            Cancion nueva = new Cancion(Secuencia.incrementAndGet(), nombreCancion, artista);
+            registrarId(nueva.getId(), nueva);
+            agregarOrdinal(nueva);
+            return nueva;
+        });
+    }
+
+    /**
+     * Devuelve la instancia del pool para una canción leída de la BD (o de un blob).
+     * Si ya hay una canción con ese nombre y artista se reutiliza, y el id guardado queda
+     * como alias de ella. Si no, se crea conservando el id guardado salvo que otra canción
+     * ya lo use en esta sesión.
+     */
+    public static Cancion rehidratar(Long id, String nombreCancion, Artista artistaGuardado) {
+        Artista artista = artistaGuardado == null ? null : FabricaArtistas.rehidratar(artistaGuardado.getId(),
+                artistaGuardado.getNombreArtista(), artistaGuardado.getGeneroMusical(), artistaGuardado.getPais());
+        if (!HabilitarFlyweight || nombreCancion == null) {
+            return new Cancion(id, nombreCancion, artista);
+        }
+        String nombreArtista = artista != null ? artista.getNombreArtista() : null;
 
-        // Solo guardamos en el pool si el Flyweight está habilitado
-        if (HabilitarFlyweight) {
-            POOL_CANCIONES.put(clave, nuevaCancion);
-            System.out.println("✨ Creando nueva canción y almacenando en pool: " + nombreCancion + " - " + nombreArtista);
+        ClaveCancion sonda = SONDA.get().asignar(nombreCancion, nombreArtista);
+        Cancion existente = buscarEnPool(sonda);
+        sonda.liberar();
+        if (existente == null) {
+            ESTADISTICAS.registrarFallo();
+            existente = internar(new ClaveCancion(nombreCancion, nombreArtista), k -> {
+                ESTADISTICAS.registrarCreacion();
+                Cancion nueva = new Cancion(id, nombreCancion, artista);
+                if (id == null || !registrarId(id, nueva)) {
+                    nueva.setId(Secuencia.incrementAndGet());
+                    registrarId(nueva.getId(), nueva);
+                } else {
+                    // Que la secuencia no vuelva a entregar el id guardado
+                    Secuencia.accumulateAndGet(id, Math::max);
+                }
+                agregarOrdinal(nueva);
+                return nueva;
+            });
         } else {
-            System.out.println("✨ Creando nueva canción (flyweight deshabilitado): " + nombreCancion + " - " + nombreArtista);
+            ESTADISTICAS.registrarAcierto();
         }
+        if (id != null) registrarId(id, existente);
+        return existente;
+    }
+
+    /**
+     * Canción del pool con ese id (o con ese id como alias), o null si no está en memoria
+     */
+    public static Cancion buscarPorId(Long id) {
+        if (id == null) return null;
+        if (!InternadoDebil) return POR_ID.get(id);
+        ReferenciaCancion r = POR_ID_DEBIL.get(id);
+        return r != null ? r.get() : null;
+    }
 
-        return nuevaCancion;
+    /**
+     * Canción del pool vigente para la clave, o null (en modo débil, también si ya la recogió el GC)
+     */
+    private static Cancion buscarEnPool(ClaveCancion clave) {
+        if (!InternadoDebil) return POOL_CANCIONES.get(clave);
+        purgarRecolectadas();
+        ReferenciaCancion r = POOL_CANCIONES_DEBIL.get(clave);
+        return r != null ? r.get() : null;
+    }
+
+    /**
+     * computeIfAbsent sobre el pool vigente. En modo débil, compute reemplaza atómicamente una
+     * referencia ya recogida; el arreglo retiene la canción hasta devolverla al llamador.
+     */
+    private static Cancion internar(ClaveCancion clave, Function<ClaveCancion, Cancion> crear) {
+        if (!InternadoDebil) return POOL_CANCIONES.computeIfAbsent(clave, crear);
+        Cancion[] resultado = new Cancion[1];
+        POOL_CANCIONES_DEBIL.compute(clave, (k, actual) -> {
+            Cancion viva = actual != null ? actual.get() : null;
+            if (viva != null) {
+                resultado[0] = viva;
+                return actual;
+            }
+            resultado[0] = crear.apply(k);
+            return new ReferenciaCancion(k, null, resultado[0]);
+        });
+        return resultado[0];
+    }
+
+    /**
+     * Asocia el id a la canción si está libre.
+     * @return false si el id ya lo usa otra canción (en modo débil, otra que sigue viva)
+     */
+    private static boolean registrarId(Long id, Cancion cancion) {
+        if (!InternadoDebil) return POR_ID.putIfAbsent(id, cancion) == null;
+        ReferenciaCancion nueva = new ReferenciaCancion(null, id, cancion);
+        return POR_ID_DEBIL.compute(id, (k, actual) -> actual != null && actual.get() != null ? actual : nueva) == nueva;
+    }
+
+    /**
+     * La tabla de ordinales retiene a sus canciones: en modo débil no se usa
+     */
+    private static void agregarOrdinal(Cancion cancion) {
+        if (!InternadoDebil) ORDINALES.agregar(cancion);
+    }
+
+    /**
+     * Retira del pool débil y de su índice por id las entradas cuyas canciones ya recogió el GC.
+     * Solo cuenta como recolectada la entrada del pool que seguía siendo la vigente para su clave.
+     */
+    private static void purgarRecolectadas() {
+        Object ref;
+        while ((ref = COLA_RECOLECTADAS.poll()) != null) {
+            ReferenciaCancion r = (ReferenciaCancion) ref;
+            if (r.clave == null) {
+                POR_ID_DEBIL.remove(r.id, r);
+            } else if (POOL_CANCIONES_DEBIL.remove(r.clave, r)) {
+                ESTADISTICAS.registrarRecolectado();
+            }
+        }
+    }
+
+    /**
+     * Marca como usados los ids hasta maximo (los ya guardados en la BD): las canciones
+     * nuevas recibirán ids mayores y clearPool() no vuelve a bajar de ese valor.
+     * DBManager lo llama al conectar, por eso conviene conectar antes de crear canciones.
+     */
+    public static void reservarIds(long maximo) {
+        PisoIds.accumulateAndGet(maximo, Math::max);
+        Secuencia.accumulateAndGet(maximo, Math::max);
     }
     
+    /**
+     * Canciones del pool (vista en vivo; SnapshotPools la recorre para volcarla).
+     * En modo débil es una copia con las que el GC aún no recogió.
+     */
+    static Collection<Cancion> cancionesEnPool() {
+        if (!InternadoDebil) return POOL_CANCIONES.values();
+        List<Cancion> vivas = new ArrayList<>();
+        for (ReferenciaCancion r : POOL_CANCIONES_DEBIL.values()) {
+            Cancion c = r.get();
+            if (c != null) vivas.add(c);
+        }
+        return vivas;
+    }
+
+    /**
+     * Índice id -> canción, con los alias (vista en vivo, solo lectura por convención).
+     * En modo débil es una copia con las entradas cuyas canciones siguen vivas.
+     */
+    static Map<Long, Cancion> indicePorId() {
+        if (!InternadoDebil) return POR_ID;
+        Map<Long, Cancion> vivas = new HashMap<>();
+        for (ReferenciaCancion r : POR_ID_DEBIL.values()) {
+            Cancion c = r.get();
+            if (c != null) vivas.put(r.id, c);
+        }
+        return vivas;
+    }
+
+    /**
+     * Tabla de ordinales vigente (la de este pool desde el último clearPool())
+     */
+    static TablaOrdinales getTablaOrdinales() {
+        return ORDINALES;
+    }
+
+    static long getSecuencia() {
+        return Secuencia.get();
+    }
+
+    static long getPisoIds() {
+        return PisoIds.get();
+    }
+
+    /**
+     * Reemplaza el pool por canciones ya construidas (carga de SnapshotPools), sin pasar por
+     * crearCancion(): cada una entra con su id y sin consultar la fábrica de artistas.
+     * aliasIds[i] pasa a resolver a canciones[aliasDe[i]]. La secuencia y el piso quedan en el
+     * mayor entre lo guardado y lo ya reservado en esta sesión (p. ej. por DBManager).
+     */
+    static void restaurar(Cancion[] canciones, long[] aliasIds, int[] aliasDe, long secuencia, long piso) {
+        // Los ids restaurados son los mismos de antes: el audio guardado por id sigue valiendo
+        vaciarPool();
+        for (Cancion c : canciones) {
+            Artista a = c.getArtista();
+            Cancion enPool = internar(new ClaveCancion(c.getNombreCancion(), a != null ? a.getNombreArtista() : null), k -> c);
+            registrarId(c.getId(), enPool);
+            if (enPool == c) agregarOrdinal(c);
+        }
+        for (int i = 0; i < aliasIds.length; i++) {
+            registrarId(aliasIds[i], canciones[aliasDe[i]]);
+        }
+        reservarIds(piso);
+        Secuencia.accumulateAndGet(secuencia, Math::max);
+    }
+
     /**
      * Versión simplificada (compatibilidad con código anterior)
      */
@@ -59,26 +314,68 @@ public class FabricaCanciones {
      * Obtiene el número total de canciones únicas en el pool
      */
     public static int getTotalCancionesUnicas() {
+        if (InternadoDebil) {
+            purgarRecolectadas();
+            return POOL_CANCIONES_DEBIL.size();
+        }
         return POOL_CANCIONES.size();
     }
+
+    /**
+     * Número de canciones que el GC recogió del pool débil desde el último clearPool()
+     */
+    public static long getCancionesRecolectadas() {
+        return getEstadisticas().getRecolectados();
+    }
     
+    /**
+     * Instantánea de aciertos, fallos, creaciones y recolectadas desde el último clearPool()
+     */
+    public static EstadisticasPool.Instantanea getEstadisticas() {
+        purgarRecolectadas();
+        return ESTADISTICAS.instantanea();
+    }
+
     /**
      * Muestra estadísticas del pool de canciones
      */
     public static void mostrarEstadisticas() {
+        EstadisticasPool.Instantanea e = getEstadisticas();
         System.out.println("\n═══════════════════════════════════════════");
         System.out.println("📊 ESTADÍSTICAS DEL POOL DE CANCIONES");
         System.out.println("═══════════════════════════════════════════");
-        System.out.println("Total de canciones únicas: " + POOL_CANCIONES.size());
+        System.out.println("Total de canciones únicas: " + getTotalCancionesUnicas());
         System.out.println("Flyweight habilitado: " + (HabilitarFlyweight ? "SÍ" : "NO"));
+        System.out.println("Aciertos: " + e.getAciertos() + " | Fallos: " + e.getFallos() +
+                           " | Creaciones: " + e.getCreaciones());
+        System.out.printf("Tasa de aciertos: %.2f%%%n", e.getTasaAciertos());
+        if (InternadoDebil) {
+            System.out.println("Canciones recolectadas por el GC: " + e.getRecolectados());
+        }
         System.out.println("═══════════════════════════════════════════\n");
     }
 
     /**
-     * Limpia el pool de canciones (útil para pruebas comparativas en la misma JVM)
+     * Limpia el pool de canciones (útil para pruebas comparativas en la misma JVM).
+     * También borra el audio, incluido el persistido en el archivo mapeado.
      */
     public static void clearPool() {
+        vaciarPool();
+        // Los ids se reutilizarán: el audio indexado por id ya no corresponde, tampoco el
+        // de audio.idx (al reabrir, un id reutilizado devolvería el audio de otra canción)
+        AlmacenAudio.borrar();
+    }
+
+    /**
+     * Vacía los mapas, la tabla de ordinales, la secuencia y las estadísticas (no el audio)
+     */
+    private static void vaciarPool() {
         POOL_CANCIONES.clear();
-        Secuencia = 0L;
+        POR_ID.clear();
+        POOL_CANCIONES_DEBIL.clear();
+        POR_ID_DEBIL.clear();
+        ORDINALES = new TablaOrdinales();
+        Secuencia.set(PisoIds.get());
+        ESTADISTICAS.reiniciar();
     }
 }
\ No newline at end of file
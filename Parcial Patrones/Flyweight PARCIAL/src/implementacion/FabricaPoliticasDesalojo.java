@@ -0,0 +1,31 @@
+package implementacion;
+
+/**
+ * Crea la política de desalojo de PlaylistCache a partir de su nombre.
+ * La política por defecto se elige con -Dflyweight.cache.politica=lru|lfu|tinylfu (lfu si no se indica).
+ */
+public class FabricaPoliticasDesalojo {
+    public static final String PROPIEDAD_POLITICA = "flyweight.cache.politica";
+
+    public static PoliticaDesalojo crear(String tipo, int capacidad) {
+        String t = tipo == null ? "lfu" : tipo.trim().toLowerCase();
+        switch (t) {
+            case "lru":
+                return new PoliticaLRU();
+            case "lfu":
+                return new PoliticaLFU();
+            case "tinylfu":
+                return new PoliticaTinyLFU(capacidad);
+            default:
+                throw new IllegalArgumentException("Política de desalojo desconocida: " + tipo);
+        }
+    }
+
+    public static PoliticaDesalojo porDefecto(int capacidad) {
+        return crear(System.getProperty(PROPIEDAD_POLITICA, "lfu"), capacidad);
+    }
+
+    public static String[] obtenerTiposDisponibles() {
+        return new String[] {"lru", "lfu", "tinylfu"};
+    }
+}
@@ -0,0 +1,579 @@
+package implementacion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * FormatoPlaylist - formato binario compacto y versionado de ListaReproduccion.
+ *
+ * Estructura (versión 1):
+ *   'F' 'L' | versión (1 byte) | flags (1 byte)
+ *   nombre | usos
+ *   cantidad de artistas | por artista: id, nombre, género, país
+ *   cantidad de canciones | por canción: id, nombre, índice de artista (0 = sin artista)
+ *
+ * - Enteros como varint (7 bits por byte); los ids admiten null y negativos (zigzag + 1).
+ * - Textos como varint (bytes UTF-8 + 1) + UTF-8: 0 = null, 1 = texto vacío.
+ * - Cada artista se escribe una sola vez y las canciones lo referencian por índice.
+ *
+ * Con el flag SOLO_IDS (escribirIds) tras nombre y usos va solo la lista de ids de canción:
+ *   cantidad de canciones | id por canción
+ * Los datos de cada canción viven en el catálogo de la BD (tablas canciones y artistas).
+ *
+ * Con el flag INDICE (listas de IndiceDesde canciones o más) tras la cantidad de canciones va
+ * un índice de bloques, para saltar a una página sin decodificar las anteriores:
+ *   canciones por bloque | por bloque salvo el primero: distancia en bytes al anterior
+ * Las listas de LecturaPerezosaDesde canciones o más se leen como ListaReproduccionPerezosa.
+ *
+ * Con el flag PUNTUACION tras los usos va la puntuación con decaimiento en forma logarítmica
+ * (ContadorUsos.getLogaritmo(), double de 8 bytes). Sin el flag la puntuación se deriva de usos.
+ *
+ * Al leer, las canciones pasan por FabricaCanciones.rehidratar() o se resuelven por id,
+ * de modo que las listas cargadas comparten las instancias del pool Flyweight.
+ *
+ * Los blobs anteriores (ObjectOutputStream, empiezan con 0xACED) se siguen leyendo, y
+ * los comprimidos por CompresionPlaylist ('F' 'Z') se descomprimen antes de leer.
+ */
+public final class FormatoPlaylist {
+    public static final int VERSION = 1;
+    private static final byte MAGIA_0 = 'F';
+    private static final byte MAGIA_1 = 'L';
+    private static final int LONGITUD_CABECERA = 4;
+    static final int FLAG_SOLO_IDS = 0x01;
+    static final int FLAG_INDICE = 0x02;
+    static final int FLAG_PUNTUACION = 0x04;
+    private static final int FLAGS_CONOCIDOS = FLAG_SOLO_IDS | FLAG_INDICE | FLAG_PUNTUACION;
+
+    // true = escribir en el formato anterior (para convivir con lectores viejos)
+    public static boolean EscribirLegado = Boolean.getBoolean("flyweight.formato.legado");
+    // Listas con al menos IndiceDesde canciones se escriben con índice de bloques
+    public static int IndiceDesde = Integer.getInteger("flyweight.formato.indiceDesde", 1_024);
+    public static int CancionesPorBloque = 256;
+    // Listas con al menos LecturaPerezosaDesde canciones se leen sin materializar las canciones
+    public static int LecturaPerezosaDesde = Integer.getInteger("flyweight.formato.perezosaDesde", 10_000);
+
+    private FormatoPlaylist() {
+    }
+
+    public static byte[] escribir(ListaReproduccion lista) throws IOException {
+        if (EscribirLegado) return escribirLegado(lista);
+        Salida out = new Salida(64 + lista.getCanciones().size() * 24);
+        boolean indexada = lista.getCanciones().size() >= IndiceDesde;
+        out.byte_(MAGIA_0);
+        out.byte_(MAGIA_1);
+        out.byte_(VERSION);
+        double puntuacion = lista.getPuntuacionLog();
+        out.byte_((indexada ? FLAG_INDICE : 0) | flagPuntuacion(puntuacion));
+        out.texto(lista.getNombreLista());
+        out.varint(zigzag(lista.getUsos()));
+        escribirPuntuacion(out, puntuacion);
+
+        // Tabla de artistas: mismo (id, nombre, género, país) = misma entrada
+        Map<List<Object>, Integer> indices = new HashMap<>();
+        List<Artista> artistas = new ArrayList<>();
+        int[] referencias = new int[lista.getCanciones().size()];
+        int i = 0;
+        for (Cancion c : lista.getCanciones()) {
+            Artista a = c.getArtista();
+            if (a == null) {
+                referencias[i++] = 0;
+                continue;
+            }
+            List<Object> clave = Arrays.asList(a.getId(), a.getNombreArtista(), a.getGeneroMusical(), a.getPais());
+            Integer indice = indices.get(clave);
+            if (indice == null) {
+                artistas.add(a);
+                indice = artistas.size();
+                indices.put(clave, indice);
+            }
+            referencias[i++] = indice;
+        }
+
+        out.varint(artistas.size());
+        for (Artista a : artistas) {
+            out.id(a.getId());
+            out.texto(a.getNombreArtista());
+            out.texto(a.getGeneroMusical());
+            out.texto(a.getPais());
+        }
+        escribirCanciones(out, lista.getCanciones(), referencias, indexada);
+        return out.toByteArray();
+    }
+
+    /**
+     * Escribe solo los ids de las canciones (flag SOLO_IDS), para guardar junto al catálogo.
+     * @return null si alguna canción no tiene id (hay que usar escribir())
+     */
+    public static byte[] escribirIds(ListaReproduccion lista) {
+        for (Cancion c : lista.getCanciones()) {
+            if (c.getId() == null) return null;
+        }
+        Salida out = new Salida(32 + lista.getCanciones().size() * 3);
+        boolean indexada = lista.getCanciones().size() >= IndiceDesde;
+        out.byte_(MAGIA_0);
+        out.byte_(MAGIA_1);
+        out.byte_(VERSION);
+        double puntuacion = lista.getPuntuacionLog();
+        out.byte_(FLAG_SOLO_IDS | (indexada ? FLAG_INDICE : 0) | flagPuntuacion(puntuacion));
+        out.texto(lista.getNombreLista());
+        out.varint(zigzag(lista.getUsos()));
+        escribirPuntuacion(out, puntuacion);
+        escribirCanciones(out, lista.getCanciones(), null, indexada);
+        return out.toByteArray();
+    }
+
+    private static int flagPuntuacion(double puntuacion) {
+        return puntuacion > Double.NEGATIVE_INFINITY ? FLAG_PUNTUACION : 0;
+    }
+
+    private static void escribirPuntuacion(Salida out, double puntuacion) {
+        if (puntuacion > Double.NEGATIVE_INFINITY) out.fijo64(Double.doubleToLongBits(puntuacion));
+    }
+
+    /**
+     * Cantidad, índice de bloques (si indexada) y canciones.
+     * @param referencias índice de artista por canción, o null para escribir solo ids
+     */
+    private static void escribirCanciones(Salida out, List<Cancion> canciones, int[] referencias, boolean indexada) {
+        out.varint(canciones.size());
+        if (!indexada) {
+            escribirCanciones(out, canciones, referencias, null, 0);
+            return;
+        }
+        int porBloque = Math.max(1, CancionesPorBloque);
+        int[] bloques = new int[(canciones.size() + porBloque - 1) / porBloque];
+        Salida cuerpo = new Salida(canciones.size() * (referencias == null ? 4 : 24));
+        escribirCanciones(cuerpo, canciones, referencias, bloques, porBloque);
+        out.varint(porBloque);
+        for (int b = 1; b < bloques.length; b++) out.varint(bloques[b] - bloques[b - 1]);
+        out.bytes(cuerpo.buf, cuerpo.pos);
+    }
+
+    private static void escribirCanciones(Salida out, List<Cancion> canciones, int[] referencias,
+                                          int[] bloques, int porBloque) {
+        int i = 0;
+        for (Cancion c : canciones) {
+            if (bloques != null && i % porBloque == 0) bloques[i / porBloque] = out.pos;
+            out.id(c.getId());
+            if (referencias != null) {
+                out.texto(c.getNombreCancion());
+                out.varint(referencias[i]);
+            }
+            i++;
+        }
+    }
+
+    public static ListaReproduccion leer(byte[] data) throws IOException, ClassNotFoundException {
+        if (data == null || data.length < 2) throw new IOException("Blob de playlist vacío o truncado");
+        if (CompresionPlaylist.esComprimido(data)) data = CompresionPlaylist.descomprimir(data);
+        if (esLegado(data)) return leerLegado(data);
+        Cabecera cabecera = leerCabecera(data);
+        if (cabecera.cantidad >= LecturaPerezosaDesde) return new ListaReproduccionPerezosa(cabecera);
+        ListaReproduccion lista = new ListaReproduccion(cabecera.nombre);
+        lista.setUsos(cabecera.usos);
+        if (cabecera.tienePuntuacion()) lista.setPuntuacionLog(cabecera.puntuacionLog);
+        lista.setCanciones(ListaReproduccion.listaCanciones(
+                leerCanciones(cabecera, cabecera.inicioCanciones, 0, cabecera.cantidad)));
+        return lista;
+    }
+
+    /**
+     * Como leer(), pero sin decodificar las canciones hasta que se acceda a ellas, sea cual
+     * sea el tamaño de la lista. Los blobs del formato anterior se leen completos.
+     */
+    public static ListaReproduccion leerPerezosa(byte[] data) throws IOException, ClassNotFoundException {
+        if (data == null || data.length < 2) throw new IOException("Blob de playlist vacío o truncado");
+        if (CompresionPlaylist.esComprimido(data)) data = CompresionPlaylist.descomprimir(data);
+        if (esLegado(data)) return leerLegado(data);
+        return new ListaReproduccionPerezosa(leerCabecera(data));
+    }
+
+    /**
+     * Todo lo que precede a las canciones: nombre, usos, posición de cada artista e índice de
+     * bloques. Los artistas se decodifican la primera vez que una canción los referencia.
+     */
+    static final class Cabecera {
+        final byte[] datos;
+        final String nombre;
+        final long usos;
+        // NaN si el blob no trae puntuación
+        final double puntuacionLog;
+        final boolean soloIds;
+        private final int[] posicionesArtistas;
+        private final AtomicReferenceArray<Artista> artistas;
+        final int cantidad;
+        final int inicioCanciones;
+        // Posición absoluta de cada bloque de porBloque canciones, o null si el blob no trae índice
+        final int[] bloques;
+        final int porBloque;
+
+        private Cabecera(byte[] datos, String nombre, long usos, double puntuacionLog, boolean soloIds,
+                         int[] posicionesArtistas, int cantidad, int inicioCanciones, int[] bloques, int porBloque) {
+            this.datos = datos;
+            this.nombre = nombre;
+            this.usos = usos;
+            this.puntuacionLog = puntuacionLog;
+            this.soloIds = soloIds;
+            this.posicionesArtistas = posicionesArtistas;
+            this.artistas = new AtomicReferenceArray<>(posicionesArtistas.length);
+            this.cantidad = cantidad;
+            this.inicioCanciones = inicioCanciones;
+            this.bloques = bloques;
+            this.porBloque = porBloque;
+        }
+
+        boolean tienePuntuacion() {
+            return !Double.isNaN(puntuacionLog);
+        }
+
+        /**
+         * @param indice índice de artista tal como lo guarda la canción (0 = sin artista)
+         */
+        Artista artista(int indice) throws IOException {
+            if (indice == 0) return null;
+            if (indice > posicionesArtistas.length) throw new IOException("Índice de artista fuera de rango: " + indice);
+            Artista a = artistas.get(indice - 1);
+            if (a == null) {
+                Entrada in = new Entrada(datos, posicionesArtistas[indice - 1]);
+                a = new Artista(in.id(), in.texto(), in.texto(), in.texto());
+                artistas.set(indice - 1, a);
+            }
+            return a;
+        }
+    }
+
+    private static Cabecera leerCabecera(byte[] data) throws IOException {
+        if (data[0] != MAGIA_0 || data[1] != MAGIA_1 || data.length < LONGITUD_CABECERA) {
+            throw new IOException("Blob de playlist con formato desconocido");
+        }
+        int version = data[2] & 0xFF;
+        if (version > VERSION) throw new IOException("Versión de formato de playlist no soportada: " + version);
+
+        int flags = data[3] & 0xFF;
+        if ((flags & ~FLAGS_CONOCIDOS) != 0) throw new IOException("Flags de playlist no soportados: " + flags);
+        boolean soloIds = (flags & FLAG_SOLO_IDS) != 0;
+
+        Entrada in = new Entrada(data, LONGITUD_CABECERA);
+        String nombre = in.texto();
+        long usos = deszigzag(in.varint());
+        double puntuacionLog = (flags & FLAG_PUNTUACION) != 0 ? Double.longBitsToDouble(in.fijo64()) : Double.NaN;
+        int[] artistas = new int[0];
+        if (!soloIds) {
+            artistas = new int[in.cantidad()];
+            for (int i = 0; i < artistas.length; i++) {
+                artistas[i] = in.pos;
+                in.varint();
+                in.saltarTexto();
+                in.saltarTexto();
+                in.saltarTexto();
+            }
+        }
+        int cantidad = in.cantidad();
+        if ((flags & FLAG_INDICE) == 0) {
+            return new Cabecera(data, nombre, usos, puntuacionLog, soloIds, artistas, cantidad, in.pos, null, 0);
+        }
+        long leido = in.varint();
+        if (leido <= 0 || leido > Integer.MAX_VALUE) throw new IOException("Índice de playlist inválido: " + leido);
+        int porBloque = (int) leido;
+        int[] distancias = new int[(cantidad + porBloque - 1) / porBloque];
+        for (int b = 1; b < distancias.length; b++) distancias[b] = in.cantidad();
+        int[] bloques = new int[distancias.length];
+        long posicion = in.pos;
+        for (int b = 0; b < bloques.length; b++) {
+            posicion += distancias[b];
+            if (posicion > data.length) throw new IOException("Índice de playlist fuera del blob");
+            bloques[b] = (int) posicion;
+        }
+        return new Cabecera(data, nombre, usos, puntuacionLog, soloIds, artistas, cantidad, in.pos, bloques, porBloque);
+    }
+
+    /**
+     * Calcula la posición de cada bloque de porBloque canciones recorriendo el blob sin crear
+     * objetos (para blobs escritos sin índice).
+     */
+    static int[] indexar(Cabecera cabecera, int porBloque) throws IOException {
+        int[] bloques = new int[(cabecera.cantidad + porBloque - 1) / porBloque];
+        Entrada in = new Entrada(cabecera.datos, cabecera.inicioCanciones);
+        for (int i = 0; i < cabecera.cantidad; i++) {
+            if (i % porBloque == 0) bloques[i / porBloque] = in.pos;
+            saltarCancion(in, cabecera.soloIds);
+        }
+        return bloques;
+    }
+
+    /**
+     * Decodifica cantidad canciones a partir de la posición dada, saltando antes otras saltar.
+     */
+    static Cancion[] leerCanciones(Cabecera cabecera, int posicion, int saltar, int cantidad) throws IOException {
+        Entrada in = new Entrada(cabecera.datos, posicion);
+        for (int i = 0; i < saltar; i++) saltarCancion(in, cabecera.soloIds);
+        if (cabecera.soloIds) return resolverIds(in, cantidad);
+        Cancion[] canciones = new Cancion[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            Long id = in.id();
+            String nombre = in.texto();
+            canciones[i] = FabricaCanciones.rehidratar(id, nombre, cabecera.artista(in.cantidad()));
+        }
+        return canciones;
+    }
+
+    private static void saltarCancion(Entrada in, boolean soloIds) throws IOException {
+        in.varint();
+        if (soloIds) return;
+        in.saltarTexto();
+        in.varint();
+    }
+
+    /**
+     * true si el blob es del formato anterior (Java Serialization)
+     */
+    public static boolean esLegado(byte[] data) {
+        return data != null && data.length >= 2 && (data[0] & 0xFF) == 0xAC && (data[1] & 0xFF) == 0xED;
+    }
+
+    /**
+     * Formato anterior: ObjectOutputStream con la tupla completa del artista por canción.
+     */
+    public static byte[] escribirLegado(ListaReproduccion lista) throws IOException {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(lista.getNombreLista());
+            oos.writeLong(lista.getUsos());
+            // Guardamos canciones como su información básica (id, nombre, artista.nombre)
+            oos.writeInt(lista.getCanciones().size());
+            for (Cancion c : lista.getCanciones()) {
+                oos.writeObject(c.getId());
+                oos.writeObject(c.getNombreCancion());
+                Artista a = c.getArtista();
+                if (a != null) {
+                    oos.writeObject(a.getId());
+                    oos.writeObject(a.getNombreArtista());
+                    oos.writeObject(a.getGeneroMusical());
+                    oos.writeObject(a.getPais());
+                } else {
+                    oos.writeObject(null);
+                    oos.writeObject(null);
+                    oos.writeObject(null);
+                    oos.writeObject(null);
+                }
+            }
+            oos.flush();
+            return baos.toByteArray();
+        }
+    }
+
+    private static ListaReproduccion leerLegado(byte[] data) throws IOException, ClassNotFoundException {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
+             ObjectInputStream ois = new ObjectInputStream(bais)) {
+            String nombre = (String) ois.readObject();
+            long usos = ois.readLong();
+            ListaReproduccion lista = new ListaReproduccion(nombre);
+            lista.setUsos(usos);
+            int size = ois.readInt();
+            for (int i = 0; i < size; i++) {
+                Object idObj = ois.readObject();
+                Long id = idObj != null ? (Long) idObj : null;
+                String nombreCancion = (String) ois.readObject();
+                Object artistaIdObj = ois.readObject();
+                if (artistaIdObj != null) {
+                    Long artistaId = (Long) artistaIdObj;
+                    String nombreArtista = (String) ois.readObject();
+                    String genero = (String) ois.readObject();
+                    String pais = (String) ois.readObject();
+                    Artista artista = new Artista(artistaId, nombreArtista, genero, pais);
+                    lista.getCanciones().add(FabricaCanciones.rehidratar(id, nombreCancion, artista));
+                } else {
+                    // artista nulo: consumir los 3 valores nulos
+                    ois.readObject(); ois.readObject(); ois.readObject();
+                    lista.getCanciones().add(FabricaCanciones.rehidratar(id, nombreCancion, null));
+                }
+            }
+            return lista;
+        }
+    }
+
+    /**
+     * Resuelve los ids contra el pool; los que falten se piden juntos al catálogo de la BD.
+     * Si alguno no está en ningún lado la lectura falla: una canción sin nombre ni artista
+     * se volvería a guardar así y el dato perdido pasaría desapercibido.
+     */
+    private static Cancion[] resolverIds(Entrada in, int cantidad) throws IOException {
+        Long[] ids = new Long[cantidad];
+        Cancion[] canciones = new Cancion[cantidad];
+        Set<Long> faltantes = null;
+        for (int i = 0; i < cantidad; i++) {
+            ids[i] = in.id();
+            canciones[i] = FabricaCanciones.buscarPorId(ids[i]);
+            if (canciones[i] == null && ids[i] != null) {
+                if (faltantes == null) faltantes = new HashSet<>();
+                faltantes.add(ids[i]);
+            }
+        }
+        if (faltantes != null) {
+            DBManager.cargarCanciones(faltantes);
+            int sinCatalogo = 0;
+            Long ejemplo = null;
+            for (int i = 0; i < cantidad; i++) {
+                if (canciones[i] != null || ids[i] == null) continue;
+                canciones[i] = FabricaCanciones.buscarPorId(ids[i]);
+                if (canciones[i] == null) {
+                    sinCatalogo++;
+                    if (ejemplo == null) ejemplo = ids[i];
+                }
+            }
+            if (sinCatalogo > 0) {
+                throw new IOException(sinCatalogo + " canciones de la playlist no están en el catálogo (p. ej. id "
+                        + ejemplo + ")");
+            }
+        }
+        return canciones;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long deszigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Búfer de escritura que crece según haga falta
+     */
+    private static final class Salida {
+        private byte[] buf;
+        private int pos;
+
+        Salida(int capacidadInicial) {
+            buf = new byte[Math.max(16, capacidadInicial)];
+        }
+
+        private void asegurar(int extra) {
+            if (pos + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+        }
+
+        void byte_(int b) {
+            asegurar(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void varint(long v) {
+            asegurar(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void id(Long id) {
+            varint(id == null ? 0 : zigzag(id) + 1);
+        }
+
+        void fijo64(long v) {
+            asegurar(8);
+            for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) buf[pos++] = (byte) (v >>> desplazamiento);
+        }
+
+        void texto(String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1L);
+            asegurar(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        void bytes(byte[] datos, int longitud) {
+            asegurar(longitud);
+            System.arraycopy(datos, 0, buf, pos, longitud);
+            pos += longitud;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * Cursor de lectura con verificación de límites (un blob corrupto da IOException)
+     */
+    private static final class Entrada {
+        private final byte[] buf;
+        private int pos;
+
+        Entrada(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long varint() throws IOException {
+            long v = 0;
+            for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+                if (pos >= buf.length) throw new IOException("Blob de playlist truncado");
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("Varint demasiado largo en blob de playlist");
+        }
+
+        long fijo64() throws IOException {
+            if (buf.length - pos < 8) throw new IOException("Blob de playlist truncado");
+            long v = 0;
+            for (int i = 0; i < 8; i++) v = (v << 8) | (buf[pos++] & 0xFF);
+            return v;
+        }
+
+        int cantidad() throws IOException {
+            long v = varint();
+            if (v < 0 || v > buf.length) throw new IOException("Cantidad inválida en blob de playlist: " + v);
+            return (int) v;
+        }
+
+        Long id() throws IOException {
+            long v = varint();
+            return v == 0 ? null : deszigzag(v - 1);
+        }
+
+        void saltarTexto() throws IOException {
+            int longitud = longitudTexto();
+            if (longitud > 0) pos += longitud;
+        }
+
+        String texto() throws IOException {
+            int longitud = longitudTexto();
+            if (longitud < 0) return null;
+            String s = new String(buf, pos, longitud, StandardCharsets.UTF_8);
+            pos += longitud;
+            return s;
+        }
+
+        /**
+         * Lee la longitud de un texto y comprueba que quepa en lo que queda del blob.
+         * Un varint corrupto puede ser negativo (10 bytes): se rechaza igual que uno largo.
+         * @return -1 para null
+         */
+        private int longitudTexto() throws IOException {
+            long v = varint();
+            if (v == 0) return -1;
+            if (v < 0 || v - 1 > buf.length - pos) throw new IOException("Texto truncado en blob de playlist");
+            return (int) (v - 1);
+        }
+    }
+}
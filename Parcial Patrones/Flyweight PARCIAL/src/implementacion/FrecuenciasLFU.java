@@ -0,0 +1,171 @@
+package implementacion;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estructura LFU con cubetas de frecuencia (no es segura para hilos; la protege su dueño).
+ *
+ * - Cada cubeta agrupa las claves con la misma frecuencia en una lista doblemente enlazada
+ *   ordenada por recencia (cabeza = la usada hace más tiempo).
+ * - Las cubetas forman a su vez una lista ordenada por frecuencia ascendente, así que la
+ *   víctima (menor frecuencia, desempate por la menos reciente) es la cabeza de la primera
+ *   cubeta: O(1).
+ * - Insertar, tocar y eliminar son O(1) mientras no haya que crear ni borrar cubetas.
+ *   Crear o borrar una cubeta mantiene además un TreeMap de frecuencias vivas para ubicar
+ *   frecuencias arbitrarias: O(log C), con C = frecuencias distintas presentes (unas pocas
+ *   decenas en la práctica). Ningún paso depende del número de entradas.
+ */
+class FrecuenciasLFU {
+
+    private static final class Nodo {
+        final String clave;
+        Cubeta cubeta;
+        Nodo anterior;
+        Nodo siguiente;
+
+        Nodo(String clave) {
+            this.clave = clave;
+        }
+    }
+
+    private static final class Cubeta {
+        final long frecuencia;
+        Nodo cabeza;
+        Nodo cola;
+        Cubeta anterior;
+        Cubeta siguiente;
+
+        Cubeta(long frecuencia) {
+            this.frecuencia = frecuencia;
+        }
+    }
+
+    private final Map<String, Nodo> nodos = new HashMap<>();
+    private final Map<Long, Cubeta> cubetas = new HashMap<>();
+    // Solo se consulta al crear una cubeta cuyo predecesor no se conoce por la pista
+    private final TreeMap<Long, Cubeta> ordenadas = new TreeMap<>();
+    private Cubeta primera;
+
+    /**
+     * Registra una clave nueva (o la actualiza si ya existía) como la más reciente de su frecuencia
+     */
+    void insertar(String clave, long frecuencia) {
+        Nodo nodo = nodos.get(clave);
+        if (nodo != null) {
+            tocar(clave, frecuencia);
+            return;
+        }
+        nodo = new Nodo(clave);
+        nodos.put(clave, nodo);
+        anexar(cubetaPara(frecuencia, null), nodo);
+    }
+
+    /**
+     * Marca un acceso: la clave pasa a la frecuencia indicada y a ser la más reciente de ella
+     */
+    void tocar(String clave, long frecuencia) {
+        Nodo nodo = nodos.get(clave);
+        if (nodo == null) return;
+        Cubeta actual = nodo.cubeta;
+        Cubeta destino = actual.frecuencia == frecuencia ? actual : cubetaPara(frecuencia, actual);
+        desenlazar(nodo);
+        anexar(destino, nodo);
+        if (actual != destino && actual.cabeza == null) eliminarCubeta(actual);
+    }
+
+    void eliminar(String clave) {
+        Nodo nodo = nodos.remove(clave);
+        if (nodo == null) return;
+        Cubeta cubeta = nodo.cubeta;
+        desenlazar(nodo);
+        if (cubeta.cabeza == null) eliminarCubeta(cubeta);
+    }
+
+    /**
+     * @return la clave de menor frecuencia y, entre ellas, la menos reciente (null si está vacía)
+     */
+    String victima() {
+        return primera != null ? primera.cabeza.clave : null;
+    }
+
+    /**
+     * @return la frecuencia registrada para la clave, o -1 si no está
+     */
+    long frecuencia(String clave) {
+        Nodo nodo = nodos.get(clave);
+        return nodo != null ? nodo.cubeta.frecuencia : -1;
+    }
+
+    int tamano() {
+        return nodos.size();
+    }
+
+    void limpiar() {
+        nodos.clear();
+        cubetas.clear();
+        ordenadas.clear();
+        primera = null;
+    }
+
+    /**
+     * Devuelve la cubeta de esa frecuencia, creándola en su posición si no existe.
+     * @param pista cubeta conocida cercana (la actual del nodo) para evitar el TreeMap
+     */
+    private Cubeta cubetaPara(long frecuencia, Cubeta pista) {
+        Cubeta existente = cubetas.get(frecuencia);
+        if (existente != null) return existente;
+
+        Cubeta nueva = new Cubeta(frecuencia);
+        Cubeta previa;
+        if (pista != null && pista.frecuencia < frecuencia
+                && (pista.siguiente == null || pista.siguiente.frecuencia > frecuencia)) {
+            previa = pista; // incremento: va justo después de la cubeta actual
+        } else {
+            Map.Entry<Long, Cubeta> menor = ordenadas.lowerEntry(frecuencia);
+            previa = menor != null ? menor.getValue() : null;
+        }
+
+        if (previa == null) {
+            nueva.siguiente = primera;
+            if (primera != null) primera.anterior = nueva;
+            primera = nueva;
+        } else {
+            nueva.anterior = previa;
+            nueva.siguiente = previa.siguiente;
+            if (previa.siguiente != null) previa.siguiente.anterior = nueva;
+            previa.siguiente = nueva;
+        }
+        cubetas.put(frecuencia, nueva);
+        ordenadas.put(frecuencia, nueva);
+        return nueva;
+    }
+
+    private void eliminarCubeta(Cubeta c) {
+        if (c.anterior != null) c.anterior.siguiente = c.siguiente;
+        else primera = c.siguiente;
+        if (c.siguiente != null) c.siguiente.anterior = c.anterior;
+        cubetas.remove(c.frecuencia);
+        ordenadas.remove(c.frecuencia);
+    }
+
+    private static void anexar(Cubeta c, Nodo n) {
+        n.cubeta = c;
+        n.anterior = c.cola;
+        n.siguiente = null;
+        if (c.cola != null) c.cola.siguiente = n;
+        else c.cabeza = n;
+        c.cola = n;
+    }
+
+    private static void desenlazar(Nodo n) {
+        Cubeta c = n.cubeta;
+        if (n.anterior != null) n.anterior.siguiente = n.siguiente;
+        else c.cabeza = n.siguiente;
+        if (n.siguiente != null) n.siguiente.anterior = n.anterior;
+        else c.cola = n.anterior;
+        n.anterior = null;
+        n.siguiente = null;
+    }
+}
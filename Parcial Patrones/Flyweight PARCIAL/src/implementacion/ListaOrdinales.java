@@ -0,0 +1,218 @@
+package implementacion;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * ListaOrdinales - lista de canciones guardada como int[] de ordinales del pool de
+ * FabricaCanciones (TablaOrdinales) en lugar de un arreglo de referencias.
+ *
+ * - Cada posición ocupa 4 bytes; una referencia ocupa 4 con compressed oops y 8 sin ellos
+ *   (heaps de 32 GB o más). Además recortar() deja el arreglo del tamaño exacto, sin la
+ *   holgura de crecimiento de ArrayList.
+ * - get(i) resuelve el ordinal en la tabla (dos lecturas de arreglo); getOrdinal(i) da el
+ *   entero sin resolver. iterator() lee el arreglo de la tabla una sola vez.
+ * - La lista queda atada a la tabla de la primera canción agregada. Si se agrega una
+ *   canción que no está en esa tabla (flyweight deshabilitado, una canción creada a mano o
+ *   del pool posterior a un clearPool()) pasa a guardar objetos como un ArrayList: sigue
+ *   funcionando igual, solo que sin la compactación (isCompacta() = false).
+ *
+ * Como ArrayList, no es segura para modificarse desde varios hilos.
+ * ListaReproduccion la usa con -Dflyweight.lista.ordinales=true (ListaReproduccion.UsarOrdinales).
+ */
+public final class ListaOrdinales extends AbstractList<Cancion> implements RandomAccess {
+    private static final int[] VACIO = new int[0];
+
+    private TablaOrdinales tabla;
+    private int[] ordinales;
+    private int tamano;
+    // Distinto de null después de caer a objetos
+    private List<Cancion> objetos;
+
+    public ListaOrdinales() {
+        this(0);
+    }
+
+    public ListaOrdinales(int capacidad) {
+        this.ordinales = capacidad > 0 ? new int[capacidad] : VACIO;
+    }
+
+    /**
+     * Lista con exactamente esas canciones (arreglo del tamaño justo)
+     */
+    public static ListaOrdinales de(Cancion[] canciones) {
+        ListaOrdinales lista = new ListaOrdinales(canciones.length);
+        for (Cancion c : canciones) lista.add(c);
+        return lista;
+    }
+
+    @Override
+    public Cancion get(int indice) {
+        if (objetos != null) return objetos.get(indice);
+        verificarIndice(indice);
+        return tabla.cancion(ordinales[indice]);
+    }
+
+    /**
+     * Ordinal de la canción en la posición indice, o -1 si la lista ya guarda objetos
+     */
+    public int getOrdinal(int indice) {
+        if (objetos != null) return -1;
+        verificarIndice(indice);
+        return ordinales[indice];
+    }
+
+    @Override
+    public int size() {
+        return objetos != null ? objetos.size() : tamano;
+    }
+
+    @Override
+    public Iterator<Cancion> iterator() {
+        return objetos != null ? objetos.iterator() : new Recorrido();
+    }
+
+    @Override
+    public Cancion set(int indice, Cancion cancion) {
+        if (objetos == null) {
+            verificarIndice(indice);
+            int o = ordinal(cancion);
+            if (o >= 0) {
+                Cancion anterior = tabla.cancion(ordinales[indice]);
+                ordinales[indice] = o;
+                return anterior;
+            }
+            pasarAObjetos();
+        }
+        return objetos.set(indice, cancion);
+    }
+
+    @Override
+    public void add(int indice, Cancion cancion) {
+        modCount++;
+        if (objetos == null) {
+            if (indice < 0 || indice > tamano) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + tamano);
+            }
+            int o = ordinal(cancion);
+            if (o >= 0) {
+                if (tamano == ordinales.length) {
+                    ordinales = Arrays.copyOf(ordinales, Math.max(10, tamano + (tamano >> 1)));
+                }
+                System.arraycopy(ordinales, indice, ordinales, indice + 1, tamano - indice);
+                ordinales[indice] = o;
+                tamano++;
+                return;
+            }
+            pasarAObjetos();
+        }
+        objetos.add(indice, cancion);
+    }
+
+    @Override
+    public Cancion remove(int indice) {
+        modCount++;
+        if (objetos != null) return objetos.remove(indice);
+        verificarIndice(indice);
+        Cancion anterior = tabla.cancion(ordinales[indice]);
+        System.arraycopy(ordinales, indice + 1, ordinales, indice, tamano - indice - 1);
+        tamano--;
+        return anterior;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        tabla = null;
+        ordinales = VACIO;
+        tamano = 0;
+        objetos = null;
+    }
+
+    /**
+     * Ajusta el arreglo al tamaño actual (como ArrayList.trimToSize())
+     */
+    public void recortar() {
+        if (objetos == null && ordinales.length > tamano) ordinales = Arrays.copyOf(ordinales, tamano);
+        else if (objetos instanceof ArrayList) ((ArrayList<Cancion>) objetos).trimToSize();
+    }
+
+    /**
+     * true mientras guarda ordinales (false si cayó a objetos)
+     */
+    public boolean isCompacta() {
+        return objetos == null;
+    }
+
+    /**
+     * Ordinal de la canción en la tabla de la lista (la fija si es la primera), o -1
+     */
+    private int ordinal(Cancion cancion) {
+        if (tabla == null) {
+            if (tamano > 0) return -1;
+            TablaOrdinales actual = FabricaCanciones.getTablaOrdinales();
+            int o = actual.ordinal(cancion);
+            if (o >= 0) tabla = actual;
+            return o;
+        }
+        return tabla.ordinal(cancion);
+    }
+
+    private void pasarAObjetos() {
+        List<Cancion> m = new ArrayList<>(Math.max(10, tamano + 1));
+        for (int i = 0; i < tamano; i++) m.add(tabla.cancion(ordinales[i]));
+        objetos = m;
+        ordinales = VACIO;
+        tamano = 0;
+        tabla = null;
+    }
+
+    /**
+     * Iterador sobre los ordinales con el arreglo de la tabla leído al empezar
+     */
+    private final class Recorrido implements Iterator<Cancion> {
+        private final Cancion[] canciones = tabla != null ? tabla.arreglo() : null;
+        private int siguiente;
+        private int ultimo = -1;
+        private int esperado = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return siguiente < size();
+        }
+
+        @Override
+        public Cancion next() {
+            if (modCount != esperado) throw new ConcurrentModificationException();
+            if (siguiente >= size()) throw new NoSuchElementException();
+            ultimo = siguiente++;
+            // Un set() durante el recorrido puede haber pasado la lista a objetos o puesto
+            // un ordinal más nuevo que el arreglo leído al empezar
+            if (objetos != null) return objetos.get(ultimo);
+            int o = ordinales[ultimo];
+            return o < canciones.length ? canciones[o] : tabla.cancion(o);
+        }
+
+        @Override
+        public void remove() {
+            if (ultimo < 0) throw new IllegalStateException();
+            if (modCount != esperado) throw new ConcurrentModificationException();
+            ListaOrdinales.this.remove(ultimo);
+            siguiente = ultimo;
+            ultimo = -1;
+            esperado = modCount;
+        }
+    }
+
+    private void verificarIndice(int indice) {
+        if (indice < 0 || indice >= tamano) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + tamano);
+        }
+    }
+}
@@ -4,18 +4,24 @@
  */
 package implementacion;
 
-import java.io.*;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Lista de Reproducción - Representa el estado extrínseco (único para cada lista)
+ *
+ * Con UsarOrdinales las canciones se guardan como ordinales del pool (ListaOrdinales,
+ * 4 bytes por canción); getCanciones() sigue devolviendo una List<Cancion> normal.
  */
 public class ListaReproduccion {
+    // Elegir antes de crear listas: solo afecta a las listas nuevas
+    public static boolean UsarOrdinales = Boolean.getBoolean("flyweight.lista.ordinales");
     private String nombreLista;
-    private List<Cancion> canciones = new ArrayList<>();
-    // Contador de usos para priorizar las listas en memoria
-    private long usos = 0L;
+    private List<Cancion> canciones = UsarOrdinales ? new ListaOrdinales() : new ArrayList<>();
+    // Usos totales y puntuación con decaimiento para priorizar las listas en memoria
+    private final ContadorUsos usos = new ContadorUsos();
     
     public ListaReproduccion(String nombreLista) {
         this.nombreLista = nombreLista;
@@ -36,84 +42,94 @@ public class ListaReproduccion {
     public void setCanciones(List<Cancion> canciones) {
         this.canciones = canciones;
     }
+
+    /**
+     * Ajusta el almacenamiento de las canciones al tamaño actual (sin holgura de crecimiento).
+     * Útil al terminar de armar una lista que luego solo se lee.
+     */
+    public void recortar() {
+        if (canciones instanceof ListaOrdinales) ((ListaOrdinales) canciones).recortar();
+        else if (canciones instanceof ArrayList) ((ArrayList<Cancion>) canciones).trimToSize();
+    }
+
+    /**
+     * Lista con exactamente esas canciones, en la representación que indica UsarOrdinales
+     */
+    static List<Cancion> listaCanciones(Cancion[] canciones) {
+        return UsarOrdinales ? ListaOrdinales.de(canciones) : new ArrayList<>(Arrays.asList(canciones));
+    }
+
+    /**
+     * Copia de las canciones en [desde, desde + cantidad), recortada al tamaño de la lista
+     */
+    public List<Cancion> getPagina(int desde, int cantidad) {
+        List<Cancion> todas = getCanciones();
+        int inicio = Math.max(0, Math.min(desde, todas.size()));
+        int fin = (int) Math.min(todas.size(), (long) inicio + Math.max(0, cantidad));
+        return new ArrayList<>(todas.subList(inicio, fin));
+    }
     
+    /**
+     * Usos totales (sin decaimiento)
+     */
     public long getUsos() {
-        return usos;
+        return usos.getTotal();
     }
 
+    /**
+     * Registra un uso; seguro para varios hilos a la vez
+     */
     public void incrementarUso() {
-        usos++;
+        usos.incrementar();
     }
 
+    /**
+     * Fija los usos totales; la puntuación queda como si hubieran ocurrido ahora
+     */
     public void setUsos(long usos) {
-        this.usos = usos;
+        this.usos.setTotal(usos);
     }
 
     /**
-     * Serializa la lista a un arreglo de bytes (Java Serialization).
+     * Puntuación con decaimiento (ContadorUsos): la que usan LFU y el umbral de persistencia
+     */
+    public double getPuntuacion() {
+        return usos.getPuntuacion();
+    }
+
+    /**
+     * Puntuación en forma logarítmica, estable en el tiempo (lo que se guarda)
+     */
+    public double getPuntuacionLog() {
+        return usos.getLogaritmo();
+    }
+
+    public void setPuntuacionLog(double logaritmo) {
+        usos.setLogaritmo(logaritmo);
+    }
+
+    /**
+     * Serializa la lista a un arreglo de bytes (formato compacto de FormatoPlaylist).
      * Esto facilita almacenarla en la base de datos como bytea.
      */
     public byte[] toBytes() throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(this.nombreLista);
-            oos.writeLong(this.usos);
-            // Guardamos canciones como su información básica (id, nombre, artista.nombre)
-            oos.writeInt(this.canciones.size());
-            for (Cancion c : this.canciones) {
-                oos.writeObject(c.getId());
-                oos.writeObject(c.getNombreCancion());
-                Artista a = c.getArtista();
-                if (a != null) {
-                    oos.writeObject(a.getId());
-                    oos.writeObject(a.getNombreArtista());
-                    oos.writeObject(a.getGeneroMusical());
-                    oos.writeObject(a.getPais());
-                } else {
-                    oos.writeObject(null);
-                    oos.writeObject(null);
-                    oos.writeObject(null);
-                    oos.writeObject(null);
-                }
-            }
-            oos.flush();
-            return baos.toByteArray();
-        }
+        return FormatoPlaylist.escribir(this);
     }
 
     /**
      * Reconstruye una ListaReproduccion a partir de bytes guardados con toBytes().
+     * Acepta también los blobs del formato anterior (Java Serialization). Las listas de
+     * FormatoPlaylist.LecturaPerezosaDesde canciones o más se devuelven perezosas.
      */
     public static ListaReproduccion fromBytes(byte[] data) throws IOException, ClassNotFoundException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
-             ObjectInputStream ois = new ObjectInputStream(bais)) {
-            String nombre = (String) ois.readObject();
-            long usos = ois.readLong();
-            ListaReproduccion lista = new ListaReproduccion(nombre);
-            lista.setUsos(usos);
-            int size = ois.readInt();
-            for (int i = 0; i < size; i++) {
-                Object idObj = ois.readObject();
-                Long id = idObj != null ? (Long) idObj : null;
-                String nombreCancion = (String) ois.readObject();
-                Object artistaIdObj = ois.readObject();
-                if (artistaIdObj != null) {
-                    Long artistaId = (Long) artistaIdObj;
-                    String nombreArtista = (String) ois.readObject();
-                    String genero = (String) ois.readObject();
-                    String pais = (String) ois.readObject();
-                    Artista artista = new Artista(artistaId, nombreArtista, genero, pais);
-                    Cancion c = new Cancion(id, nombreCancion, artista);
-                    lista.getCanciones().add(c);
-                } else {
-                    // artista nulo: consumir los 3 valores nulos
-                    ois.readObject(); ois.readObject(); ois.readObject();
-                    Cancion c = new Cancion(id, nombreCancion, null);
-                    lista.getCanciones().add(c);
-                }
-            }
-            return lista;
-        }
+        return FormatoPlaylist.leer(data);
+    }
+
+    /**
+     * Como fromBytes(), pero las canciones se decodifican al accederlas (ListaReproduccionPerezosa)
+     */
+    public static ListaReproduccion fromBytesPerezosa(byte[] data) throws IOException, ClassNotFoundException {
+        return FormatoPlaylist.leerPerezosa(data);
     }
     
     /**
@@ -0,0 +1,177 @@
+package implementacion;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * ListaReproduccionPerezosa - lista leída de un blob de FormatoPlaylist que decodifica sus
+ * canciones solo cuando se accede a ellas.
+ *
+ * - Nombre, usos y tabla de artistas se leen al construirla; el resto queda en el blob.
+ * - getCanciones() es una vista de solo lectura por índice: get(i) decodifica el bloque de
+ *   canciones que contiene a i y lo conserva hasta que se pida otro bloque. Recorrerla
+ *   entera decodifica cada bloque una vez.
+ * - getPagina(desde, cantidad) decodifica solo esa página; con el catálogo normalizado,
+ *   los ids ausentes del pool se piden a la BD en una sola consulta por página.
+ * - Si el blob trae índice de bloques (FLAG_INDICE) se salta directo a la página; si no,
+ *   el primer acceso recorre el blob una vez (sin crear objetos) para calcular el índice.
+ * - Cualquier modificación (add, set, remove...) materializa primero todas las canciones en
+ *   una lista normal; desde ahí se comporta como una ListaReproduccion común.
+ *
+ * Como ListaReproduccion, no está pensada para modificarse desde varios hilos; las lecturas
+ * concurrentes sí son seguras (en el peor caso dos hilos decodifican el mismo bloque).
+ * Un blob corrupto se detecta al acceder a la canción: UncheckedIOException.
+ */
+public class ListaReproduccionPerezosa extends ListaReproduccion {
+
+    private static final class Bloque {
+        final int indice;
+        final Cancion[] canciones;
+
+        Bloque(int indice, Cancion[] canciones) {
+            this.indice = indice;
+            this.canciones = canciones;
+        }
+    }
+
+    private final FormatoPlaylist.Cabecera cabecera;
+    private final int porBloque;
+    private volatile int[] bloques;
+    private volatile Bloque ultimo;
+    private volatile List<Cancion> materializada;
+
+    ListaReproduccionPerezosa(FormatoPlaylist.Cabecera cabecera) {
+        super(cabecera.nombre);
+        this.cabecera = cabecera;
+        this.bloques = cabecera.bloques;
+        this.porBloque = cabecera.bloques != null ? cabecera.porBloque : Math.max(1, FormatoPlaylist.CancionesPorBloque);
+        setUsos(cabecera.usos);
+        if (cabecera.tienePuntuacion()) setPuntuacionLog(cabecera.puntuacionLog);
+        super.setCanciones(new Vista());
+    }
+
+    /**
+     * true si ya se decodificaron todas las canciones por una modificación
+     */
+    public boolean isMaterializada() {
+        return materializada != null;
+    }
+
+    /**
+     * Tamaño del blob del que se leen las canciones
+     */
+    public int getBytesRetenidos() {
+        return cabecera.datos.length;
+    }
+
+    @Override
+    public List<Cancion> getPagina(int desde, int cantidad) {
+        if (materializada != null || !(getCanciones() instanceof Vista)) return super.getPagina(desde, cantidad);
+        int inicio = Math.max(0, Math.min(desde, cabecera.cantidad));
+        int fin = (int) Math.min(cabecera.cantidad, (long) inicio + Math.max(0, cantidad));
+        if (inicio == fin) return new ArrayList<>();
+        int bloque = inicio / porBloque;
+        try {
+            Cancion[] pagina = FormatoPlaylist.leerCanciones(cabecera, posicionBloque(bloque),
+                    inicio - bloque * porBloque, fin - inicio);
+            return new ArrayList<>(Arrays.asList(pagina));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int posicionBloque(int bloque) throws IOException {
+        int[] b = bloques;
+        if (b == null) {
+            b = FormatoPlaylist.indexar(cabecera, porBloque);
+            bloques = b;
+        }
+        return b[bloque];
+    }
+
+    private Cancion cancion(int indice) {
+        int bloque = indice / porBloque;
+        Bloque actual = ultimo;
+        if (actual == null || actual.indice != bloque) {
+            int desde = bloque * porBloque;
+            try {
+                actual = new Bloque(bloque, FormatoPlaylist.leerCanciones(cabecera, posicionBloque(bloque), 0,
+                        Math.min(porBloque, cabecera.cantidad - desde)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ultimo = actual;
+        }
+        return actual.canciones[indice - bloque * porBloque];
+    }
+
+    private List<Cancion> materializar() {
+        List<Cancion> m = materializada;
+        if (m == null) {
+            m = new ArrayList<>(cabecera.cantidad);
+            for (int desde = 0; desde < cabecera.cantidad; desde += porBloque) {
+                m.addAll(getPagina(desde, porBloque));
+            }
+            materializada = m;
+            ultimo = null;
+        }
+        return m;
+    }
+
+    /**
+     * Vista de las canciones: decodifica por bloques hasta la primera modificación
+     */
+    private final class Vista extends AbstractList<Cancion> implements RandomAccess {
+        @Override
+        public Cancion get(int indice) {
+            List<Cancion> m = materializada;
+            if (m != null) return m.get(indice);
+            if (indice < 0 || indice >= cabecera.cantidad) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + cabecera.cantidad);
+            }
+            return cancion(indice);
+        }
+
+        @Override
+        public int size() {
+            List<Cancion> m = materializada;
+            return m != null ? m.size() : cabecera.cantidad;
+        }
+
+        @Override
+        public Cancion set(int indice, Cancion cancion) {
+            return materializar().set(indice, cancion);
+        }
+
+        @Override
+        public void add(int indice, Cancion cancion) {
+            materializar().add(indice, cancion);
+            modCount++;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Cancion> otras) {
+            modCount++;
+            return materializar().addAll(otras);
+        }
+
+        @Override
+        public Cancion remove(int indice) {
+            modCount++;
+            return materializar().remove(indice);
+        }
+
+        @Override
+        public void clear() {
+            modCount++;
+            materializada = new ArrayList<>();
+            ultimo = null;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package implementacion;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MedidorMemoria - memoria medida en lugar de estimada con deltas del heap (que dependen de
+ * cuándo corrió el GC).
+ *
+ * - asignadosHilo(): bytes asignados por el hilo actual desde que arrancó (contador por hilo
+ *   de com.sun.management.ThreadMXBean). La diferencia entre dos lecturas es lo que asignó
+ *   un escenario, haya o no GC en el medio.
+ * - Recorrido: tamaño retenido de un grafo de objetos. Recorre los campos de instancia y los
+ *   arreglos desde las raíces y suma cada objeto una sola vez; los tamaños salen de los
+ *   offsets reales de los campos (sun.misc.Unsafe, por reflexión) y de la alineación de la
+ *   JVM, así que coinciden con el layout de HotSpot. No entra en Class, ClassLoader ni Thread,
+ *   y no sigue el referente de las referencias débiles (no lo retienen).
+ * - medir(listas): informe de los pools y de las playlists. Los pools se recorren primero:
+ *   las canciones compartidas se cuentan en ellos y cada playlist suma solo lo propio.
+ *
+ * Si la JVM no expone Unsafe, isDisponible() es false y los tamaños valen -1.
+ */
+public final class MedidorMemoria {
+
+    private static final MethodHandle OFFSET_CAMPO;   // (Field) long
+    private static final MethodHandle LEER_OBJETO;    // (Object, long) Object
+    private static final MethodHandle BASE_ARREGLO;   // (Class) int
+    private static final MethodHandle ESCALA_ARREGLO; // (Class) int
+    private static final int CABECERA;
+    private static final int ALINEACION;
+    // Canciones medidas una por una para estimar el costo de una copia privada
+    private static final int MUESTRA_COPIAS = 1_000;
+
+    static {
+        MethodHandle offset = null, leer = null, base = null, escala = null;
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Field campo = clase.getDeclaredField("theUnsafe");
+            campo.setAccessible(true);
+            Object unsafe = campo.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            offset = lookup.findVirtual(clase, "objectFieldOffset", MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+            leer = lookup.findVirtual(clase, "getObject", MethodType.methodType(Object.class, Object.class, long.class)).bindTo(unsafe);
+            base = lookup.findVirtual(clase, "arrayBaseOffset", MethodType.methodType(int.class, Class.class)).bindTo(unsafe);
+            escala = lookup.findVirtual(clase, "arrayIndexScale", MethodType.methodType(int.class, Class.class)).bindTo(unsafe);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            offset = leer = base = escala = null;
+        }
+        OFFSET_CAMPO = offset;
+        LEER_OBJETO = leer;
+        BASE_ARREGLO = base;
+        ESCALA_ARREGLO = escala;
+        CABECERA = "false".equals(opcionVm("UseCompressedClassPointers")) ? 16 : 12;
+        String alineacion = opcionVm("ObjectAlignmentInBytes");
+        ALINEACION = alineacion != null ? Integer.parseInt(alineacion) : 8;
+    }
+
+    private MedidorMemoria() {
+    }
+
+    public static boolean isDisponible() {
+        return OFFSET_CAMPO != null;
+    }
+
+    /**
+     * Bytes asignados por el hilo actual desde que arrancó, o -1 si la JVM no lo mide
+     */
+    public static long asignadosHilo() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (hilos instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) hilos;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static String opcionVm(String nombre) {
+        try {
+            return ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class)
+                    .getVMOption(nombre).getValue();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long alinear(long bytes) {
+        return (bytes + ALINEACION - 1) / ALINEACION * ALINEACION;
+    }
+
+    /**
+     * Tamaño de las instancias de una clase y offsets de sus campos de referencia
+     */
+    private static final class Disposicion {
+        final long tamano;
+        final long[] referencias;
+
+        Disposicion(long tamano, long[] referencias) {
+            this.tamano = tamano;
+            this.referencias = referencias;
+        }
+    }
+
+    private static final Map<Class<?>, Disposicion> DISPOSICIONES = new HashMap<>();
+
+    private static synchronized Disposicion disposicion(Class<?> clase) {
+        Disposicion d = DISPOSICIONES.get(clase);
+        if (d != null) return d;
+        long fin = CABECERA;
+        List<Long> referencias = new ArrayList<>();
+        for (Class<?> c = clase; c != null; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                long offset;
+                try {
+                    offset = (long) OFFSET_CAMPO.invokeExact(f);
+                } catch (Throwable e) {
+                    // Clases ocultas (lambdas) y records: sin offsets, se cuenta solo la cabecera
+                    continue;
+                }
+                Class<?> tipo = f.getType();
+                fin = Math.max(fin, offset + tamanoCampo(tipo));
+                // Lo que apunta una Reference (referente, cola) no queda retenido por ella
+                if (!tipo.isPrimitive() && c != Reference.class) referencias.add(offset);
+            }
+        }
+        long[] offsets = new long[referencias.size()];
+        for (int i = 0; i < offsets.length; i++) offsets[i] = referencias.get(i);
+        d = new Disposicion(alinear(fin), offsets);
+        DISPOSICIONES.put(clase, d);
+        return d;
+    }
+
+    private static int tamanoCampo(Class<?> tipo) {
+        if (tipo == long.class || tipo == double.class) return 8;
+        if (tipo == int.class || tipo == float.class) return 4;
+        if (tipo == short.class || tipo == char.class) return 2;
+        if (tipo == byte.class || tipo == boolean.class) return 1;
+        return escala(Object[].class);
+    }
+
+    private static int escala(Class<?> claseArreglo) {
+        try {
+            return (int) ESCALA_ARREGLO.invokeExact(claseArreglo);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long tamanoArreglo(Object arreglo) {
+        try {
+            Class<?> clase = arreglo.getClass();
+            int base = (int) BASE_ARREGLO.invokeExact(clase);
+            return alinear(base + (long) escala(clase) * Array.getLength(arreglo));
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object leer(Object objeto, long offset) {
+        try {
+            return (Object) LEER_OBJETO.invokeExact(objeto, offset);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean excluido(Object o) {
+        return o instanceof Class || o instanceof ClassLoader || o instanceof Thread || o instanceof ThreadGroup;
+    }
+
+    /**
+     * Recorrido acumulativo: un objeto contado por una raíz no se vuelve a contar en las
+     * siguientes, así que el orden de las raíces decide a quién se atribuye lo compartido.
+     */
+    public static final class Recorrido {
+        private final IdentityHashMap<Object, Boolean> vistos = new IdentityHashMap<>();
+        private final ArrayDeque<Object> pendientes = new ArrayDeque<>();
+        private final Map<Class<?>, long[]> porClase = new HashMap<>();
+        private long bytes;
+        private long objetos;
+
+        /**
+         * Suma los objetos alcanzables desde raiz que no se habían contado
+         * @return bytes agregados por esta raíz, o -1 si no hay Unsafe
+         */
+        public long agregar(Object raiz) {
+            if (!isDisponible()) return -1;
+            long antes = bytes;
+            visitar(raiz);
+            Object o;
+            while ((o = pendientes.poll()) != null) {
+                Class<?> clase = o.getClass();
+                long tamano;
+                if (clase.isArray()) {
+                    tamano = tamanoArreglo(o);
+                    if (!clase.getComponentType().isPrimitive()) {
+                        for (Object elemento : (Object[]) o) visitar(elemento);
+                    }
+                } else {
+                    Disposicion d = disposicion(clase);
+                    tamano = d.tamano;
+                    for (long offset : d.referencias) visitar(leer(o, offset));
+                }
+                bytes += tamano;
+                objetos++;
+                long[] c = porClase.computeIfAbsent(clase, k -> new long[2]);
+                c[0]++;
+                c[1] += tamano;
+            }
+            return bytes - antes;
+        }
+
+        /**
+         * Toma como raíces los campos estáticos de la clase (los pools de las fábricas)
+         */
+        public long agregarEstaticos(Class<?> clase) {
+            if (!isDisponible()) return -1;
+            long antes = bytes;
+            for (Field f : clase.getDeclaredFields()) {
+                if (!Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) continue;
+                try {
+                    f.setAccessible(true);
+                    agregar(f.get(null));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    // Campo no accesible: queda fuera de la cuenta
+                }
+            }
+            return bytes - antes;
+        }
+
+        private void visitar(Object o) {
+            if (o == null || excluido(o) || vistos.put(o, Boolean.TRUE) != null) return;
+            pendientes.add(o);
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getObjetos() {
+            return objetos;
+        }
+
+        public long getInstancias(Class<?> clase) {
+            long[] c = porClase.get(clase);
+            return c != null ? c[0] : 0;
+        }
+
+        /**
+         * Clases con más bytes, de mayor a menor: "clase: instancias, bytes"
+         */
+        public List<String> getMayoresClases(int cantidad) {
+            List<Map.Entry<Class<?>, long[]>> entradas = new ArrayList<>(porClase.entrySet());
+            entradas.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+            List<String> resultado = new ArrayList<>();
+            for (int i = 0; i < Math.min(cantidad, entradas.size()); i++) {
+                Map.Entry<Class<?>, long[]> e = entradas.get(i);
+                resultado.add(e.getKey().getSimpleName() + ": " + e.getValue()[0] + " instancias, " + e.getValue()[1] + " bytes");
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Tamaño retenido de los pools y de las playlists
+     */
+    public static final class Informe {
+        public final int listas;
+        public final long referencias;
+        public final long cancionesDistintas;
+        public final long artistasDistintos;
+        public final long bytesPools;
+        public final long bytesListas;
+        // Tamaño medio de una canción con todo lo suyo (artista, textos) medida por separado
+        public final double bytesPorCopia;
+        final List<String> mayoresClases;
+
+        Informe(int listas, long referencias, long cancionesDistintas, long artistasDistintos, long bytesPools,
+                long bytesListas, double bytesPorCopia, List<String> mayoresClases) {
+            this.listas = listas;
+            this.referencias = referencias;
+            this.cancionesDistintas = cancionesDistintas;
+            this.artistasDistintos = artistasDistintos;
+            this.bytesPools = bytesPools;
+            this.bytesListas = bytesListas;
+            this.bytesPorCopia = bytesPorCopia;
+            this.mayoresClases = mayoresClases;
+        }
+
+        public long getBytesTotales() {
+            return bytesPools + bytesListas;
+        }
+
+        /**
+         * Bytes propios de cada playlist (sin lo compartido en los pools)
+         */
+        public double getBytesPorPlaylist() {
+            return listas > 0 ? (double) bytesListas / listas : 0;
+        }
+
+        /**
+         * Bytes totales (pools incluidos) por cada canción agregada a una playlist
+         */
+        public double getBytesPorReferencia() {
+            return referencias > 0 ? (double) getBytesTotales() / referencias : 0;
+        }
+
+        /**
+         * Referencias a canciones por cada objeto Cancion distinto (1 = sin compartir)
+         */
+        public double getRatioDeduplicacion() {
+            return cancionesDistintas > 0 ? (double) referencias / cancionesDistintas : 0;
+        }
+
+        /**
+         * Bytes que harían falta si cada referencia repetida tuviera su propia copia de la canción
+         */
+        public double getBytesSinCompartir() {
+            return getBytesTotales() + Math.max(0, referencias - cancionesDistintas) * bytesPorCopia;
+        }
+
+        /**
+         * Porcentaje del heap ahorrado frente a getBytesSinCompartir()
+         */
+        public double getAhorroPorcentaje() {
+            double sin = getBytesSinCompartir();
+            return sin > 0 ? (1 - getBytesTotales() / sin) * 100 : 0;
+        }
+
+        public void imprimir(String sangria) {
+            if (bytesPools < 0) {
+                System.out.println(sangria + "Tamaño retenido: no disponible (la JVM no expone sun.misc.Unsafe)");
+                return;
+            }
+            System.out.println(sangria + "Retenido por los pools: " + bytesPools + " bytes");
+            System.out.println(sangria + "Retenido por las playlists: " + bytesListas + " bytes ("
+                    + String.format("%.1f", getBytesPorPlaylist()) + " por playlist)");
+            System.out.println(sangria + "Bytes por referencia a canción (pools incluidos): "
+                    + String.format("%.1f", getBytesPorReferencia()));
+            System.out.println(sangria + "Deduplicación: " + referencias + " referencias / " + cancionesDistintas
+                    + " objetos Cancion = " + String.format("%.1f", getRatioDeduplicacion()) + ":1 ("
+                    + artistasDistintos + " objetos Artista)");
+            System.out.println(sangria + "Ahorro frente a una copia por referencia ("
+                    + String.format("%.0f", bytesPorCopia) + " bytes por canción): "
+                    + String.format("%.1f", getAhorroPorcentaje()) + "%");
+            for (String c : mayoresClases) System.out.println(sangria + "  " + c);
+        }
+    }
+
+    /**
+     * Recorre los pools de FabricaCanciones y FabricaArtistas y luego las playlists
+     */
+    public static Informe medir(Collection<? extends ListaReproduccion> listas) {
+        long referencias = 0;
+        IdentityHashMap<Cancion, Boolean> distintas = new IdentityHashMap<>();
+        for (ListaReproduccion l : listas) {
+            for (Cancion c : l.getCanciones()) {
+                referencias++;
+                if (c != null) distintas.put(c, Boolean.TRUE);
+            }
+        }
+        if (!isDisponible()) {
+            return new Informe(listas.size(), referencias, distintas.size(), 0, -1, -1, 0, new ArrayList<>());
+        }
+
+        Recorrido recorrido = new Recorrido();
+        long pools = recorrido.agregarEstaticos(FabricaCanciones.class) + recorrido.agregarEstaticos(FabricaArtistas.class);
+        long propias = 0;
+        for (ListaReproduccion l : listas) propias += recorrido.agregar(l);
+
+        // Costo de una copia privada: una muestra de las canciones distintas, cada una medida
+        // con un recorrido propio (incluye su artista y sus textos)
+        long medidas = 0, bytesMedidos = 0;
+        for (Cancion c : distintas.keySet()) {
+            if (medidas == MUESTRA_COPIAS) break;
+            bytesMedidos += new Recorrido().agregar(c);
+            medidas++;
+        }
+        return new Informe(listas.size(), referencias, distintas.size(), recorrido.getInstancias(Artista.class), pools,
+                propias, medidas > 0 ? (double) bytesMedidos / medidas : 0, recorrido.getMayoresClases(5));
+    }
+}
@@ -1,18 +1,69 @@
 package implementacion;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * PlaylistCache - guarda en memoria las N listas más usadas.
  * Cuando se excede la capacidad, persiste la(s) menos usadas en la base de datos (si está habilitada).
+ *
+ * La víctima la decide una PoliticaDesalojo (LRU, LFU o TinyLFU; ver FabricaPoliticasDesalojo).
+ * Por defecto LFU en O(1): menor puntuación de usos (con decaimiento) y, a igualdad, la
+ * accedida hace más tiempo.
+ *
+ * Concurrencia:
+ * - Las listas están en un ConcurrentHashMap: get() nunca bloquea.
+ * - Las claves se reparten en segmentos, cada uno con su bloqueo, su política y su parte de
+ *   la capacidad: add/remove solo compiten con otras escrituras del mismo segmento.
+ *   Como cada segmento desaloja por su cuenta, la víctima es la peor de su segmento (no de
+ *   toda la cache) y un segmento con más claves puede desalojar antes de llegar a maxEntries.
+ * - get() avisa el acceso a la política con tryLock(): si el segmento está ocupado el aviso
+ *   se descarta (LFU igual resincroniza usos al elegir víctima).
+ * - Las listas desalojadas se entregan a EscritorDiferido fuera del bloqueo; serializarlas y
+ *   guardarlas en la BD ocurre en su hilo, no en add().
+ *
+ * Read-through (setCargador): un fallo en get() carga la lista del CargadorPlaylist y la
+ * agrega con la política normal. Si varios hilos piden a la vez la misma lista ausente,
+ * solo uno la carga y los demás esperan ese mismo resultado (una consulta, no N).
  */
 public class PlaylistCache {
+    // Traza por desalojo en consola; desactivada por defecto (una línea por inserción con la cache llena)
+    public static boolean TrazaDetallada = Boolean.getBoolean("flyweight.traza");
+
+    // Entradas mínimas por segmento al calcular cuántos segmentos usar
+    private static final int ENTRADAS_MINIMAS_POR_SEGMENTO = 64;
+
     private final int maxEntries;
-    private final Map<String, ListaReproduccion> cache = new HashMap<>();
-    // Umbral por defecto: solo persistir playlists con usos < persistThreshold
+    private final Map<String, ListaReproduccion> cache = new ConcurrentHashMap<>();
+    private final Segmento[] segmentos;
+    private final int mascaraSegmentos;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+    private final LongAdder cargas = new LongAdder();
+    private final LongAdder cargasCompartidas = new LongAdder();
+    // Cargas en curso por nombre (read-through)
+    private final Map<String, CompletableFuture<ListaReproduccion>> cargasEnCurso = new ConcurrentHashMap<>();
+    private volatile CargadorPlaylist cargador = null;
+    // Solo persistir playlists con puntuación (usos con decaimiento) < persistThreshold
     private final long persistThreshold;
 
+    private static final class Segmento {
+        final ReentrantLock bloqueo = new ReentrantLock();
+        final PoliticaDesalojo politica;
+        final int capacidad;
+        int tamano;
+
+        Segmento(PoliticaDesalojo politica, int capacidad) {
+            this.politica = politica;
+            this.capacidad = capacidad;
+        }
+    }
+
     public PlaylistCache(int maxEntries) {
         this(maxEntries, 5);
     }
@@ -20,63 +71,251 @@ public class PlaylistCache {
     /**
      * Construye la cache indicando capacidad máxima y umbral de persistencia.
      * @param maxEntries capacidad en memoria
-     * @param persistThreshold solo persistir playlists con usos < persistThreshold
+     * @param persistThreshold solo persistir playlists con puntuación < persistThreshold
      */
     public PlaylistCache(int maxEntries, long persistThreshold) {
+        this(maxEntries, persistThreshold, System.getProperty(FabricaPoliticasDesalojo.PROPIEDAD_POLITICA, "lfu"),
+                segmentosPorDefecto(maxEntries));
+    }
+
+    /**
+     * Igual que el anterior pero con una política de desalojo concreta.
+     * Usa un solo segmento: la política decide sobre todas las entradas (útil para simular).
+     */
+    public PlaylistCache(int maxEntries, long persistThreshold, PoliticaDesalojo politica) {
         this.maxEntries = Math.max(1, maxEntries);
         this.persistThreshold = Math.max(0, persistThreshold);
+        this.segmentos = new Segmento[] { new Segmento(politica, this.maxEntries) };
+        this.mascaraSegmentos = 0;
     }
 
-    public synchronized void add(ListaReproduccion lista) {
-        if (lista == null || lista.getNombreLista() == null) return;
-        cache.put(lista.getNombreLista(), lista);
-        ensureCapacity();
+    /**
+     * @param tipoPolitica lru, lfu o tinylfu (una instancia por segmento)
+     * @param cantidadSegmentos se redondea a potencia de dos y a no más que maxEntries
+     */
+    public PlaylistCache(int maxEntries, long persistThreshold, String tipoPolitica, int cantidadSegmentos) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.persistThreshold = Math.max(0, persistThreshold);
+        int n = Integer.highestOneBit(Math.max(1, Math.min(cantidadSegmentos, this.maxEntries)));
+        this.segmentos = new Segmento[n];
+        for (int i = 0; i < n; i++) {
+            // Reparto exacto: los primeros maxEntries % n segmentos reciben una entrada más
+            int capacidad = this.maxEntries / n + (i < this.maxEntries % n ? 1 : 0);
+            segmentos[i] = new Segmento(FabricaPoliticasDesalojo.crear(tipoPolitica, capacidad), capacidad);
+        }
+        this.mascaraSegmentos = n - 1;
     }
 
-    public synchronized ListaReproduccion get(String name) {
-        return cache.get(name);
+    /**
+     * 4 segmentos por procesador, sin bajar de ENTRADAS_MINIMAS_POR_SEGMENTO entradas por
+     * segmento para que el desalojo por segmento se parezca al global en caches chicas.
+     */
+    private static int segmentosPorDefecto(int maxEntries) {
+        int porProcesadores = 4 * Runtime.getRuntime().availableProcessors();
+        int porCapacidad = Math.max(1, maxEntries / ENTRADAS_MINIMAS_POR_SEGMENTO);
+        return Integer.highestOneBit(Math.min(porProcesadores, porCapacidad));
     }
 
-    public synchronized void remove(String name) {
-        cache.remove(name);
+    private Segmento segmentoDe(String clave) {
+        int h = clave.hashCode();
+        h ^= (h >>> 16);
+        return segmentos[h & mascaraSegmentos];
     }
 
-    public synchronized List<ListaReproduccion> getAll() {
-        return new ArrayList<>(cache.values());
+    public void add(ListaReproduccion lista) {
+        if (lista == null || lista.getNombreLista() == null) return;
+        String nombre = lista.getNombreLista();
+        Segmento s = segmentoDe(nombre);
+        List<ListaReproduccion> desalojadas = null;
+        s.bloqueo.lock();
+        try {
+            if (cache.put(nombre, lista) == null) s.tamano++;
+            s.politica.registrarInsercion(nombre, lista);
+            while (s.tamano > s.capacidad) {
+                String minKey = s.politica.elegirVictima(nombre, cache::get);
+                if (minKey == null) break;
+                ListaReproduccion evicted = cache.remove(minKey);
+                s.politica.registrarEliminacion(minKey);
+                if (evicted == null) continue;
+                s.tamano--;
+                if (desalojadas == null) desalojadas = new ArrayList<>(1);
+                desalojadas.add(evicted);
+            }
+        } finally {
+            s.bloqueo.unlock();
+        }
+        if (desalojadas != null) {
+            for (ListaReproduccion evicted : desalojadas) {
+                desalojos.increment();
+                persistir(evicted);
+            }
+        }
     }
 
-    private void ensureCapacity() {
-        if (cache.size() <= maxEntries) return;
+    /**
+     * Devuelve la lista en memoria. Sin cargador, un fallo devuelve null; con cargador, se
+     * carga (compartiendo la carga con otros hilos que pidan el mismo nombre) y se agrega.
+     */
+    public ListaReproduccion get(String name) {
+        ListaReproduccion lista = cache.get(name);
+        if (lista == null) {
+            fallos.increment();
+            CargadorPlaylist c = cargador;
+            if (c != null && name != null) return cargar(name, c);
+            // Con cargador el fallo ya cuenta al insertar la lista cargada
+            if (name != null) registrarFallo(name);
+            return null;
+        }
+        aciertos.increment();
+        Segmento s = segmentoDe(name);
+        if (s.bloqueo.tryLock()) {
+            try {
+                s.politica.registrarAcceso(name, lista);
+            } finally {
+                s.bloqueo.unlock();
+            }
+        }
+        return lista;
+    }
 
-        // Buscar la lista con menor usos
-        String minKey = null;
-        long minUsos = Long.MAX_VALUE;
-        for (Map.Entry<String, ListaReproduccion> e : cache.entrySet()) {
-            long u = e.getValue().getUsos();
-            if (u < minUsos) {
-                minUsos = u;
-                minKey = e.getKey();
+    /**
+     * Avisa el fallo a la política (sin esperar el bloqueo, como los accesos): TinyLFU lo
+     * cuenta para admitir después a las listas que se piden seguido aunque no estén.
+     */
+    private void registrarFallo(String name) {
+        Segmento s = segmentoDe(name);
+        if (s.bloqueo.tryLock()) {
+            try {
+                s.politica.registrarFallo(name);
+            } finally {
+                s.bloqueo.unlock();
             }
         }
+    }
 
-        if (minKey != null) {
-            ListaReproduccion evicted = cache.remove(minKey);
-            // Decidir si persistir según umbral
+    private ListaReproduccion cargar(String name, CargadorPlaylist c) {
+        CompletableFuture<ListaReproduccion> propia = new CompletableFuture<>();
+        CompletableFuture<ListaReproduccion> enCurso = cargasEnCurso.putIfAbsent(name, propia);
+        if (enCurso != null) {
+            cargasCompartidas.increment();
             try {
-                if (evicted.getUsos() < persistThreshold) {
-                    if (DBManager.isEnabled()) {
-                        byte[] data = evicted.toBytes();
-                        DBManager.savePlaylist(evicted.getNombreLista(), data, evicted.getUsos());
-                    } else {
-                        System.out.println("[PlaylistCache] Evict (no persistido, BD deshabilitada): " + evicted.getNombreLista());
-                    }
-                } else {
-                    // No persitir: dejamos que la playlist se elimine de la cache sin enviarla a la BD
-                    System.out.println("[PlaylistCache] Evict sin persistir (usos=" + evicted.getUsos() + "): " + evicted.getNombreLista());
-                }
-            } catch (IOException ex) {
-                System.out.println("[PlaylistCache] Error serializando playlist antes de persistir: " + ex.getMessage());
+                return enCurso.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+        try {
+            // Otra carga pudo terminar entre el fallo y el registro de la nuestra
+            ListaReproduccion lista = cache.get(name);
+            if (lista == null) {
+                cargas.increment();
+                lista = c.cargar(name);
+                if (lista != null) add(lista);
+            }
+            propia.complete(lista);
+            return lista;
+        } catch (RuntimeException | Error e) {
+            // También los Error (OOM, StackOverflow...): quien espera en join() no debe quedar colgado
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            cargasEnCurso.remove(name, propia);
+        }
+    }
+
+    /**
+     * Activa el modo read-through con ese cargador (null lo desactiva).
+     * Ejemplo: cache.setCargador(CargadorPlaylist.desdeBD())
+     */
+    public void setCargador(CargadorPlaylist cargador) {
+        this.cargador = cargador;
+    }
+
+    /**
+     * Quita la lista de la cache y del nivel en disco (no de la BD)
+     */
+    public void remove(String name) {
+        Segmento s = segmentoDe(name);
+        s.bloqueo.lock();
+        try {
+            if (cache.remove(name) != null) {
+                s.tamano--;
+                s.politica.registrarEliminacion(name);
+            }
+        } finally {
+            s.bloqueo.unlock();
+        }
+        AlmacenDiscoL2.eliminar(name);
+    }
+
+    public List<ListaReproduccion> getAll() {
+        return new ArrayList<>(cache.values());
+    }
+
+    public int getTamano() {
+        return cache.size();
+    }
+
+    /**
+     * Política del primer segmento (todos los segmentos usan el mismo tipo)
+     */
+    public PoliticaDesalojo getPolitica() {
+        return segmentos[0].politica;
+    }
+
+    public int getSegmentos() {
+        return segmentos.length;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * Fallos que consultaron al cargador (una vez por carga compartida)
+     */
+    public long getCargas() {
+        return cargas.sum();
+    }
+
+    /**
+     * Fallos que esperaron la carga que ya hacía otro hilo en vez de repetirla
+     */
+    public long getCargasCompartidas() {
+        return cargasCompartidas.sum();
+    }
+
+    /**
+     * Listas sacadas por capacidad (incluye candidatas rechazadas por el filtro de admisión)
+     */
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    private void persistir(ListaReproduccion evicted) {
+        // El nivel en disco local (si está abierto) recibe todo desalojo, con o sin BD
+        AlmacenDiscoL2.guardar(evicted);
+        // Decidir si persistir según umbral; la escritura la hace EscritorDiferido en segundo plano
+        if (evicted.getPuntuacion() < persistThreshold) {
+            if (DBManager.isEnabled()) {
+                EscritorDiferido.encolar(evicted);
+            } else if (TrazaDetallada) {
+                System.out.println("[PlaylistCache] Evict (no persistido, BD deshabilitada): " + evicted.getNombreLista());
             }
+        } else if (TrazaDetallada) {
+            // No persitir: dejamos que la playlist se elimine de la cache sin enviarla a la BD
+            System.out.printf("[PlaylistCache] Evict sin persistir (puntuación=%.1f): %s%n", evicted.getPuntuacion(),
+                    evicted.getNombreLista());
         }
     }
 }
@@ -0,0 +1,47 @@
+package implementacion;
+
+import java.util.function.Function;
+
+/**
+ * Política de desalojo de PlaylistCache.
+ *
+ * La cache avisa de inserciones, accesos y eliminaciones, y cuando supera su capacidad
+ * pide una víctima. Las implementaciones no son seguras para hilos: la cache las invoca
+ * con su propio bloqueo tomado.
+ */
+public interface PoliticaDesalojo {
+
+    /**
+     * Se insertó (o reemplazó) una lista en la cache
+     */
+    void registrarInsercion(String clave, ListaReproduccion lista);
+
+    /**
+     * Se leyó una lista que estaba en la cache. El aviso puede llegar cuando la clave ya
+     * fue desalojada: en ese caso la política debe ignorarlo.
+     */
+    void registrarAcceso(String clave, ListaReproduccion lista);
+
+    /**
+     * Se pidió una lista que no estaba en la cache. Solo les interesa a las políticas que
+     * cuentan frecuencias de claves ausentes (TinyLFU); por defecto se ignora.
+     */
+    default void registrarFallo(String clave) {
+    }
+
+    /**
+     * La lista salió de la cache (desalojo o remove explícito)
+     */
+    void registrarEliminacion(String clave);
+
+    /**
+     * Elige qué lista sacar. Las políticas con filtro de admisión pueden devolver la
+     * propia candidata (la recién insertada) para rechazarla.
+     * @param candidata clave que provocó el exceso de capacidad
+     * @param entradas acceso de solo lectura a las listas en cache
+     * @return clave a desalojar, o null si no hay ninguna
+     */
+    String elegirVictima(String candidata, Function<String, ListaReproduccion> entradas);
+
+    String getNombre();
+}
@@ -0,0 +1,61 @@
+package implementacion;
+
+import java.util.function.Function;
+
+/**
+ * LFU: desaloja la lista con menor puntuación de usos (con decaimiento, ver ContadorUsos)
+ * y, a igualdad, la accedida hace más tiempo.
+ * Usa cubetas de frecuencia (FrecuenciasLFU) para elegir la víctima en O(1). La frecuencia
+ * es el logaritmo cuantizado de la puntuación: no cambia con el paso del tiempo, solo con
+ * los usos, y ordena igual que la puntuación actual. La cuantización es gruesa (por defecto
+ * log2 entero, ContadorUsos.PasosPorVidaMedia): dentro de un factor 2 de puntuación se
+ * desaloja la menos reciente, y a cambio hay pocas cubetas y casi ningún acceso cambia de
+ * cubeta, así que el TreeMap de FrecuenciasLFU casi nunca se consulta.
+ *
+ * Como los usos pueden cambiar fuera de la cache (incrementarUso()), la frecuencia se
+ * resincroniza en cada inserción/acceso y al elegir víctima.
+ */
+public class PoliticaLFU implements PoliticaDesalojo {
+    private final FrecuenciasLFU frecuencias = new FrecuenciasLFU();
+
+    @Override
+    public void registrarInsercion(String clave, ListaReproduccion lista) {
+        frecuencias.insertar(clave, frecuencia(lista));
+    }
+
+    @Override
+    public void registrarAcceso(String clave, ListaReproduccion lista) {
+        frecuencias.tocar(clave, frecuencia(lista));
+    }
+
+    @Override
+    public void registrarEliminacion(String clave) {
+        frecuencias.eliminar(clave);
+    }
+
+    @Override
+    public String elegirVictima(String candidata, Function<String, ListaReproduccion> entradas) {
+        while (true) {
+            String minKey = frecuencias.victima();
+            if (minKey == null) return null;
+            ListaReproduccion lista = entradas.apply(minKey);
+            if (lista == null) {
+                frecuencias.eliminar(minKey);
+                continue;
+            }
+            // Si la puntuación cambió desde el último acceso, reubicarla y volver a elegir
+            long frecuencia = frecuencia(lista);
+            if (frecuencia == frecuencias.frecuencia(minKey)) return minKey;
+            frecuencias.tocar(minKey, frecuencia);
+        }
+    }
+
+    private static long frecuencia(ListaReproduccion lista) {
+        return ContadorUsos.cuantizar(lista.getPuntuacionLog());
+    }
+
+    @Override
+    public String getNombre() {
+        return "LFU";
+    }
+}
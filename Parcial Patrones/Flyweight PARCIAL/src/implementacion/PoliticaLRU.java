@@ -0,0 +1,39 @@
+package implementacion;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * LRU: desaloja la lista accedida hace más tiempo. Un LinkedHashMap en orden de acceso
+ * da inserción, acceso y víctima en O(1).
+ */
+public class PoliticaLRU implements PoliticaDesalojo {
+    private final LinkedHashMap<String, Boolean> orden = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public void registrarInsercion(String clave, ListaReproduccion lista) {
+        orden.put(clave, Boolean.TRUE);
+    }
+
+    @Override
+    public void registrarAcceso(String clave, ListaReproduccion lista) {
+        orden.get(clave);
+    }
+
+    @Override
+    public void registrarEliminacion(String clave) {
+        orden.remove(clave);
+    }
+
+    @Override
+    public String elegirVictima(String candidata, Function<String, ListaReproduccion> entradas) {
+        Iterator<String> it = orden.keySet().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    @Override
+    public String getNombre() {
+        return "LRU";
+    }
+}
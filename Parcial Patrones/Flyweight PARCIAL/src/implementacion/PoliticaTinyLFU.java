@@ -0,0 +1,64 @@
+package implementacion;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * TinyLFU: orden LRU con un filtro de admisión por frecuencia.
+ *
+ * Al llenarse la cache, la lista recién insertada solo entra si su frecuencia estimada
+ * (SketchFrecuencias) supera a la de la víctima LRU; si no, se rechaza a la propia
+ * candidata. El sketch cuenta inserciones, aciertos y también los fallos de get(), así
+ * que una lista pedida seguido mientras no estaba termina siendo admitida. Una ráfaga de
+ * listas vistas una sola vez no expulsa a las populares, y el envejecimiento del sketch
+ * evita que una lista que fue popular hace tiempo quede fijada para siempre.
+ */
+public class PoliticaTinyLFU implements PoliticaDesalojo {
+    private final LinkedHashMap<String, Boolean> orden = new LinkedHashMap<>(16, 0.75f, true);
+    private final SketchFrecuencias sketch;
+
+    public PoliticaTinyLFU(int capacidad) {
+        this.sketch = new SketchFrecuencias(capacidad);
+    }
+
+    @Override
+    public void registrarInsercion(String clave, ListaReproduccion lista) {
+        sketch.incrementar(clave);
+        orden.put(clave, Boolean.TRUE);
+    }
+
+    @Override
+    public void registrarAcceso(String clave, ListaReproduccion lista) {
+        sketch.incrementar(clave);
+        orden.get(clave);
+    }
+
+    @Override
+    public void registrarFallo(String clave) {
+        sketch.incrementar(clave);
+    }
+
+    @Override
+    public void registrarEliminacion(String clave) {
+        orden.remove(clave);
+    }
+
+    @Override
+    public String elegirVictima(String candidata, Function<String, ListaReproduccion> entradas) {
+        Iterator<String> it = orden.keySet().iterator();
+        if (!it.hasNext()) return null;
+        String victima = it.next();
+        if (candidata == null || !orden.containsKey(candidata)) return victima;
+        if (victima.equals(candidata)) {
+            if (!it.hasNext()) return victima;
+            victima = it.next();
+        }
+        return sketch.frecuencia(candidata) > sketch.frecuencia(victima) ? victima : candidata;
+    }
+
+    @Override
+    public String getNombre() {
+        return "TinyLFU";
+    }
+}
@@ -0,0 +1,247 @@
+package implementacion;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool acotado de conexiones JDBC para DBManager.
+ *
+ * - Como máximo `maximo` conexiones prestadas a la vez; tomar() espera si están todas en uso.
+ * - Las libres se reutilizan en orden LIFO (la más reciente primero) y se validan con
+ *   isValid() si pasaron más de VALIDAR_TRAS_MS sin usarse.
+ * - Un hilo de limpieza cierra las que superan el tiempo de inactividad.
+ * - Cada conexión cachea sus PreparedStatement por SQL: las consultas fijas de DBManager se
+ *   preparan una vez por conexión y no una vez por llamada.
+ * - Una conexión devuelta como rota se cierra; la próxima tomar() abre otra (reconexión).
+ */
+class PoolConexiones {
+    private static final long VALIDAR_TRAS_MS = 30_000;
+    private static final int SEGUNDOS_VALIDACION = 5;
+
+    /**
+     * Abre una conexión nueva contra la BD configurada
+     */
+    interface Fabrica {
+        Connection abrir() throws SQLException;
+    }
+
+    /**
+     * Conexión prestada por el pool, con su cache de sentencias
+     */
+    static final class Conexion {
+        private final Connection conexion;
+        private final Map<String, PreparedStatement> sentencias = new HashMap<>();
+        private long ultimoUso = System.currentTimeMillis();
+
+        private Conexion(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        Connection getConexion() {
+            return conexion;
+        }
+
+        /**
+         * Devuelve la sentencia cacheada para ese SQL (sin parámetros ni lote pendientes)
+         */
+        PreparedStatement preparar(String sql) throws SQLException {
+            PreparedStatement ps = sentencias.get(sql);
+            if (ps == null || ps.isClosed()) {
+                ps = conexion.prepareStatement(sql);
+                sentencias.put(sql, ps);
+            } else {
+                ps.clearParameters();
+                ps.clearBatch();
+            }
+            return ps;
+        }
+
+        private void cerrar() {
+            for (PreparedStatement ps : sentencias.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException ignorada) {
+                    // la conexión se cierra igual
+                }
+            }
+            sentencias.clear();
+            try {
+                conexion.close();
+            } catch (SQLException ignorada) {
+                // ya estaba rota o cerrada
+            }
+        }
+    }
+
+    private final Fabrica fabrica;
+    private final int maximo;
+    private final long inactividadMaximaMs;
+    private final Semaphore permisos;
+    private final Deque<Conexion> libres = new ArrayDeque<>();
+    private final AtomicInteger abiertas = new AtomicInteger();
+    private final ScheduledExecutorService limpieza;
+    private volatile boolean cerrado = false;
+
+    PoolConexiones(Fabrica fabrica, int maximo, long inactividadMaximaMs) {
+        this.fabrica = fabrica;
+        this.maximo = Math.max(1, maximo);
+        this.inactividadMaximaMs = inactividadMaximaMs;
+        this.permisos = new Semaphore(this.maximo, true);
+        this.limpieza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexiones-limpieza");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000, inactividadMaximaMs / 2);
+        limpieza.scheduleWithFixedDelay(this::cerrarInactivas, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión válida, esperando como máximo esperaMs si el pool está agotado.
+     */
+    Conexion tomar(long esperaMs) throws SQLException {
+        if (cerrado) throw new SQLException("El pool de conexiones está cerrado", "08003");
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No hay conexiones libres tras " + esperaMs + " ms (máximo " + maximo + ")", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión", "08001", e);
+        }
+        try {
+            while (true) {
+                Conexion c;
+                synchronized (libres) {
+                    c = libres.pollFirst();
+                }
+                if (c == null) break;
+                if (esUtilizable(c)) return c;
+                descartar(c);
+            }
+            Conexion nueva = new Conexion(fabrica.abrir());
+            abiertas.incrementAndGet();
+            return nueva;
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve una conexión prestada. Con rota = true (o si quedó en mal estado) se cierra.
+     */
+    void devolver(Conexion c, boolean rota) {
+        if (c == null) return;
+        try {
+            if (!rota && !c.conexion.getAutoCommit()) {
+                // Una transacción a medias no puede pasar al siguiente usuario
+                c.conexion.rollback();
+                c.conexion.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            rota = true;
+        }
+        if (rota || cerrado) {
+            descartar(c);
+        } else {
+            c.ultimoUso = System.currentTimeMillis();
+            synchronized (libres) {
+                libres.addFirst(c);
+            }
+        }
+        permisos.release();
+    }
+
+    private boolean esUtilizable(Conexion c) {
+        try {
+            if (c.conexion.isClosed()) return false;
+            if (System.currentTimeMillis() - c.ultimoUso < VALIDAR_TRAS_MS) return true;
+            return c.conexion.isValid(SEGUNDOS_VALIDACION);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void descartar(Conexion c) {
+        abiertas.decrementAndGet();
+        c.cerrar();
+    }
+
+    /**
+     * Cierra las conexiones libres que llevan más de inactividadMaximaMs sin usarse.
+     * Las más viejas están al final de la cola (LIFO).
+     */
+    private void cerrarInactivas() {
+        long limite = System.currentTimeMillis() - inactividadMaximaMs;
+        List<Conexion> viejas = new ArrayList<>();
+        synchronized (libres) {
+            Iterator<Conexion> it = libres.descendingIterator();
+            while (it.hasNext()) {
+                Conexion c = it.next();
+                if (c.ultimoUso > limite) break;
+                it.remove();
+                viejas.add(c);
+            }
+        }
+        for (Conexion c : viejas) descartar(c);
+    }
+
+    /**
+     * true si el error indica que la conexión ya no sirve (SQLState clase 08 o conexión cerrada)
+     */
+    static boolean esErrorDeConexion(SQLException e, Conexion c) {
+        String estado = e.getSQLState();
+        if (estado != null && estado.startsWith("08")) return true;
+        try {
+            return c.conexion.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Cierra las conexiones libres; las prestadas se cierran al devolverse.
+     */
+    void cerrar() {
+        cerrado = true;
+        limpieza.shutdownNow();
+        List<Conexion> todas;
+        synchronized (libres) {
+            todas = new ArrayList<>(libres);
+            libres.clear();
+        }
+        for (Conexion c : todas) descartar(c);
+    }
+
+    boolean isCerrado() {
+        return cerrado;
+    }
+
+    int getAbiertas() {
+        return abiertas.get();
+    }
+
+    int getLibres() {
+        synchronized (libres) {
+            return libres.size();
+        }
+    }
+
+    int getMaximo() {
+        return maximo;
+    }
+}
@@ -0,0 +1,295 @@
+package implementacion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Registro append-only de playlists en disco con índice en memoria (nombre -> posición).
+ *
+ * Cada registro: longitud (4) | CRC32 (4) | tipo (1) | longitud del nombre (4) | nombre | datos
+ * - tipo LISTA guarda el blob de la playlist; tipo LAPIDA marca el nombre como borrado.
+ * - Al abrir se recorre el archivo para rehacer el índice. Un registro truncado o con CRC
+ *   inválido (escritura cortada) marca el final: se descarta junto con lo que siga.
+ * - Escribir una versión nueva deja la anterior como bytes muertos; compactar() reescribe
+ *   solo los registros vivos en un archivo nuevo y lo cambia por el actual. Si los vivos
+ *   superan maximoBytes se descartan los más viejos (orden del registro = orden de escritura).
+ *
+ * Lecturas sin bloqueo entre sí (lecturas posicionales del canal); las escrituras se
+ * serializan y la compactación bloquea las lecturas solo durante el cambio de archivo.
+ */
+class RegistroPlaylists {
+    static final String NOMBRE_ARCHIVO = "playlists.log";
+    private static final byte LISTA = 1;
+    private static final byte LAPIDA = 2;
+    private static final int CABECERA = 4 + 4;
+    private static final int MAXIMO_REGISTRO = 256 << 20;
+
+    private static final class Posicion {
+        final long offset;
+        final int longitud; // bytes del registro completo
+
+        Posicion(long offset, int longitud) {
+            this.offset = offset;
+            this.longitud = longitud;
+        }
+    }
+
+    private final Path archivo;
+    private final boolean sincronizar;
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final ReentrantReadWriteLock cambio = new ReentrantReadWriteLock();
+    private volatile FileChannel canal;
+    private volatile Map<String, Posicion> indice = new ConcurrentHashMap<>();
+    // Protegidos por escritura
+    private long tamano;
+    private long bytesVivos;
+
+    RegistroPlaylists(Path directorio, boolean sincronizar) throws IOException {
+        Files.createDirectories(directorio);
+        this.archivo = directorio.resolve(NOMBRE_ARCHIVO);
+        this.sincronizar = sincronizar;
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recuperar();
+    }
+
+    /**
+     * Rehace el índice recorriendo el registro y corta la cola dañada si la hay
+     */
+    private void recuperar() throws IOException {
+        long posicion = 0;
+        long fin = canal.size();
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+        while (posicion + CABECERA <= fin) {
+            cabecera.clear();
+            leerCompleto(canal, cabecera, posicion);
+            int longitud = cabecera.getInt(0);
+            if (longitud < 5 || longitud > MAXIMO_REGISTRO || posicion + CABECERA + longitud > fin) break;
+            ByteBuffer cuerpo = ByteBuffer.allocate(longitud);
+            leerCompleto(canal, cuerpo, posicion + CABECERA);
+            if (crc(cuerpo.array()) != cabecera.getInt(4)) break;
+            String nombre = nombre(cuerpo.array());
+            if (nombre == null) break;
+            int total = CABECERA + longitud;
+            Posicion anterior = cuerpo.get(0) == LISTA
+                    ? indice.put(nombre, new Posicion(posicion, total))
+                    : indice.remove(nombre);
+            if (cuerpo.get(0) == LISTA) bytesVivos += total;
+            if (anterior != null) bytesVivos -= anterior.longitud;
+            posicion += total;
+        }
+        if (posicion < fin) {
+            System.out.println("[AlmacenDiscoL2] Registro dañado desde el byte " + posicion + ": se descartan "
+                    + (fin - posicion) + " bytes");
+            canal.truncate(posicion);
+        }
+        tamano = posicion;
+    }
+
+    void escribir(String nombre, byte[] datos) throws IOException {
+        agregar(LISTA, nombre, datos);
+    }
+
+    void eliminar(String nombre) throws IOException {
+        if (indice.containsKey(nombre)) agregar(LAPIDA, nombre, new byte[0]);
+    }
+
+    private void agregar(byte tipo, String nombre, byte[] datos) throws IOException {
+        ByteBuffer registro = registro(tipo, nombre, datos);
+        int total = registro.remaining();
+        escritura.lock();
+        cambio.readLock().lock();
+        try {
+            long offset = tamano;
+            escribirCompleto(canal, registro, offset);
+            if (sincronizar) canal.force(false);
+            tamano += total;
+            Posicion anterior = tipo == LISTA
+                    ? indice.put(nombre, new Posicion(offset, total))
+                    : indice.remove(nombre);
+            if (tipo == LISTA) bytesVivos += total;
+            if (anterior != null) bytesVivos -= anterior.longitud;
+        } finally {
+            cambio.readLock().unlock();
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * @return los datos guardados con ese nombre, o null si no está
+     */
+    byte[] leer(String nombre) throws IOException {
+        cambio.readLock().lock();
+        try {
+            Posicion p = indice.get(nombre);
+            if (p == null) return null;
+            ByteBuffer buf = ByteBuffer.allocate(p.longitud);
+            leerCompleto(canal, buf, p.offset);
+            byte[] cuerpo = new byte[p.longitud - CABECERA];
+            System.arraycopy(buf.array(), CABECERA, cuerpo, 0, cuerpo.length);
+            if (crc(cuerpo) != buf.getInt(4)) throw new IOException("CRC inválido en el registro de " + nombre);
+            int inicioDatos = 1 + 4 + ByteBuffer.wrap(cuerpo, 1, 4).getInt();
+            byte[] datos = new byte[cuerpo.length - inicioDatos];
+            System.arraycopy(cuerpo, inicioDatos, datos, 0, datos.length);
+            return datos;
+        } finally {
+            cambio.readLock().unlock();
+        }
+    }
+
+    boolean contiene(String nombre) {
+        return indice.containsKey(nombre);
+    }
+
+    /**
+     * Reescribe solo los registros vivos (los más nuevos que entren en maximoBytes).
+     * Las escrituras esperan; las lecturas siguen sobre el archivo viejo hasta el cambio.
+     */
+    void compactar(long maximoBytes) throws IOException {
+        escritura.lock();
+        try {
+            List<Map.Entry<String, Posicion>> vivos = new ArrayList<>(indice.entrySet());
+            vivos.sort((a, b) -> Long.compare(b.getValue().offset, a.getValue().offset));
+            long acumulado = 0;
+            int conservar = 0;
+            while (conservar < vivos.size() && acumulado + vivos.get(conservar).getValue().longitud <= maximoBytes) {
+                acumulado += vivos.get(conservar++).getValue().longitud;
+            }
+            // De vuelta a orden de escritura, para que el archivo nuevo conserve la antigüedad
+            List<Map.Entry<String, Posicion>> conservados = new ArrayList<>(vivos.subList(0, conservar));
+            conservados.sort((a, b) -> Long.compare(a.getValue().offset, b.getValue().offset));
+
+            Path temporal = archivo.resolveSibling(NOMBRE_ARCHIVO + ".compactando");
+            Map<String, Posicion> nuevoIndice = new ConcurrentHashMap<>();
+            long posicion = 0;
+            try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Posicion> e : conservados) {
+                    Posicion p = e.getValue();
+                    ByteBuffer buf = ByteBuffer.allocate(p.longitud);
+                    leerCompleto(canal, buf, p.offset);
+                    escribirCompleto(nuevo, buf, posicion);
+                    nuevoIndice.put(e.getKey(), new Posicion(posicion, p.longitud));
+                    posicion += p.longitud;
+                }
+                nuevo.force(true);
+            }
+
+            cambio.writeLock().lock();
+            try {
+                canal.close();
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                indice = nuevoIndice;
+                tamano = posicion;
+                bytesVivos = posicion;
+            } finally {
+                cambio.writeLock().unlock();
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    void cerrar() throws IOException {
+        escritura.lock();
+        cambio.writeLock().lock();
+        try {
+            canal.force(true);
+            canal.close();
+        } finally {
+            cambio.writeLock().unlock();
+            escritura.unlock();
+        }
+    }
+
+    void vaciar() throws IOException {
+        escritura.lock();
+        cambio.writeLock().lock();
+        try {
+            canal.truncate(0);
+            indice = new ConcurrentHashMap<>();
+            tamano = 0;
+            bytesVivos = 0;
+        } finally {
+            cambio.writeLock().unlock();
+            escritura.unlock();
+        }
+    }
+
+    int getListas() {
+        return indice.size();
+    }
+
+    long getTamano() {
+        escritura.lock();
+        try {
+            return tamano;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    long getBytesVivos() {
+        escritura.lock();
+        try {
+            return bytesVivos;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private static ByteBuffer registro(byte tipo, String nombre, byte[] datos) {
+        byte[] n = nombre.getBytes(StandardCharsets.UTF_8);
+        int longitud = 1 + 4 + n.length + datos.length;
+        if (longitud > MAXIMO_REGISTRO) throw new IllegalArgumentException("Playlist demasiado grande para el registro: " + nombre);
+        ByteBuffer buf = ByteBuffer.allocate(CABECERA + longitud);
+        buf.putInt(longitud).putInt(0).put(tipo).putInt(n.length).put(n).put(datos);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), CABECERA, longitud);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private static int crc(byte[] cuerpo) {
+        CRC32 crc = new CRC32();
+        crc.update(cuerpo, 0, cuerpo.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return el nombre del cuerpo de un registro, o null si las longitudes no cuadran
+     */
+    private static String nombre(byte[] cuerpo) {
+        if (cuerpo.length < 5) return null;
+        int largo = ByteBuffer.wrap(cuerpo, 1, 4).getInt();
+        if (largo < 0 || largo > cuerpo.length - 5) return null;
+        return new String(cuerpo, 5, largo, StandardCharsets.UTF_8);
+    }
+
+    private static void leerCompleto(FileChannel c, ByteBuffer buf, long posicion) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = c.read(buf, posicion + buf.position());
+            if (n < 0) throw new IOException("Fin de archivo inesperado en el registro de playlists");
+        }
+        buf.flip();
+    }
+
+    private static void escribirCompleto(FileChannel c, ByteBuffer buf, long posicion) throws IOException {
+        long escrito = 0;
+        while (buf.hasRemaining()) escrito += c.write(buf, posicion + escrito);
+    }
+}
@@ -0,0 +1,73 @@
+package implementacion;
+
+/**
+ * Count-Min Sketch de contadores de 4 bits para estimar la frecuencia reciente de una clave
+ * en poco espacio (base del filtro de admisión de TinyLFU).
+ *
+ * - 4 filas; cada long guarda 16 contadores saturados en 15.
+ * - Envejecimiento: tras 10 x capacidad incrementos todos los contadores se dividen a la
+ *   mitad, de modo que la popularidad pasada se olvida y las claves nuevas pueden competir.
+ */
+class SketchFrecuencias {
+    private static final long[] SEMILLAS = {
+        0x97cb3127L, 0x84d4bda7L, 0xb1cd0d3bL, 0xa64b5afdL
+    };
+    private static final long MASCARA_MITAD = 0x7777777777777777L;
+
+    private final long[][] filas;
+    private final int mascaraContadores;
+    private final int tamanoMuestra;
+    private int incrementos;
+
+    SketchFrecuencias(int capacidad) {
+        int contadores = Integer.highestOneBit(Math.max(64, capacidad * 2 - 1)) << 1;
+        this.filas = new long[SEMILLAS.length][contadores / 16];
+        this.mascaraContadores = contadores - 1;
+        this.tamanoMuestra = 10 * Math.max(1, capacidad);
+    }
+
+    int frecuencia(String clave) {
+        int h = esparcir(clave.hashCode());
+        int minimo = Integer.MAX_VALUE;
+        for (int i = 0; i < filas.length; i++) {
+            int c = indice(h, i);
+            int valor = (int) ((filas[i][c >>> 4] >>> ((c & 15) << 2)) & 0xF);
+            minimo = Math.min(minimo, valor);
+        }
+        return minimo;
+    }
+
+    void incrementar(String clave) {
+        int h = esparcir(clave.hashCode());
+        for (int i = 0; i < filas.length; i++) {
+            int c = indice(h, i);
+            int desplazamiento = (c & 15) << 2;
+            long palabra = filas[i][c >>> 4];
+            if (((palabra >>> desplazamiento) & 0xF) < 15) {
+                filas[i][c >>> 4] = palabra + (1L << desplazamiento);
+            }
+        }
+        if (++incrementos >= tamanoMuestra) envejecer();
+    }
+
+    private void envejecer() {
+        for (long[] fila : filas) {
+            for (int j = 0; j < fila.length; j++) {
+                fila[j] = (fila[j] >>> 1) & MASCARA_MITAD;
+            }
+        }
+        incrementos /= 2;
+    }
+
+    private int indice(int h, int fila) {
+        long x = (h + SEMILLAS[fila]) * SEMILLAS[fila];
+        x += x >>> 32;
+        return (int) x & mascaraContadores;
+    }
+
+    private static int esparcir(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
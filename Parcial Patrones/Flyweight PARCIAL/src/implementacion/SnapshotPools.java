@@ -0,0 +1,291 @@
+package implementacion;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * SnapshotPools - volcado binario de los pools de FabricaArtistas y FabricaCanciones para
+ * que un proceso nuevo arranque con el catálogo sin reconstruirlo canción por canción.
+ *
+ * - guardar() escribe artistas, canciones (con la posición de su artista), los alias de id y
+ *   las secuencias y pisos de ids en un solo archivo, vía temporal + renombrado atómico.
+ * - cargar() mapea el archivo en memoria (o lo lee de una vez con MapearArchivo = false),
+ *   verifica el CRC y reemplaza los pools en bloque: sin sondas, sin un computeIfAbsent por
+ *   canción ni búsquedas del artista por nombre. Si el archivo está dañado los pools no se tocan.
+ *
+ * Formato: "FWSP" | versión
+ *   | artistas: secuencia, piso, cantidad, [id, nombre, género, país]
+ *   | canciones: secuencia, piso, cantidad, [id, posición del artista (-1 = ninguno), nombre]
+ *   | alias: cantidad, [id, posición de la canción] | CRC32 de todo lo anterior
+ * Los textos van como longitud (int, -1 = null) + UTF-8.
+ *
+ * La carga reemplaza los pools enteros: llamarla al arrancar, antes de crear canciones.
+ * Con -Dflyweight.snapshot.archivo=ruta, FlyweightMain la carga al iniciar y guarda al salir.
+ */
+public class SnapshotPools {
+    public static final String PROPIEDAD_ARCHIVO = "flyweight.snapshot.archivo";
+    // En Windows un archivo mapeado no se puede reemplazar hasta que el GC libere el mapeo,
+    // así que allí se lee a un búfer en heap por defecto
+    public static boolean MapearArchivo = Boolean.parseBoolean(System.getProperty("flyweight.snapshot.mapear",
+            String.valueOf(!System.getProperty("os.name", "").startsWith("Windows"))));
+    private static final int MAGICO = 0x46575350; // "FWSP"
+    private static final byte VERSION = 1;
+    private static final int TAMANO_BUFER = 1 << 16;
+
+    private SnapshotPools() {
+    }
+
+    /**
+     * Vuelca los pools actuales al archivo (lo reemplaza si existe).
+     * Los pools pueden seguir en uso: lo creado durante el volcado puede quedar fuera.
+     * @return bytes escritos
+     */
+    public static long guardar(Path archivo) throws IOException {
+        List<Artista> artistas = new ArrayList<>(FabricaArtistas.artistasEnMemoria());
+        List<Cancion> canciones = new ArrayList<>(FabricaCanciones.cancionesEnPool());
+        Map<Artista, Integer> posArtista = new IdentityHashMap<>(artistas.size() * 2);
+        for (Artista a : artistas) posArtista.put(a, posArtista.size());
+        // Los alias son pocos: solo sus canciones destino necesitan posición
+        List<Map.Entry<Long, Cancion>> alias = new ArrayList<>();
+        Map<Cancion, Integer> posDestino = new IdentityHashMap<>();
+        for (Map.Entry<Long, Cancion> e : FabricaCanciones.indicePorId().entrySet()) {
+            if (!e.getKey().equals(e.getValue().getId())) {
+                alias.add(e);
+                posDestino.put(e.getValue(), -1);
+            }
+        }
+        long maximoId = 0;
+        for (int i = 0; i < canciones.size(); i++) {
+            Cancion c = canciones.get(i);
+            // Un artista que no está en el pool (creado con el flyweight deshabilitado) va igual
+            Artista a = c.getArtista();
+            if (a != null && !posArtista.containsKey(a)) {
+                posArtista.put(a, artistas.size());
+                artistas.add(a);
+            }
+            if (posDestino.containsKey(c)) posDestino.put(c, i);
+            maximoId = Math.max(maximoId, c.getId());
+        }
+        // Un alias cuya canción ya no está en el pool no se guarda
+        alias.removeIf(e -> posDestino.get(e.getValue()) < 0);
+        long maximoArtista = 0;
+        for (Artista a : artistas) maximoArtista = Math.max(maximoArtista, a.getId());
+
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try {
+            try (OutputStream archivoSalida = Files.newOutputStream(temporal);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         new CheckedOutputStream(archivoSalida, crc), TAMANO_BUFER))) {
+                out.writeInt(MAGICO);
+                out.writeByte(VERSION);
+                out.writeLong(Math.max(FabricaArtistas.getSecuencia(), maximoArtista));
+                out.writeLong(FabricaArtistas.getPisoIds());
+                out.writeInt(artistas.size());
+                for (Artista a : artistas) {
+                    out.writeLong(a.getId());
+                    escribirTexto(out, a.getNombreArtista());
+                    escribirTexto(out, a.getGeneroMusical());
+                    escribirTexto(out, a.getPais());
+                }
+                out.writeLong(Math.max(FabricaCanciones.getSecuencia(), maximoId));
+                out.writeLong(FabricaCanciones.getPisoIds());
+                out.writeInt(canciones.size());
+                for (Cancion c : canciones) {
+                    out.writeLong(c.getId());
+                    out.writeInt(c.getArtista() != null ? posArtista.get(c.getArtista()) : -1);
+                    escribirTexto(out, c.getNombreCancion());
+                }
+                out.writeInt(alias.size());
+                for (Map.Entry<Long, Cancion> e : alias) {
+                    out.writeLong(e.getKey());
+                    out.writeInt(posDestino.get(e.getValue()));
+                }
+                // El CRC cubre lo que ya pasó por el búfer; el propio valor queda fuera
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            }
+            long bytes = Files.size(temporal);
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return bytes;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Reemplaza los pools de artistas y canciones por los del archivo.
+     * @return cantidad de canciones cargadas
+     * @throws IOException si el archivo no existe, no es un snapshot o está dañado (pools intactos)
+     */
+    public static int cargar(Path archivo) throws IOException {
+        if (!FabricaCanciones.HabilitarFlyweight || !FabricaArtistas.HabilitarFlyweight) {
+            throw new IllegalStateException("El snapshot solo se carga con el flyweight habilitado");
+        }
+        ByteBuffer buf = abrir(archivo);
+        int fin = buf.limit() - 4;
+        if (fin < 5) throw new IOException("Snapshot demasiado corto: " + archivo);
+        CRC32 crc = new CRC32();
+        ByteBuffer cuerpo = buf.duplicate();
+        cuerpo.limit(fin);
+        crc.update(cuerpo);
+        if ((int) crc.getValue() != buf.getInt(fin)) throw new IOException("CRC inválido en el snapshot " + archivo);
+        buf.limit(fin);
+
+        Lector in = new Lector(buf);
+        Artista[] artistas;
+        Cancion[] canciones;
+        long[] aliasIds;
+        int[] aliasDe;
+        long secuenciaArtistas, pisoArtistas, secuenciaCanciones, pisoCanciones;
+        try {
+            if (buf.getInt() != MAGICO) throw new IOException("No es un snapshot de pools: " + archivo);
+            byte version = buf.get();
+            if (version != VERSION) throw new IOException("Versión de snapshot no soportada: " + version);
+
+            secuenciaArtistas = buf.getLong();
+            pisoArtistas = buf.getLong();
+            artistas = new Artista[in.cantidad(8 + 3 * 4)];
+            for (int i = 0; i < artistas.length; i++) {
+                artistas[i] = new Artista(buf.getLong(), in.texto(), in.texto(), in.texto());
+            }
+
+            secuenciaCanciones = buf.getLong();
+            pisoCanciones = buf.getLong();
+            canciones = new Cancion[in.cantidad(8 + 4 + 4)];
+            for (int i = 0; i < canciones.length; i++) {
+                long id = buf.getLong();
+                int artista = buf.getInt();
+                if (artista < -1 || artista >= artistas.length) throw new IOException("Artista fuera de rango: " + artista);
+                canciones[i] = new Cancion(id, in.texto(), artista >= 0 ? artistas[artista] : null);
+            }
+
+            aliasIds = new long[in.cantidad(8 + 4)];
+            aliasDe = new int[aliasIds.length];
+            for (int i = 0; i < aliasIds.length; i++) {
+                aliasIds[i] = buf.getLong();
+                aliasDe[i] = buf.getInt();
+                if (aliasDe[i] < 0 || aliasDe[i] >= canciones.length) throw new IOException("Alias fuera de rango: " + aliasDe[i]);
+            }
+            if (buf.hasRemaining()) throw new IOException("Bytes sobrantes en el snapshot " + archivo);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot truncado: " + archivo, e);
+        }
+
+        FabricaArtistas.restaurar(artistas, secuenciaArtistas, pisoArtistas);
+        FabricaCanciones.restaurar(canciones, aliasIds, aliasDe, secuenciaCanciones, pisoCanciones);
+        return canciones.length;
+    }
+
+    /**
+     * Carga el snapshot de -Dflyweight.snapshot.archivo si está definido y existe
+     * @return true si se cargó
+     */
+    public static boolean cargarDesdePropiedades() {
+        Path archivo = archivoDesdePropiedades();
+        if (archivo == null || !Files.exists(archivo)) return false;
+        try {
+            long inicio = System.nanoTime();
+            int canciones = cargar(archivo);
+            System.out.println("[SnapshotPools] " + canciones + " canciones y " + FabricaArtistas.getTotalArtistasUnicos()
+                    + " artistas cargados en " + (System.nanoTime() - inicio) / 1_000_000 + " ms desde " + archivo);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[SnapshotPools] No se pudo cargar " + archivo + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Guarda el snapshot en -Dflyweight.snapshot.archivo si está definido
+     */
+    public static void guardarDesdePropiedades() {
+        Path archivo = archivoDesdePropiedades();
+        if (archivo == null) return;
+        try {
+            long bytes = guardar(archivo);
+            System.out.println("[SnapshotPools] Pools guardados en " + archivo + " (" + bytes / 1024 + " KB)");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[SnapshotPools] No se pudo guardar " + archivo + ": " + e.getMessage());
+        }
+    }
+
+    private static Path archivoDesdePropiedades() {
+        String ruta = System.getProperty(PROPIEDAD_ARCHIVO);
+        if (ruta == null || ruta.trim().isEmpty()) return null;
+        return Paths.get(ruta.trim()).toAbsolutePath();
+    }
+
+    private static ByteBuffer abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) throw new IOException("Snapshot demasiado grande: " + archivo);
+            // El mapeo sigue siendo válido después de cerrar el canal
+            if (MapearArchivo) return canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+            ByteBuffer buf = ByteBuffer.allocate((int) tamano);
+            while (buf.hasRemaining()) {
+                if (canal.read(buf) < 0) throw new IOException("Fin de archivo inesperado en " + archivo);
+            }
+            buf.flip();
+            return buf;
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /**
+     * Lectura de textos y cantidades sobre el búfer, con un arreglo temporal reutilizado
+     */
+    private static final class Lector {
+        private final ByteBuffer buf;
+        private byte[] temporal = new byte[64];
+
+        Lector(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Cantidad de registros de al menos minimoBytes cada uno; acotada por lo que queda
+         * para que un archivo dañado no pida un arreglo enorme
+         */
+        int cantidad(int minimoBytes) throws IOException {
+            int n = buf.getInt();
+            if (n < 0 || n > buf.remaining() / minimoBytes) throw new IOException("Cantidad inválida en el snapshot: " + n);
+            return n;
+        }
+
+        String texto() throws IOException {
+            int n = buf.getInt();
+            if (n == -1) return null;
+            if (n < 0 || n > buf.remaining()) throw new IOException("Texto inválido en el snapshot (" + n + " bytes)");
+            if (n > temporal.length) temporal = new byte[Math.max(n, temporal.length * 2)];
+            buf.get(temporal, 0, n);
+            return new String(temporal, 0, n, StandardCharsets.UTF_8);
+        }
+    }
+}
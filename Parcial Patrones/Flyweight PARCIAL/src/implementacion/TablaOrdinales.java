@@ -0,0 +1,59 @@
+package implementacion;
+
+/**
+ * Tabla ordinal -> canción del pool de FabricaCanciones: cada canción que entra al pool
+ * recibe el siguiente ordinal (0, 1, 2...) y queda en esta posición. ListaOrdinales guarda
+ * ordinales en un int[] y los resuelve aquí.
+ *
+ * Solo se agrega (la tabla nunca quita ni reordena). clearPool() no la vacía: crea una
+ * tabla nueva, y las listas construidas contra la anterior la siguen usando, igual que
+ * una lista de objetos conserva sus canciones después de limpiar el pool.
+ *
+ * Las altas se serializan (solo ocurren al crear canciones); las lecturas no bloquean.
+ */
+final class TablaOrdinales {
+    private volatile Cancion[] canciones = new Cancion[1024];
+    private volatile int tamano;
+
+    /**
+     * Registra la canción y le asigna su ordinal
+     */
+    synchronized void agregar(Cancion cancion) {
+        Cancion[] actual = canciones;
+        int n = tamano;
+        if (n == actual.length) {
+            if (n == Integer.MAX_VALUE - 8) throw new IllegalStateException("Tabla de ordinales llena");
+            Cancion[] mayor = new Cancion[(int) Math.min(Integer.MAX_VALUE - 8, n + (n >> 1) + 1L)];
+            System.arraycopy(actual, 0, mayor, 0, n);
+            canciones = mayor;
+            actual = mayor;
+        }
+        actual[n] = cancion;
+        cancion.ordinal = n;
+        tamano = n + 1;
+    }
+
+    /**
+     * Ordinal de la canción en esta tabla, o -1 si no pertenece a ella
+     */
+    int ordinal(Cancion cancion) {
+        int o = cancion != null ? cancion.ordinal : -1;
+        return o >= 0 && o < tamano && canciones[o] == cancion ? o : -1;
+    }
+
+    Cancion cancion(int ordinal) {
+        return canciones[ordinal];
+    }
+
+    /**
+     * Arreglo actual: contiene todos los ordinales ya entregados (crecer copia, nunca quita),
+     * así que un recorrido puede leerlo una vez y resolver sobre él
+     */
+    Cancion[] arreglo() {
+        return canciones;
+    }
+
+    int getTamano() {
+        return tamano;
+    }
+}